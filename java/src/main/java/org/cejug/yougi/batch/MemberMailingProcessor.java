@@ -0,0 +1,95 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.batch;
+
+import org.cejug.yougi.business.ApplicationPropertyBean;
+import org.cejug.yougi.business.MessageTemplateBean;
+import org.cejug.yougi.entity.CompiledMessageTemplate;
+import org.cejug.yougi.entity.MessageBody;
+import org.cejug.yougi.entity.MessageHistory;
+import org.cejug.yougi.entity.MessageTemplate;
+import org.cejug.yougi.entity.Properties;
+import org.cejug.yougi.entity.UserAccount;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.chunk.ItemProcessor;
+import javax.ejb.EJB;
+import javax.enterprise.context.Dependent;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the message of each subscriber from the template informed in the job
+ * parameters. Variables with the same value for everybody are replaced once,
+ * in a message body shared by all subscribers, and only the values specific
+ * to each subscriber are kept in its historical message.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Named
+@Dependent
+public class MemberMailingProcessor implements ItemProcessor {
+
+    @EJB
+    private MessageTemplateBean messageTemplateBean;
+
+    @EJB
+    private ApplicationPropertyBean applicationPropertyBean;
+
+    @Inject
+    @BatchProperty
+    private String messageTemplate;
+
+    private MessageBody messageBody;
+    private final Map<String, Object> values = new HashMap<>();
+
+    @Override
+    public MessageHistory processItem(Object item) throws Exception {
+        if(messageBody == null) {
+            loadTemplate();
+        }
+
+        UserAccount subscriber = (UserAccount) item;
+        values.put("userAccount.firstName", subscriber.getFirstName());
+        values.put("userAccount.lastName", subscriber.getLastName());
+        values.put("userAccount.fullName", subscriber.getFullName());
+        values.put("userAccount.email", subscriber.getEmail());
+
+        return new MessageHistory(messageBody, subscriber, values);
+    }
+
+    private void loadTemplate() {
+        MessageTemplate template = messageTemplateBean.find(messageTemplate);
+        if(template == null) {
+            throw new IllegalArgumentException("Message template not found: "+ messageTemplate);
+        }
+        Map<String, Object> commonValues = new HashMap<>();
+        commonValues.put("groupName", applicationPropertyBean.getPropertyValue(Properties.GROUP_NAME));
+        commonValues.put("serverAddress", applicationPropertyBean.getPropertyValue(Properties.URL));
+
+        CompiledMessageTemplate compiledTemplate = template.getCompiledTemplate();
+        StringBuilder buffer = new StringBuilder();
+        messageBody = new MessageBody(compiledTemplate.renderTitle(commonValues, buffer),
+                                      compiledTemplate.renderBody(commonValues, buffer));
+    }
+}
@@ -0,0 +1,83 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.batch;
+
+import org.cejug.yougi.business.UserAccountBean;
+import org.cejug.yougi.entity.UserAccount;
+
+import javax.batch.api.BatchProperty;
+import javax.batch.api.chunk.AbstractItemReader;
+import javax.ejb.EJB;
+import javax.enterprise.context.Dependent;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads, page by page, the members who subscribed to receive a kind of
+ * message. The checkpoint is the id of the last member read, so a restarted
+ * job continues from the member after the last committed chunk.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Named
+@Dependent
+public class MemberMailingReader extends AbstractItemReader {
+
+    private static final int PAGE_SIZE = 100;
+
+    @EJB
+    private UserAccountBean userAccountBean;
+
+    @Inject
+    @BatchProperty
+    private String subscription;
+
+    private String lastId;
+    private Iterator<UserAccount> page;
+
+    @Override
+    public void open(Serializable checkpoint) throws Exception {
+        lastId = checkpoint != null ? (String) checkpoint : "";
+    }
+
+    @Override
+    public UserAccount readItem() throws Exception {
+        if(page == null || !page.hasNext()) {
+            List<UserAccount> subscribers = userAccountBean.findSubscribers(subscription, lastId, PAGE_SIZE);
+            if(subscribers.isEmpty()) {
+                return null;
+            }
+            page = subscribers.iterator();
+        }
+
+        UserAccount subscriber = page.next();
+        lastId = subscriber.getId();
+        return subscriber;
+    }
+
+    @Override
+    public Serializable checkpointInfo() throws Exception {
+        return lastId;
+    }
+}
@@ -0,0 +1,79 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.batch;
+
+import org.cejug.yougi.business.ApplicationPropertyBean;
+import org.cejug.yougi.business.MessageHistoryBean;
+import org.cejug.yougi.entity.Properties;
+
+import javax.batch.api.AbstractBatchlet;
+import javax.batch.runtime.BatchStatus;
+import javax.ejb.EJB;
+import javax.enterprise.context.Dependent;
+import javax.inject.Named;
+import java.util.Calendar;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Moves historical messages older than the age defined by the property
+ * messageArchiveAge to the archive table, one batch per transaction, so the
+ * table of historical messages keeps only the recent ones.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Named
+@Dependent
+public class MessageArchivalBatchlet extends AbstractBatchlet {
+
+    private static final Logger LOGGER = Logger.getLogger(MessageArchivalBatchlet.class.getSimpleName());
+
+    private static final int BATCH_SIZE = 500;
+
+    @EJB
+    private ApplicationPropertyBean applicationPropertyBean;
+
+    @EJB
+    private MessageHistoryBean messageHistoryBean;
+
+    private volatile boolean stopRequested;
+
+    @Override
+    public String process() throws Exception {
+        Calendar queuedBefore = Calendar.getInstance();
+        queuedBefore.add(Calendar.DAY_OF_YEAR, -applicationPropertyBean.getIntegerPropertyValue(Properties.MESSAGE_ARCHIVE_AGE));
+
+        int total = 0;
+        int archived;
+        do {
+            archived = messageHistoryBean.archive(queuedBefore.getTime(), BATCH_SIZE);
+            total += archived;
+        } while (archived > 0 && !stopRequested);
+
+        LOGGER.log(Level.INFO, "{0} historical messages queued before {1} were archived.", new Object[]{total, queuedBefore.getTime()});
+        return stopRequested ? BatchStatus.STOPPED.toString() : BatchStatus.COMPLETED.toString();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        stopRequested = true;
+    }
+}
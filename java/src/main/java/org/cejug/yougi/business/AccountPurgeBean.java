@@ -0,0 +1,203 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.Properties;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.text.Format;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Removes the accounts that were not confirmed two days after the
+ * registration. Accounts are removed in batches, each one in a short
+ * transaction together with their authentication, groups and messages, with
+ * a pause between batches, so a large purge, after a wave of spam
+ * registrations for example, never holds locks on user accounts for long.
+ * The size of the batches and the pause are application properties.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class AccountPurgeBean implements AccountPurgeMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger(AccountPurgeBean.class.getSimpleName());
+
+    private static final String OBJECT_NAME = "org.cejug.yougi:type=AccountPurge";
+
+    @EJB
+    private UserAccountBean userAccountBean;
+
+    @EJB
+    private ApplicationPropertyBean applicationPropertyBean;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong removedAccounts = new AtomicLong();
+    private final AtomicLong totalRemovedAccounts = new AtomicLong();
+    private volatile int batches;
+    private volatile Date lastPurge;
+    private volatile long lastDuration;
+
+    @PostConstruct
+    public void start() {
+        registerMBean();
+    }
+
+    @PreDestroy
+    public void stop() {
+        unregisterMBean();
+    }
+
+    @Schedule(hour = "*/12", persistent = false)
+    public void removeNonConfirmedAccounts() {
+        purge();
+    }
+
+    @Override
+    public long purge() {
+        if(!running.compareAndSet(false, true)) {
+            LOGGER.log(Level.INFO, "The purge of unconfirmed accounts is already running.");
+            return 0;
+        }
+
+        try {
+            Calendar twoDaysAgo = Calendar.getInstance();
+            twoDaysAgo.add(Calendar.DAY_OF_YEAR, -2);
+            int batchSize = Math.max(applicationPropertyBean.getIntegerPropertyValue(Properties.PURGE_BATCH_SIZE), 1);
+            long pause = Math.max(applicationPropertyBean.getIntegerPropertyValue(Properties.PURGE_PAUSE), 0);
+
+            Format formatter = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+            LOGGER.log(Level.INFO, "Removing accounts not confirmed since {0}, {1} at a time.", new Object[]{formatter.format(twoDaysAgo.getTime()), batchSize});
+
+            long start = System.nanoTime();
+            removedAccounts.set(0);
+            batches = 0;
+            int removed;
+            do {
+                removed = userAccountBean.removeNonConfirmedAccounts(twoDaysAgo.getTime(), batchSize);
+                removedAccounts.addAndGet(removed);
+                totalRemovedAccounts.addAndGet(removed);
+                batches++;
+                LOGGER.log(Level.FINE, "{0} unconfirmed accounts removed so far.", removedAccounts.get());
+            } while(removed == batchSize && pause(pause));
+
+            lastDuration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            lastPurge = new Date();
+            LOGGER.log(Level.INFO, "Number of removed accounts: {0}, in {1} batches and {2} ms.", new Object[]{removedAccounts.get(), batches, lastDuration});
+            return removedAccounts.get();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * @return false if the purge was interrupted during the pause.
+     */
+    private boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            LOGGER.log(Level.INFO, "The purge of unconfirmed accounts was interrupted.");
+            return false;
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException jme) {
+            LOGGER.log(Level.WARNING, "Account purge metrics are not available.", jme);
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException jme) {
+            LOGGER.log(Level.INFO, jme.getMessage(), jme);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Override
+    public long getRemovedAccounts() {
+        return removedAccounts.get();
+    }
+
+    @Override
+    public long getTotalRemovedAccounts() {
+        return totalRemovedAccounts.get();
+    }
+
+    @Override
+    public int getBatches() {
+        return batches;
+    }
+
+    @Override
+    public Date getLastPurge() {
+        return lastPurge;
+    }
+
+    @Override
+    public long getLastDuration() {
+        return lastDuration;
+    }
+}
@@ -0,0 +1,63 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import java.util.Date;
+
+/**
+ * Management interface of the purge of unconfirmed accounts, published in the
+ * platform MBean server under the name org.cejug.yougi:type=AccountPurge.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public interface AccountPurgeMXBean {
+
+    boolean isRunning();
+
+    /**
+     * @return the number of accounts removed so far by the running purge, or
+     * by the last one if there is none running.
+     */
+    long getRemovedAccounts();
+
+    /**
+     * @return the number of accounts removed since the startup.
+     */
+    long getTotalRemovedAccounts();
+
+    /**
+     * @return the number of batches executed by the running or the last purge.
+     */
+    int getBatches();
+
+    Date getLastPurge();
+
+    /**
+     * @return the time, in milliseconds, spent by the last purge.
+     */
+    long getLastDuration();
+
+    /**
+     * Starts a purge right away, unless there is one running.
+     * @return the number of removed accounts.
+     */
+    long purge();
+}
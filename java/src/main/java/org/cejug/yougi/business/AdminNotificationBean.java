@@ -0,0 +1,206 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.AccessGroup;
+import org.cejug.yougi.entity.EmailMessage;
+import org.cejug.yougi.entity.MessageTemplate;
+import org.cejug.yougi.entity.Properties;
+import org.cejug.yougi.entity.UserAccount;
+import org.cejug.yougi.util.TextUtils;
+import org.cejug.yougi.util.WebTextUtils;
+
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.mail.MessagingException;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TemporalType;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Notifies the administrators about registrations and deactivations of
+ * members. Instead of one message for each change, the changes are sent
+ * together in a digest, at the interval in minutes defined by the property
+ * adminDigestInterval. An interval of zero sends each notification
+ * immediately.
+ *
+ * The digest is read from the user accounts registered or deactivated since
+ * the end of the previous digest, which is stored in the table admin_digest.
+ * Nothing is kept in memory, so a late timer or a restart only delays the
+ * digest. Every node of a cluster runs the timer, but only the one that moves
+ * the end of the previous digest forward sends it. While the digest or the
+ * emails are disabled, the end of the previous digest follows the clock, so
+ * enabling them doesn't report old changes.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class AdminNotificationBean {
+
+    private static final Logger LOGGER = Logger.getLogger(AdminNotificationBean.class.getSimpleName());
+
+    private static final String NEW_MEMBER_TEMPLATE = "0D6F96382D91454F8155A720F3326F1B";
+    private static final String DEACTIVATION_TEMPLATE = "0D6F96382IKEJSUIWOK5A720F3326F1B";
+    private static final String DIGEST_TEMPLATE = "B3A1D6F04E7C4A5F9E2D8C6B1A0F7E35";
+
+    private static final String DATE_FORMAT = "dd/MM/yyyy HH:mm";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @EJB
+    private AccessGroupBean accessGroupBean;
+
+    @EJB
+    private UserGroupBean userGroupBean;
+
+    @EJB
+    private UserAccountBean userAccountBean;
+
+    @EJB
+    private MessengerBean messengerBean;
+
+    @EJB
+    private MessageTemplateBean messageTemplateBean;
+
+    @EJB
+    private ApplicationPropertyBean applicationPropertyBean;
+
+    public void notifyNewMember(UserAccount userAccount) {
+        if(isDigestEnabled()) {
+            return;
+        }
+
+        MessageTemplate messageTemplate = messageTemplateBean.find(NEW_MEMBER_TEMPLATE);
+        messageTemplate.setVariable("userAccount.fullName", userAccount.getFullName());
+        messageTemplate.setVariable("userAccount.registrationDate", userAccount.getRegistrationDate());
+        sendToAdmins(messageTemplate.buildEmailMessage());
+    }
+
+    public void notifyDeactivation(UserAccount userAccount) {
+        if(isDigestEnabled()) {
+            return;
+        }
+
+        MessageTemplate messageTemplate = messageTemplateBean.find(DEACTIVATION_TEMPLATE);
+        messageTemplate.setVariable("userAccount.fullName", userAccount.getFullName());
+        messageTemplate.setVariable("userAccount.deactivationReason", userAccount.getDeactivationReason());
+        sendToAdmins(messageTemplate.buildEmailMessage());
+    }
+
+    /**
+     * Sends the changes since the end of the previous digest until the current
+     * minute, once at least one interval has passed.
+     */
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void sendDigestWhenDue() {
+        long minute = TimeUnit.MINUTES.toMillis(1);
+        Date until = new Date(System.currentTimeMillis() / minute * minute);
+        if(!isDigestEnabled() || !applicationPropertyBean.findApplicationProperty(Properties.SEND_EMAILS).sendEmailsEnabled()) {
+            em.createNativeQuery("update admin_digest set last_sent = ?1 where id = 1")
+              .setParameter(1, until, TemporalType.TIMESTAMP)
+              .executeUpdate();
+            return;
+        }
+
+        Date since = (Date) em.createNativeQuery("select last_sent from admin_digest where id = 1").getSingleResult();
+        long interval = TimeUnit.MINUTES.toMillis(applicationPropertyBean.getIntegerPropertyValue(Properties.ADMIN_DIGEST_INTERVAL));
+        if(until.getTime() - since.getTime() < interval) {
+            return;
+        }
+
+        // Another node that read the same end has already sent this digest.
+        int claimed = em.createNativeQuery("update admin_digest set last_sent = ?1 where id = 1 and last_sent = ?2")
+                        .setParameter(1, until, TemporalType.TIMESTAMP)
+                        .setParameter(2, since, TemporalType.TIMESTAMP)
+                        .executeUpdate();
+        if(claimed > 0) {
+            sendDigest(since, until);
+        }
+    }
+
+    /**
+     * Sends the members registered and deactivated from the informed date,
+     * inclusive, until the other one, exclusive.
+     */
+    public void sendDigest(Date since, Date until) {
+        List<UserAccount> newMembers = userAccountBean.findConfirmedAccounts(since, until);
+        List<UserAccount> deactivations = userAccountBean.findDeactivatedAccounts(since, until);
+        if(newMembers.isEmpty() && deactivations.isEmpty()) {
+            return;
+        }
+
+        MessageTemplate messageTemplate = messageTemplateBean.find(DIGEST_TEMPLATE);
+        messageTemplate.setVariable("digest.since", TextUtils.INSTANCE.getFormattedDate(since, DATE_FORMAT));
+        messageTemplate.setVariable("digest.totalNewMembers", newMembers.size());
+        messageTemplate.setVariable("digest.newMembers", toHtmlList(newMembers, false));
+        messageTemplate.setVariable("digest.totalDeactivatedMembers", deactivations.size());
+        messageTemplate.setVariable("digest.deactivatedMembers", toHtmlList(deactivations, true));
+        sendToAdmins(messageTemplate.buildEmailMessage());
+    }
+
+    private boolean isDigestEnabled() {
+        return applicationPropertyBean.getIntegerPropertyValue(Properties.ADMIN_DIGEST_INTERVAL) > 0;
+    }
+
+    private void sendToAdmins(EmailMessage emailMessage) {
+        AccessGroup administrativeGroup = accessGroupBean.findAdministrativeGroup();
+        List<UserAccount> admins = userGroupBean.findUsersGroup(administrativeGroup);
+        if(admins.isEmpty()) {
+            return;
+        }
+        emailMessage.setRecipients(admins);
+
+        try {
+            messengerBean.sendEmailMessage(emailMessage);
+        } catch(MessagingException me) {
+            LOGGER.log(Level.WARNING, "Error when sending the notification \""+ emailMessage.getSubject() +"\" to administrators.", me);
+        }
+    }
+
+    private String toHtmlList(List<UserAccount> userAccounts, boolean deactivations) {
+        if(userAccounts.isEmpty()) {
+            return "<p>-</p>";
+        }
+
+        StringBuilder list = new StringBuilder("<ul>");
+        for(UserAccount userAccount: userAccounts) {
+            Date date = deactivations ? userAccount.getDeactivationDate() : userAccount.getRegistrationDate();
+            list.append("<li><b>").append(WebTextUtils.INSTANCE.escapeHtml(userAccount.getFullName())).append("</b> ")
+                .append(TextUtils.INSTANCE.getFormattedDate(date, DATE_FORMAT));
+            String reason = userAccount.getDeactivationReason();
+            if(deactivations && reason != null && !reason.trim().isEmpty()) {
+                list.append(": <i>").append(WebTextUtils.INSTANCE.escapeHtml(reason)).append("</i>");
+            }
+            list.append("</li>");
+        }
+        return list.append("</ul>").toString();
+    }
+}
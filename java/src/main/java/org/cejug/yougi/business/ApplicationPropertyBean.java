@@ -23,11 +23,17 @@ package org.cejug.yougi.business;
 import org.cejug.yougi.entity.ApplicationProperty;
 import org.cejug.yougi.entity.Properties;
 
+import javax.annotation.Resource;
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,106 +45,85 @@ public class ApplicationPropertyBean {
 
     private static final Logger LOGGER = Logger.getLogger(ApplicationPropertyBean.class.getSimpleName());
 
+    /**
+     * The last invalid value reported for each property, so the warning is
+     * logged only once until the value changes.
+     */
+    private static final ConcurrentMap<String, String> INVALID_VALUES = new ConcurrentHashMap<>();
+
     @PersistenceContext
     private EntityManager em;
 
-    public Map<String, String> findApplicationProperties() {
-        Map<String, String> propertiesMap = new HashMap<>();
-        List<ApplicationProperty> properties = em.createQuery("select ap from ApplicationProperty ap", ApplicationProperty.class).getResultList();
-        for(ApplicationProperty property: properties) {
-            propertiesMap.put(property.getPropertyKey(), property.getPropertyValue());
-        }
+    @EJB
+    private ApplicationPropertyCacheBean applicationPropertyCacheBean;
 
-        // If there is no property in the database, it creates all properties according to the enumeration Properties.
-        if(propertiesMap.isEmpty()) {
-            Properties[] props = Properties.values();
-            for(int i = 0;i < props.length;i++) {
-                propertiesMap.put(props[i].getKey(), props[i].getDefaultValue());
-            }
-            create(propertiesMap);
-        } else if(Properties.values().length > propertiesMap.size()) {
-            // If there is more properties in the enumeration than in the database, then additional enumerations are persisted.
-            Properties[] props = Properties.values();
-            for(int i = 0;i < props.length;i++) {
-                if(!propertiesMap.containsKey(props[i].getKey())) {
-                    propertiesMap.put(props[i].getKey(), props[i].getDefaultValue());
-                    create(props[i].getKey(), props[i].getDefaultValue());
-                }
-            }
-        } else if(Properties.values().length < propertiesMap.size()) {
-            // If there is more persisted properties than in the enumeration, then exceding properties are removed.
-            // entries from database
-            Set<Map.Entry<String, String>> propEntries = propertiesMap.entrySet();
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
 
-            Iterator<Map.Entry<String, String>> iProps = propEntries.iterator();
-            Map.Entry<String, String> entry;
-            Properties[] props = Properties.values();
-            while(iProps.hasNext()) {
-                entry = iProps.next();
-                for(int i = 0; i < props.length; i++) {
-                    if(!entry.getKey().equals(props[i].getKey())) {
-                        remove(entry.getKey());
-                    }
-                }
-            }
-        }
-        return propertiesMap;
+    /**
+     * @return a copy of all application properties, which can be modified and
+     * then saved.
+     */
+    public Map<String, String> findApplicationProperties() {
+        return new HashMap<>(applicationPropertyCacheBean.getValues());
     }
 
     /**
      * Returns the ApplicationProperty that corresponds to the informed enum
-     * property. If the ApplicationProperty does not exist, then it creates one
-     * with the default value.
+     * property, read from the snapshot in memory. If the ApplicationProperty
+     * does not exist, then it has the default value. Changes on the returned
+     * object are not persisted.
      */
     public ApplicationProperty findApplicationProperty(Properties properties) {
-        ApplicationProperty applicationProperty;
-        try {
-            applicationProperty = (ApplicationProperty)em.createQuery("select ap from ApplicationProperty ap where ap.propertyKey = :key")
-                                                                         .setParameter("key", properties.getKey())
-                                                                         .getSingleResult();
-        } catch(NoResultException nre) {
-            LOGGER.log(Level.INFO, nre.getMessage(), nre);
-            Map<String, String> applicationProperties = findApplicationProperties();
-            String key = properties.getKey();
-            applicationProperty = new ApplicationProperty(key, applicationProperties.get(key));
-        }
-        return applicationProperty;
+        return new ApplicationProperty(properties.getKey(), getPropertyValue(properties));
     }
 
     public String getPropertyValue(Properties properties) {
-        ApplicationProperty applicationProperty = findApplicationProperty(properties);
-        return applicationProperty.getPropertyValue();
+        return applicationPropertyCacheBean.getValue(properties);
     }
 
+    /**
+     * Returns the value of a numeric property. If the value is not a valid
+     * integer, then the default value of the property is returned and a
+     * warning is logged the first time the invalid value is read.
+     */
+    public int getIntegerPropertyValue(Properties properties) {
+        String value = getPropertyValue(properties);
+        try {
+            return Integer.parseInt(value != null ? value.trim() : properties.getDefaultValue());
+        } catch(NumberFormatException nfe) {
+            if(!String.valueOf(value).equals(INVALID_VALUES.put(properties.getKey(), String.valueOf(value)))) {
+                LOGGER.log(Level.WARNING, "Invalid value ''{0}'' for the property {1}. Using the default value.", new Object[]{value, properties.getKey()});
+            }
+            return Integer.parseInt(properties.getDefaultValue());
+        }
+    }
+
+    /**
+     * Saves the values of the properties. The snapshot in memory is replaced
+     * only when the transaction commits.
+     */
     public void save(Map<String, String> properties) {
         List<ApplicationProperty> existingProperties = em.createQuery("select ap from ApplicationProperty ap", ApplicationProperty.class).getResultList();
+        final Map<String, String> savedProperties = new HashMap<>();
         String value;
         for(ApplicationProperty property: existingProperties) {
             value = properties.get(property.getPropertyKey());
             property.setPropertyValue(value);
             em.merge(property);
+            savedProperties.put(property.getPropertyKey(), value);
         }
-    }
-
-    private void create(Map<String, String> properties) {
-        Set<Map.Entry<String, String>> props = properties.entrySet();
-        Iterator<Map.Entry<String, String>> iProps = props.iterator();
-        ApplicationProperty appProp;
-        Map.Entry<String, String> entry;
-        while(iProps.hasNext()) {
-            entry = iProps.next();
-            appProp = new ApplicationProperty(entry.getKey(), entry.getValue());
-            em.persist(appProp);
-        }
-    }
 
-    private void create(String key, String value) {
-        ApplicationProperty appProp = new ApplicationProperty(key, value);
-        em.persist(appProp);
-    }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
 
-    private void remove(String key) {
-        ApplicationProperty applicationProperty = em.find(ApplicationProperty.class, key);
-        em.remove(applicationProperty);
+            @Override
+            public void afterCompletion(int status) {
+                if(status == Status.STATUS_COMMITTED) {
+                    applicationPropertyCacheBean.replace(savedProperties);
+                }
+            }
+        });
     }
 }
\ No newline at end of file
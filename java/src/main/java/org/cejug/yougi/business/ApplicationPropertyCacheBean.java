@@ -0,0 +1,225 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.ApplicationProperty;
+import org.cejug.yougi.entity.Properties;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reconciles the application properties stored in the database with the
+ * enumeration Properties at startup and keeps an immutable snapshot of all
+ * application properties in memory, so
+ * reading a property never touches the database nor waits for a lock. The
+ * snapshot is replaced as a whole when the properties are saved. Since other
+ * nodes of a cluster don't see local changes, the snapshot is also reloaded
+ * every minute and on demand through the operation invalidate of the MBean
+ * org.cejug.yougi:type=ApplicationPropertyCache.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class ApplicationPropertyCacheBean implements ApplicationPropertyCacheMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger(ApplicationPropertyCacheBean.class.getSimpleName());
+
+    private static final String OBJECT_NAME = "org.cejug.yougi:type=ApplicationPropertyCache";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private volatile Map<String, String> snapshot = Collections.emptyMap();
+
+    /**
+     * Incremented every time the snapshot is replaced. It is changed only
+     * while holding the lock of this bean.
+     */
+    private volatile long version;
+
+    private final AtomicLong reloads = new AtomicLong();
+
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.REQUIRED)
+    public void start() {
+        reconcile();
+        registerMBean();
+    }
+
+    @PreDestroy
+    public void stop() {
+        unregisterMBean();
+    }
+
+    /**
+     * @return the current value of the property, or its default value if the
+     * property is not stored yet.
+     */
+    public String getValue(Properties properties) {
+        return snapshot.get(properties.getKey());
+    }
+
+    /**
+     * @return all properties. The returned map cannot be modified.
+     */
+    public Map<String, String> getValues() {
+        return snapshot;
+    }
+
+    /**
+     * Makes the stored properties match the enumeration Properties in a single
+     * pass: missing properties are inserted with their default values and
+     * properties no longer in the enumeration are deleted. The result becomes
+     * the current snapshot.
+     */
+    private void reconcile() {
+        long start = System.nanoTime();
+        Map<String, Properties> expected = new HashMap<>();
+        for(Properties properties: Properties.values()) {
+            expected.put(properties.getKey(), properties);
+        }
+
+        List<ApplicationProperty> stored = em.createQuery("select ap from ApplicationProperty ap", ApplicationProperty.class).getResultList();
+        Map<String, String> values = new HashMap<>(expected.size());
+        int removed = 0;
+        for(ApplicationProperty property: stored) {
+            if(expected.remove(property.getPropertyKey()) != null) {
+                values.put(property.getPropertyKey(), property.getPropertyValue());
+            } else {
+                em.remove(property);
+                removed++;
+            }
+        }
+
+        // What is left in the map is not stored yet. The inserts are sent in JDBC batches on flush.
+        for(Properties properties: expected.values()) {
+            em.persist(new ApplicationProperty(properties.getKey(), properties.getDefaultValue()));
+            values.put(properties.getKey(), properties.getDefaultValue());
+        }
+        em.flush();
+
+        replace(values);
+        LOGGER.log(Level.INFO, "Application properties reconciled in {0} ms: {1} added, {2} removed.",
+                   new Object[]{TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), expected.size(), removed});
+    }
+
+    /**
+     * Loads all properties from the database and replaces the current snapshot.
+     * The properties are read outside of any transaction, so the query never
+     * sees an old state of the database kept by a long transaction. If the
+     * snapshot is replaced while the properties are read, for instance by a
+     * save that has just committed, the values read may be older than the
+     * current ones and are discarded.
+     */
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void reload() {
+        long readVersion = version;
+        List<ApplicationProperty> properties = em.createQuery("select ap from ApplicationProperty ap", ApplicationProperty.class).getResultList();
+        Map<String, String> values = new HashMap<>(properties.size());
+        for(ApplicationProperty property: properties) {
+            values.put(property.getPropertyKey(), property.getPropertyValue());
+        }
+
+        synchronized(this) {
+            if(version == readVersion) {
+                replace(values);
+            }
+        }
+    }
+
+    /**
+     * Replaces the current snapshot by the informed values. Properties not
+     * informed assume their default values.
+     */
+    public synchronized void replace(Map<String, String> values) {
+        Map<String, String> newSnapshot = new HashMap<>(values);
+        for(Properties properties: Properties.values()) {
+            if(!newSnapshot.containsKey(properties.getKey())) {
+                newSnapshot.put(properties.getKey(), properties.getDefaultValue());
+            }
+        }
+        snapshot = Collections.unmodifiableMap(newSnapshot);
+        version++;
+        reloads.incrementAndGet();
+    }
+
+    @Override
+    public void invalidate() {
+        reload();
+        LOGGER.log(Level.INFO, "Application properties reloaded on demand.");
+    }
+
+    @Override
+    public long getReloads() {
+        return reloads.get();
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException jme) {
+            LOGGER.log(Level.WARNING, "The cache of application properties cannot be managed.", jme);
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException jme) {
+            LOGGER.log(Level.INFO, jme.getMessage(), jme);
+        }
+    }
+}
@@ -21,9 +21,13 @@
 package org.cejug.yougi.business;
 
 import org.cejug.yougi.entity.Authentication;
+import org.cejug.yougi.entity.Properties;
 import org.cejug.yougi.entity.UserAccount;
 import org.cejug.yougi.exception.BusinessLogicException;
+import org.cejug.yougi.util.PasswordHash;
+import org.cejug.yougi.util.PasswordVerifier;
 
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -43,6 +47,9 @@ public class AuthenticationBean {
     @PersistenceContext
     private EntityManager em;
 
+    @EJB
+    private ApplicationPropertyBean applicationPropertyBean;
+
     /**
      * @param userAccount the user who has authentication credentials registered.
      * @return the user's authentication data.
@@ -74,27 +81,32 @@ public class AuthenticationBean {
     }
 
     /**
-     * Compares the informed password with the one stored in the database.
+     * Compares the informed password with the one stored in the database. The
+     * comparison runs on the pool of password verifiers. If the password
+     * matches a hash in the legacy format or with a cost different from the
+     * current one, it is hashed again with the current cost.
      * @param userAccount the user account that has authentication credentials.
      * @param passwordToCheck the password to be compared with the one in the database.
      * @return true if the password matches.
      */
     public Boolean passwordMatches(UserAccount userAccount, String passwordToCheck) {
-        try {
-            Authentication authentication = new Authentication();
-            authentication = (Authentication) em.createQuery("select a from Authentication a where a.userAccount = :userAccount and a.password = :password")
-                                                .setParameter("userAccount", userAccount)
-                                                .setParameter("password", authentication.hashPassword(passwordToCheck))
-                                                .getSingleResult();
-            if(authentication != null) {
-                return Boolean.TRUE;
-            }
-        } catch(NoResultException nre) {
-            LOGGER.log(Level.INFO, nre.getMessage(), nre);
+        Authentication authentication = findByUserAccount(userAccount);
+        if(authentication == null || !PasswordVerifier.INSTANCE.matches(passwordToCheck, authentication.getPassword())) {
             return Boolean.FALSE;
         }
 
-        return Boolean.FALSE;
+        int iterations = getHashIterations();
+        if(PasswordHash.INSTANCE.needsRehash(authentication.getPassword(), iterations)) {
+            authentication.setPassword(passwordToCheck, iterations);
+        }
+        return Boolean.TRUE;
+    }
+
+    /**
+     * @return the number of iterations used to hash new passwords.
+     */
+    public int getHashIterations() {
+        return Math.max(applicationPropertyBean.getIntegerPropertyValue(Properties.PASSWORD_HASH_ITERATIONS), 1);
     }
 
     /**
@@ -109,7 +121,7 @@ public class AuthenticationBean {
                                             .setParameter("userAccount", userAccount)
                                             .getSingleResult();
             if(authentication != null) {
-                authentication.setPassword(newPassword);
+                authentication.setPassword(newPassword, getHashIterations());
             }
         } catch(NoResultException nre) {
             throw new BusinessLogicException("User account not found. It is not possible to change the password.", nre);
@@ -24,6 +24,7 @@ import org.cejug.yougi.entity.City;
 import org.cejug.yougi.entity.Country;
 import org.cejug.yougi.entity.Province;
 
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -39,6 +40,9 @@ public class CityBean extends AbstractBean<City> {
     @PersistenceContext
     private EntityManager em;
 
+    @EJB
+    private ReportCacheBean reportCacheBean;
+
     public CityBean() {
         super(City.class);
     }
@@ -48,6 +52,19 @@ public class CityBean extends AbstractBean<City> {
         return em;
     }
 
+    @Override
+    public City save(City city) {
+        City savedCity = super.save(city);
+        reportCacheBean.invalidate(ReportCacheBean.MEMBERS_MAP);
+        return savedCity;
+    }
+
+    @Override
+    public void remove(String id) {
+        super.remove(id);
+        reportCacheBean.invalidate(ReportCacheBean.MEMBERS_MAP);
+    }
+
     public List<City> findAll() {
         return em.createQuery("select c from City c order by c.country.name, c.name asc",City.class)
                  .getResultList();
@@ -0,0 +1,149 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.CommunicationPrivacyStats;
+import org.cejug.yougi.entity.UserAccount;
+
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.cejug.yougi.entity.CommunicationPrivacyStats.*;
+
+/**
+ * Keeps the number of active members who accept each kind of communication.
+ * Every change in the preferences of a member is applied to the totals as a
+ * difference, in the same transaction of the change. All totals are counted
+ * again every night, to fix any change that escaped.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Stateless
+public class CommunicationPrivacyBean {
+
+    private static final Logger LOGGER = Logger.getLogger(CommunicationPrivacyBean.class.getSimpleName());
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @EJB
+    private ReportCacheBean reportCacheBean;
+
+    /**
+     * @return the current totals. They are counted if they were never
+     * counted before.
+     */
+    public CommunicationPrivacyStats findStats() {
+        CommunicationPrivacyStats stats = em.find(CommunicationPrivacyStats.class, SINGLE_ROW);
+        if(stats == null) {
+            stats = count();
+            em.persist(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Counts all totals in a single query, without loading the members.
+     */
+    public CommunicationPrivacyStats count() {
+        Object[] totals = (Object[]) em.createQuery("select count(ua), " +
+                                                   "sum(case when ua.publicProfile = true then 1 else 0 end), " +
+                                                   "sum(case when ua.mailingList = true then 1 else 0 end), " +
+                                                   "sum(case when ua.news = true then 1 else 0 end), " +
+                                                   "sum(case when ua.generalOffer = true then 1 else 0 end), " +
+                                                   "sum(case when ua.jobOffer = true then 1 else 0 end), " +
+                                                   "sum(case when ua.event = true then 1 else 0 end), " +
+                                                   "sum(case when ua.sponsor = true then 1 else 0 end), " +
+                                                   "sum(case when ua.speaker = true then 1 else 0 end) " +
+                                                   "from UserAccount ua where ua.deactivated = false and ua.confirmationCode is null")
+                                       .getSingleResult();
+        return new CommunicationPrivacyStats(toLong(totals[0]), toLong(totals[1]), toLong(totals[2]), toLong(totals[3]),
+                                             toLong(totals[4]), toLong(totals[5]), toLong(totals[6]), toLong(totals[7]),
+                                             toLong(totals[8]));
+    }
+
+    @Schedule(hour = "3", persistent = false)
+    public void recount() {
+        CommunicationPrivacyStats counted = count();
+        CommunicationPrivacyStats stats = em.find(CommunicationPrivacyStats.class, SINGLE_ROW);
+        if(stats == null) {
+            em.persist(counted);
+        } else {
+            stats.copy(counted);
+        }
+        reportCacheBean.invalidate(ReportCacheBean.COMMUNICATION_PRIVACY);
+        LOGGER.log(Level.INFO, "Communication privacy stats counted again: {0} active members.", counted.getTotal());
+    }
+
+    /**
+     * Applies the changes in the preferences of the member since it was
+     * loaded, or since the last call, to the totals.
+     */
+    public void changed(UserAccount userAccount) {
+        int flags = flagsOf(userAccount);
+        apply(userAccount.getStoredPrivacyFlags(), flags);
+        userAccount.setStoredPrivacyFlags(flags);
+    }
+
+    /**
+     * Removes the member from the totals, before removing the member itself.
+     */
+    public void removed(UserAccount userAccount) {
+        apply(userAccount.getStoredPrivacyFlags(), 0);
+        userAccount.setStoredPrivacyFlags(0);
+    }
+
+    /**
+     * Updates the totals in the database, adding the differences to the
+     * current values, so concurrent changes are never lost.
+     */
+    private void apply(int flagsBefore, int flagsAfter) {
+        if(flagsBefore == flagsAfter) {
+            return;
+        }
+        em.createQuery("update CommunicationPrivacyStats s set s.total = s.total + :total, " +
+                       "s.publicProfile = s.publicProfile + :publicProfile, s.mailingList = s.mailingList + :mailingList, " +
+                       "s.news = s.news + :news, s.generalOffer = s.generalOffer + :generalOffer, " +
+                       "s.jobOffer = s.jobOffer + :jobOffer, s.event = s.event + :event, " +
+                       "s.sponsor = s.sponsor + :sponsor, s.speaker = s.speaker + :speaker where s.id = :id")
+          .setParameter("total", (long) difference(flagsBefore, flagsAfter, ACTIVE))
+          .setParameter("publicProfile", (long) difference(flagsBefore, flagsAfter, PUBLIC_PROFILE))
+          .setParameter("mailingList", (long) difference(flagsBefore, flagsAfter, MAILING_LIST))
+          .setParameter("news", (long) difference(flagsBefore, flagsAfter, NEWS))
+          .setParameter("generalOffer", (long) difference(flagsBefore, flagsAfter, GENERAL_OFFER))
+          .setParameter("jobOffer", (long) difference(flagsBefore, flagsAfter, JOB_OFFER))
+          .setParameter("event", (long) difference(flagsBefore, flagsAfter, EVENT))
+          .setParameter("sponsor", (long) difference(flagsBefore, flagsAfter, SPONSOR))
+          .setParameter("speaker", (long) difference(flagsBefore, flagsAfter, SPEAKER))
+          .setParameter("id", SINGLE_ROW)
+          .executeUpdate();
+        reportCacheBean.invalidate(ReportCacheBean.COMMUNICATION_PRIVACY);
+    }
+
+    private long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -0,0 +1,371 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.MessageHistory;
+import org.cejug.yougi.entity.Properties;
+import org.cejug.yougi.util.MailRateLimiter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.DependsOn;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Outbound queue of email messages. The queue is persistent because every
+ * queued message is a historical message not sent yet. This bean keeps the
+ * ids of those messages in memory and delivers them using a bounded pool of
+ * sender workers, so the threads serving users never wait for the mail server.
+ * Messages refused by the mail server are queued again when their next attempt
+ * is due. The delivery rate is limited globally and by recipient domain, and
+ * messages over the limit are deferred in memory until they can be sent. A
+ * message is never queued twice while it is deferred or being delivered, and
+ * each delivery claims its message in the database before sending it.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@Startup
+@DependsOn("ApplicationPropertyCacheBean")
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MailQueueBean implements MailQueueMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger(MailQueueBean.class.getSimpleName());
+
+    private static final String OBJECT_NAME = "org.cejug.yougi:type=MailQueue";
+
+    private static final int RETRY_BATCH_SIZE = 100;
+
+    @EJB
+    private MessengerBean messengerBean;
+
+    @EJB
+    private MessageHistoryBean messageHistoryBean;
+
+    @EJB
+    private ApplicationPropertyBean applicationPropertyBean;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    private ThreadPoolExecutor senders;
+
+    private ScheduledThreadPoolExecutor deferrals;
+
+    private MailRateLimiter rateLimiter;
+
+    /**
+     * Ids of the messages waiting in the queue, deferred or being delivered.
+     * A message found again by the retry scan while it is still here is not
+     * queued twice.
+     */
+    private final Set<String> queuedMessages = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong failedMessages = new AtomicLong();
+    private final AtomicLong totalSendLatency = new AtomicLong();
+    private final AtomicLong maxSendLatency = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        int workers = Math.max(applicationPropertyBean.getIntegerPropertyValue(Properties.MAIL_SENDER_WORKERS), 1);
+        senders = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                                         new LinkedBlockingQueue<Runnable>(), threadFactory);
+        deferrals = new ScheduledThreadPoolExecutor(1, threadFactory);
+        rateLimiter = new MailRateLimiter(applicationPropertyBean.getIntegerPropertyValue(Properties.MAIL_RATE_LIMIT),
+                                          applicationPropertyBean.getIntegerPropertyValue(Properties.MAIL_DOMAIN_RATE_LIMIT));
+        registerMBean();
+        LOGGER.log(Level.INFO, "Mail queue started with {0} workers.", workers);
+    }
+
+    @PreDestroy
+    public void stop() {
+        unregisterMBean();
+        deferrals.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Queues historical messages for delivery. If there is an active
+     * transaction, the messages are handed to the sender workers only after it
+     * commits, otherwise the workers could look for messages not persisted yet.
+     * @param messagesHistory the persisted messages waiting to be sent.
+     */
+    public void enqueue(List<MessageHistory> messagesHistory) {
+        if(messagesHistory.isEmpty()) {
+            return;
+        }
+
+        final List<Delivery> deliveries = createDeliveries(messagesHistory);
+        if(transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            submit(deliveries);
+            return;
+        }
+
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if(status == Status.STATUS_COMMITTED) {
+                    submit(deliveries);
+                }
+            }
+        });
+    }
+
+    /**
+     * Queues again the messages that were not delivered yet and whose next
+     * attempt is due, including the ones queued before the last shutdown. The
+     * pending messages are read in small batches, each one in a short
+     * transaction of its own.
+     */
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void retryUnsentMessages() {
+        long retryDelay = messengerBean.getRetryDelay();
+        String lastId = "";
+        int retried = 0;
+        List<MessageHistory> batch;
+        do {
+            Date lease = new Date(System.currentTimeMillis() + retryDelay);
+            batch = messageHistoryBean.claimMessagesToRetry(lastId, lease, RETRY_BATCH_SIZE);
+            if(!batch.isEmpty()) {
+                submit(createDeliveries(batch));
+                lastId = batch.get(batch.size() - 1).getId();
+                retried += batch.size();
+            }
+        } while(batch.size() == RETRY_BATCH_SIZE);
+
+        if(retried > 0) {
+            LOGGER.log(Level.INFO, "{0} unsent messages queued for a new attempt.", retried);
+        }
+    }
+
+    @Schedule(hour = "*", minute = "*/5", persistent = false)
+    public void evictIdleRateLimits() {
+        int evicted = rateLimiter.evictIdleBuckets();
+        if(evicted > 0) {
+            LOGGER.log(Level.FINE, "{0} idle domain rate limits discarded.", evicted);
+        }
+    }
+
+    private List<Delivery> createDeliveries(List<MessageHistory> messagesHistory) {
+        List<Delivery> deliveries = new ArrayList<>(messagesHistory.size());
+        for(MessageHistory messageHistory: messagesHistory) {
+            deliveries.add(new Delivery(messageHistory.getId(), messageHistory.getDeliveryAttempts(),
+                                        messageHistory.getRecipient().getPostingEmail()));
+        }
+        return deliveries;
+    }
+
+    private void submit(List<Delivery> deliveries) {
+        for(Delivery delivery: deliveries) {
+            if(queuedMessages.add(delivery.messageHistoryId)) {
+                senders.execute(delivery);
+            }
+        }
+    }
+
+    /**
+     * Submits the delivery again after the informed delay. A random fraction
+     * of the delay is added, so messages deferred together don't compete
+     * again for the same tokens. The next attempt of the message is moved
+     * past the deferral, plus the usual retry delay to complete it, so the
+     * retry scan doesn't find the message while it waits in memory.
+     */
+    private void defer(final Delivery delivery, long delay) {
+        long jitter = ThreadLocalRandom.current().nextLong(delay + 1);
+        Date lease = new Date(System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(delay + jitter) + messengerBean.getRetryDelay());
+        try {
+            messageHistoryBean.postponeDelivery(delivery.messageHistoryId, lease);
+        } catch (RuntimeException re) {
+            LOGGER.log(Level.WARNING, "The next attempt of the deferred message "+ delivery.messageHistoryId +" was not postponed.", re);
+        }
+        deferrals.schedule(new Runnable() {
+            @Override
+            public void run() {
+                senders.execute(delivery);
+            }
+        }, delay + jitter, TimeUnit.NANOSECONDS);
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException jme) {
+            LOGGER.log(Level.WARNING, "Mail queue metrics are not available.", jme);
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException jme) {
+            LOGGER.log(Level.INFO, jme.getMessage(), jme);
+        }
+    }
+
+    private void recordDelivery(boolean sent, long latency) {
+        if(sent) {
+            sentMessages.incrementAndGet();
+        } else {
+            failedMessages.incrementAndGet();
+        }
+        totalSendLatency.addAndGet(latency);
+
+        long max = maxSendLatency.get();
+        while(latency > max && !maxSendLatency.compareAndSet(max, latency)) {
+            max = maxSendLatency.get();
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return senders.getQueue().size();
+    }
+
+    @Override
+    public int getActiveWorkers() {
+        return senders.getActiveCount();
+    }
+
+    @Override
+    public int getWorkers() {
+        return senders.getMaximumPoolSize();
+    }
+
+    @Override
+    public long getSentMessages() {
+        return sentMessages.get();
+    }
+
+    @Override
+    public long getFailedMessages() {
+        return failedMessages.get();
+    }
+
+    @Override
+    public int getDeferredMessages() {
+        return deferrals.getQueue().size();
+    }
+
+    @Override
+    public long getThrottledMessages() {
+        return rateLimiter.getThrottledMessages();
+    }
+
+    @Override
+    public double getAverageSendLatency() {
+        long deliveries = sentMessages.get() + failedMessages.get();
+        if(deliveries == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(totalSendLatency.get()) / (double) deliveries;
+    }
+
+    @Override
+    public long getMaxSendLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(maxSendLatency.get());
+    }
+
+    /**
+     * Delivers a single message. The delivery runs in its own transaction,
+     * started by the messenger, so its status is committed right after the
+     * message is sent. If the rate limit is reached, the delivery is deferred
+     * and the message stays in the queue.
+     */
+    private class Delivery implements Runnable {
+
+        private final String messageHistoryId;
+        private final int deliveryAttempts;
+        private final String recipient;
+
+        Delivery(String messageHistoryId, int deliveryAttempts, String recipient) {
+            this.messageHistoryId = messageHistoryId;
+            this.deliveryAttempts = deliveryAttempts;
+            this.recipient = recipient;
+        }
+
+        @Override
+        public void run() {
+            long wait = rateLimiter.acquire(recipient);
+            if(wait > 0) {
+                defer(this, wait);
+                return;
+            }
+
+            long start = System.nanoTime();
+            boolean sent = false;
+            try {
+                sent = messengerBean.deliver(messageHistoryId, deliveryAttempts);
+            } catch (RuntimeException re) {
+                LOGGER.log(Level.SEVERE, "Unexpected error when delivering the message "+ messageHistoryId, re);
+            } finally {
+                queuedMessages.remove(messageHistoryId);
+                recordDelivery(sent, System.nanoTime() - start);
+            }
+        }
+    }
+}
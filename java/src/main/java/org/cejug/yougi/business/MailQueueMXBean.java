@@ -0,0 +1,69 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+/**
+ * Management interface of the outbound mail queue, published in the platform
+ * MBean server under the name org.cejug.yougi:type=MailQueue.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public interface MailQueueMXBean {
+
+    /**
+     * @return the number of messages waiting for a free sender worker.
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the number of sender workers currently delivering a message.
+     */
+    int getActiveWorkers();
+
+    /**
+     * @return the maximum number of sender workers.
+     */
+    int getWorkers();
+
+    long getSentMessages();
+
+    long getFailedMessages();
+
+    /**
+     * @return the number of messages waiting because the rate limit was reached.
+     */
+    int getDeferredMessages();
+
+    /**
+     * @return how many times a message was deferred because of the rate limit.
+     */
+    long getThrottledMessages();
+
+    /**
+     * @return the average time, in milliseconds, spent delivering a message.
+     */
+    double getAverageSendLatency();
+
+    /**
+     * @return the longest time, in milliseconds, spent delivering a message.
+     */
+    long getMaxSendLatency();
+}
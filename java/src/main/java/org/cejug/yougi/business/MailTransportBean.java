@@ -0,0 +1,96 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.Properties;
+import org.cejug.yougi.util.TransportPool;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends email messages through a pool of connections to the mail server of
+ * the session java:/mail/yougi. There is one connection for each mail sender
+ * worker, so workers never wait for each other and never repeat the handshake
+ * with the server.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class MailTransportBean {
+
+    private static final Logger LOGGER = Logger.getLogger(MailTransportBean.class.getSimpleName());
+
+    private static final long IDLE_TIMEOUT = 60000;
+
+    @Resource(name = "java:/mail/yougi")
+    private Session mailSession;
+
+    @EJB
+    private ApplicationPropertyBean applicationPropertyBean;
+
+    private TransportPool transportPool;
+
+    @PostConstruct
+    public void open() {
+        int size = applicationPropertyBean.getIntegerPropertyValue(Properties.MAIL_SENDER_WORKERS);
+        transportPool = new TransportPool(mailSession, Math.max(size, 1), IDLE_TIMEOUT);
+    }
+
+    @PreDestroy
+    public void close() {
+        transportPool.close();
+        LOGGER.log(Level.INFO, "Mail connections closed. {0} messages sent through {1} connections.",
+                   new Object[]{transportPool.getMessagesSent(), transportPool.getConnectionsOpened()});
+    }
+
+    public void send(Message message) throws MessagingException {
+        transportPool.send(message);
+    }
+
+    /**
+     * Sends all messages through the same connection.
+     */
+    public void send(List<? extends Message> messages) throws MessagingException {
+        transportPool.send(messages);
+    }
+
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void evictIdleConnections() {
+        int evicted = transportPool.evictIdleTransports();
+        if(evicted > 0) {
+            LOGGER.log(Level.FINE, "{0} idle mail connections closed.", evicted);
+        }
+    }
+}
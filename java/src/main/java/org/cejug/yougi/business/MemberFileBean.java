@@ -0,0 +1,319 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.Gender;
+import org.cejug.yougi.entity.UserAccount;
+import org.cejug.yougi.util.RecordFormat;
+import org.cejug.yougi.util.RecordReader;
+import org.cejug.yougi.util.RecordWriter;
+
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Imports and exports members as CSV or JSON files. Both directions stream
+ * the records: an import reads, validates and inserts members in batches, each
+ * one in a transaction of its own, and an export writes members as they are
+ * read, a batch at a time. Neither keeps the whole list of members in memory.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class MemberFileBean {
+
+    private static final Logger LOGGER = Logger.getLogger(MemberFileBean.class.getSimpleName());
+
+    /**
+     * Fields of the imported and exported files. Only email, firstName,
+     * lastName and gender are required to import.
+     */
+    public static final String[] FIELDS = {"email", "firstName", "lastName", "gender", "website", "twitter",
+                                           "publicProfile", "mailingList", "news", "generalOffer", "jobOffer",
+                                           "event", "sponsor", "speaker", "registrationDate"};
+
+    static final int BATCH_SIZE = 500;
+
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+    private static final String DATE_FORMAT = "yyyy-MM-dd";
+
+    @EJB
+    private UserAccountBean userAccountBean;
+
+    @EJB
+    private CommunicationPrivacyBean communicationPrivacyBean;
+
+    /**
+     * Imports the members of the file. Valid members are inserted in batches,
+     * so a file that fails in the middle keeps the members imported before the
+     * failure.
+     */
+    public MemberImportResult importMembers(InputStream input, RecordFormat format) {
+        MemberImportResult result = new MemberImportResult();
+        Set<String> emails = new HashSet<>();
+        List<UserAccount> batch = new ArrayList<>(BATCH_SIZE);
+        List<Long> lines = new ArrayList<>(BATCH_SIZE);
+        long line = 0;
+        try (RecordReader reader = format.createReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            DateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT);
+            dateFormat.setLenient(false);
+            Map<String, String> record;
+            while((record = reader.read()) != null) {
+                line = reader.getLineNumber();
+                UserAccount userAccount = toUserAccount(record, dateFormat, line, result);
+                if(userAccount == null) {
+                    continue;
+                }
+                if(!emails.add(userAccount.getEmail().toLowerCase())) {
+                    result.reject(line, userAccount.getEmail(), "errorCode0017", null);
+                    continue;
+                }
+                batch.add(userAccount);
+                lines.add(line);
+                if(batch.size() == BATCH_SIZE) {
+                    insert(batch, lines, result);
+                }
+            }
+        } catch (IOException ioe) {
+            LOGGER.log(Level.INFO, "Import of members interrupted after line " + line + ".", ioe);
+            result.reject(line, null, "errorCode0018", ioe.getMessage());
+        } finally {
+            if(!batch.isEmpty()) {
+                insert(batch, lines, result);
+            }
+            if(result.getImported() > 0) {
+                communicationPrivacyBean.recount();
+            }
+        }
+        LOGGER.log(Level.INFO, "Members imported: {0}. Records rejected: {1}.", new Object[]{result.getImported(), result.getRejected()});
+        return result;
+    }
+
+    /**
+     * Validates the record and converts it to a user account.
+     * @return the user account or null if the record is not valid, in which
+     * case the reason is added to the result.
+     */
+    UserAccount toUserAccount(Map<String, String> record, DateFormat dateFormat, long line, MemberImportResult result) {
+        String email = value(record, "email");
+        if(email == null) {
+            result.reject(line, null, "errorCode0015", "email");
+            return null;
+        }
+        if(email.length() > 100 || !EMAIL.matcher(email).matches()) {
+            result.reject(line, email, "errorCode0010", null);
+            return null;
+        }
+
+        UserAccount userAccount = new UserAccount();
+        userAccount.setUnverifiedEmail(email);
+        userAccount.setEmailAsVerified();
+        userAccount.setVerified(Boolean.TRUE);
+
+        String firstName = value(record, "firstName");
+        String lastName = value(record, "lastName");
+        String gender = value(record, "gender");
+        for(String[] required: new String[][] {{"firstName", firstName}, {"lastName", lastName}, {"gender", gender}}) {
+            if(required[1] == null) {
+                result.reject(line, email, "errorCode0015", required[0]);
+                return null;
+            }
+        }
+        if(firstName.length() > 50 || lastName.length() > 50) {
+            result.reject(line, email, "errorCode0016", firstName.length() > 50 ? "firstName" : "lastName");
+            return null;
+        }
+        userAccount.setFirstName(firstName);
+        userAccount.setLastName(lastName);
+
+        Gender parsedGender = toGender(gender);
+        if(parsedGender == null) {
+            result.reject(line, email, "errorCode0016", "gender");
+            return null;
+        }
+        userAccount.setGender(parsedGender);
+
+        userAccount.setWebsite(value(record, "website"));
+        if(userAccount.getWebsite() != null && userAccount.getWebsite().length() > 100) {
+            result.reject(line, email, "errorCode0016", "website");
+            return null;
+        }
+        userAccount.setTwitter(value(record, "twitter"));
+        if(userAccount.getTwitter() != null && userAccount.getTwitter().length() > 30) {
+            result.reject(line, email, "errorCode0016", "twitter");
+            return null;
+        }
+
+        String[] preferences = {"publicProfile", "mailingList", "news", "generalOffer", "jobOffer", "event", "sponsor", "speaker"};
+        Boolean[] values = new Boolean[preferences.length];
+        for(int i = 0; i < preferences.length; i++) {
+            values[i] = toBoolean(value(record, preferences[i]));
+            if(values[i] == null) {
+                result.reject(line, email, "errorCode0016", preferences[i]);
+                return null;
+            }
+        }
+        userAccount.setPublicProfile(values[0]);
+        userAccount.setMailingList(values[1]);
+        userAccount.setNews(values[2]);
+        userAccount.setGeneralOffer(values[3]);
+        userAccount.setJobOffer(values[4]);
+        userAccount.setEvent(values[5]);
+        userAccount.setSponsor(values[6]);
+        userAccount.setSpeaker(values[7]);
+
+        String registrationDate = value(record, "registrationDate");
+        if(registrationDate == null) {
+            userAccount.setRegistrationDate(new Date());
+        } else {
+            try {
+                userAccount.setRegistrationDate(dateFormat.parse(registrationDate));
+            } catch (ParseException pe) {
+                result.reject(line, email, "errorCode0016", "registrationDate");
+                return null;
+            }
+        }
+        return userAccount;
+    }
+
+    private void insert(List<UserAccount> batch, List<Long> lines, MemberImportResult result) {
+        try {
+            Set<String> existingEmails = userAccountBean.importMembers(batch);
+            for(int i = 0; i < batch.size(); i++) {
+                String email = batch.get(i).getEmail();
+                if(existingEmails.contains(email.toLowerCase())) {
+                    result.reject(lines.get(i), email, "errorCode0004", null);
+                }
+            }
+            result.imported(batch.size() - existingEmails.size());
+        } catch (EJBException ee) {
+            LOGGER.log(Level.WARNING, "A batch of imported members could not be saved.", ee);
+            String cause = ee.getCause() != null ? ee.getCause().getMessage() : ee.getMessage();
+            for(int i = 0; i < batch.size(); i++) {
+                result.reject(lines.get(i), batch.get(i).getEmail(), "errorCode0019", cause);
+            }
+        }
+        batch.clear();
+        lines.clear();
+    }
+
+    /**
+     * Writes all active members to the writer, reading them a batch at a time.
+     * @return the number of exported members.
+     */
+    public long exportMembers(Writer writer, RecordFormat format) throws IOException {
+        DateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT);
+        long exported = 0;
+        RecordWriter recordWriter = format.createWriter(writer, FIELDS);
+        String lastId = "";
+        List<Object[]> members;
+        do {
+            members = userAccountBean.findMembersToExport(lastId, BATCH_SIZE);
+            for(Object[] member: members) {
+                lastId = (String) member[0];
+                String[] values = new String[FIELDS.length];
+                for(int i = 0; i < values.length; i++) {
+                    Object value = member[i + 1];
+                    if(value instanceof Date) {
+                        values[i] = dateFormat.format((Date) value);
+                    } else if(value instanceof Gender) {
+                        values[i] = value == Gender.FEMALE ? "F" : "M";
+                    } else if(value != null) {
+                        values[i] = value.toString();
+                    }
+                }
+                recordWriter.write(values);
+            }
+            exported += members.size();
+            recordWriter.flush();
+        } while(members.size() == BATCH_SIZE);
+        recordWriter.close();
+        return exported;
+    }
+
+    /**
+     * @return the trimmed value of the field, or null if it is missing or
+     * blank.
+     */
+    private String value(Map<String, String> record, String field) {
+        String value = record.get(field);
+        if(value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private Gender toGender(String value) {
+        switch(value.toUpperCase()) {
+            case "F":
+            case "FEMALE":
+                return Gender.FEMALE;
+            case "M":
+            case "MALE":
+                return Gender.MALE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return false if there is no value, or null if the value is not valid.
+     */
+    private Boolean toBoolean(String value) {
+        if(value == null) {
+            return Boolean.FALSE;
+        }
+        switch(value.toLowerCase()) {
+            case "true":
+            case "yes":
+            case "1":
+                return Boolean.TRUE;
+            case "false":
+            case "no":
+            case "0":
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of an import of members: how many were imported and why the others
+ * were rejected. Only the first rejections are kept, to limit the memory used
+ * by files full of errors.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class MemberImportResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int MAX_REJECTIONS = 1000;
+
+    private long imported;
+    private long rejected;
+    private final List<Rejection> rejections = new ArrayList<>();
+
+    /**
+     * A record that was not imported.
+     */
+    public static class Rejection implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long line;
+        private final String email;
+        private final String errorCode;
+        private final String detail;
+
+        public Rejection(long line, String email, String errorCode, String detail) {
+            this.line = line;
+            this.email = email;
+            this.errorCode = errorCode;
+            this.detail = detail;
+        }
+
+        /**
+         * @return the line of the file where the record starts.
+         */
+        public long getLine() {
+            return line;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        /**
+         * @return the key of the error message in the resource bundle.
+         */
+        public String getErrorCode() {
+            return errorCode;
+        }
+
+        /**
+         * @return the parameter of the error message, such as the name of the
+         * invalid field, or null if the message has none.
+         */
+        public String getDetail() {
+            return detail;
+        }
+    }
+
+    void imported(long members) {
+        imported += members;
+    }
+
+    void reject(long line, String email, String errorCode, String detail) {
+        rejected++;
+        if(rejections.size() < MAX_REJECTIONS) {
+            rejections.add(new Rejection(line, email, errorCode, detail));
+        }
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return the first rejections, ordered by line.
+     */
+    public List<Rejection> getRejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+}
@@ -0,0 +1,224 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.UserAccount;
+import org.cejug.yougi.util.MemberSearchIndex;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Searches members by name, email and website in memory, instead of querying
+ * the database with patterns that can't use indexes. The index is built at
+ * startup with all members not deactivated and updated when they are saved,
+ * after the transaction commits. Since other nodes of a cluster don't see
+ * local changes, the index is also rebuilt every hour.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class MemberSearchBean {
+
+    private static final Logger LOGGER = Logger.getLogger(MemberSearchBean.class.getSimpleName());
+
+    private static final int PAGE_SIZE = 1000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    private volatile MemberSearchIndex index = new MemberSearchIndex();
+
+    /**
+     * Changes committed while the index is rebuilt, which are replayed on the
+     * new index before it replaces the current one. Null when no rebuild is
+     * running. Guarded by this bean.
+     */
+    private List<IndexChange> pendingChanges;
+
+    @PostConstruct
+    public void start() {
+        rebuild();
+    }
+
+    /**
+     * Builds a new index reading members page by page and replaces the
+     * current one, which keeps answering searches in the meantime. Changes
+     * committed during the rebuild may be missing from the pages already read,
+     * so they are kept and applied to the new index before the replacement.
+     */
+    @Schedule(hour = "*", minute = "30", persistent = false)
+    public void rebuild() {
+        synchronized (this) {
+            if (pendingChanges != null) {
+                LOGGER.log(Level.INFO, "The search index is already being rebuilt.");
+                return;
+            }
+            pendingChanges = new ArrayList<>();
+        }
+
+        try {
+            replace(buildIndex());
+        } finally {
+            synchronized (this) {
+                pendingChanges = null;
+            }
+        }
+    }
+
+    private MemberSearchIndex buildIndex() {
+        long start = System.nanoTime();
+        MemberSearchIndex newIndex = new MemberSearchIndex();
+        String lastId = "";
+        List<Object[]> members;
+        do {
+            members = em.createQuery("select ua.id, ua.firstName, ua.lastName, ua.email, ua.unverifiedEmail, ua.website from UserAccount ua where ua.deactivated = false and ua.id > :lastId order by ua.id", Object[].class)
+                        .setParameter("lastId", lastId)
+                        .setMaxResults(PAGE_SIZE)
+                        .getResultList();
+            for (Object[] member : members) {
+                lastId = (String) member[0];
+                String email = member[3] != null ? (String) member[3] : (String) member[4];
+                newIndex.put(lastId, (String) member[1], (String) member[2], email, (String) member[5]);
+            }
+        } while (members.size() == PAGE_SIZE);
+        LOGGER.log(Level.INFO, "{0} members indexed for search in {1} ms.", new Object[]{newIndex.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+        return newIndex;
+    }
+
+    private synchronized void replace(MemberSearchIndex newIndex) {
+        for (IndexChange change : pendingChanges) {
+            change.applyTo(newIndex);
+        }
+        this.index = newIndex;
+    }
+
+    /**
+     * @param query words or beginning of words of the name, email or website.
+     * @return members matching all words, ordered by name.
+     */
+    public List<UserAccount> search(String query, int maxResults) {
+        List<String> ids = index.search(query, maxResults);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return em.createQuery("select ua from UserAccount ua where ua.id in :ids order by ua.firstName, ua.id", UserAccount.class)
+                 .setParameter("ids", ids)
+                 .getResultList();
+    }
+
+    /**
+     * Updates the index with the current state of the user account. A
+     * deactivated account is removed from the index. If there is an active
+     * transaction, the index changes only after it commits.
+     */
+    public void update(UserAccount userAccount) {
+        final String id = userAccount.getId();
+        final boolean deactivated = Boolean.TRUE.equals(userAccount.getDeactivated());
+        final String firstName = userAccount.getFirstName();
+        final String lastName = userAccount.getLastName();
+        final String email = userAccount.getPostingEmail();
+        final String website = userAccount.getWebsite();
+
+        afterCommit(new IndexChange() {
+            @Override
+            void applyTo(MemberSearchIndex index) {
+                if (deactivated) {
+                    index.remove(id);
+                } else {
+                    index.put(id, firstName, lastName, email, website);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes the user account from the index. If there is an active
+     * transaction, it is removed only after the transaction commits.
+     */
+    public void remove(final String userAccountId) {
+        afterCommit(new IndexChange() {
+            @Override
+            void applyTo(MemberSearchIndex index) {
+                index.remove(userAccountId);
+            }
+        });
+    }
+
+    private void afterCommit(final IndexChange change) {
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            apply(change);
+            return;
+        }
+
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    apply(change);
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies the change to the current index and keeps it for the index being
+     * rebuilt, if any.
+     */
+    private synchronized void apply(IndexChange change) {
+        change.applyTo(index);
+        if (pendingChanges != null) {
+            pendingChanges.add(change);
+        }
+    }
+
+    private abstract static class IndexChange {
+
+        abstract void applyTo(MemberSearchIndex index);
+    }
+}
@@ -0,0 +1,200 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.MembershipMonthlyStats;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Schedule;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fills the monthly membership stats from the user accounts. It runs at the
+ * startup when there are no stats yet and on demand, through JMX, to fix
+ * them. Members are read in batches of a few columns, so the backfill never
+ * loads the user accounts. It also opens each new month at its beginning,
+ * carrying the total of members of the previous month.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class MembershipBackfillBean implements MembershipBackfillMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger(MembershipBackfillBean.class.getSimpleName());
+
+    private static final String OBJECT_NAME = "org.cejug.yougi:type=MembershipBackfill";
+
+    private static final int BATCH_SIZE = 1000;
+
+    @EJB
+    private MembershipStatsBean membershipStatsBean;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong members = new AtomicLong();
+    private volatile int months;
+    private volatile Date lastBackfill;
+    private volatile long lastDuration;
+
+    @PostConstruct
+    public void start() {
+        registerMBean();
+        if(!membershipStatsBean.hasMonths()) {
+            backfill();
+        } else {
+            openMonth();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        unregisterMBean();
+    }
+
+    @Schedule(dayOfMonth = "1", hour = "0", persistent = false)
+    public void openMonth() {
+        membershipStatsBean.openMonth(MembershipMonthlyStats.periodOf(new Date()));
+    }
+
+    @Override
+    public int backfill() {
+        if(!running.compareAndSet(false, true)) {
+            LOGGER.log(Level.INFO, "The backfill of the membership stats is already running.");
+            return 0;
+        }
+
+        try {
+            long start = System.nanoTime();
+            members.set(0);
+            SortedMap<Integer, long[]> counts = new TreeMap<>();
+            String lastId = "";
+            List<Object[]> batch;
+            do {
+                batch = membershipStatsBean.findMembershipDates(lastId, BATCH_SIZE);
+                for(Object[] member: batch) {
+                    lastId = (String) member[0];
+                    count(counts, (Date) member[1], 0);
+                    if(Boolean.TRUE.equals(member[2]) && member[3] != null) {
+                        count(counts, (Date) member[3], 1);
+                    }
+                }
+                members.addAndGet(batch.size());
+            } while(batch.size() == BATCH_SIZE);
+
+            membershipStatsBean.replaceAll(counts);
+            openMonth();
+
+            months = counts.size();
+            lastDuration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            lastBackfill = new Date();
+            LOGGER.log(Level.INFO, "Membership stats filled with {0} members in {1} months, in {2} ms.", new Object[]{members.get(), months, lastDuration});
+            return months;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * @param column 0 for registrations and 1 for deactivations.
+     */
+    private void count(SortedMap<Integer, long[]> counts, Date date, int column) {
+        Integer period = MembershipMonthlyStats.periodOf(date);
+        long[] month = counts.get(period);
+        if(month == null) {
+            month = new long[2];
+            counts.put(period, month);
+        }
+        month[column]++;
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException jme) {
+            LOGGER.log(Level.WARNING, "Membership backfill metrics are not available.", jme);
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException jme) {
+            LOGGER.log(Level.INFO, jme.getMessage(), jme);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Override
+    public long getMembers() {
+        return members.get();
+    }
+
+    @Override
+    public int getMonths() {
+        return months;
+    }
+
+    @Override
+    public Date getLastBackfill() {
+        return lastBackfill;
+    }
+
+    @Override
+    public long getLastDuration() {
+        return lastDuration;
+    }
+}
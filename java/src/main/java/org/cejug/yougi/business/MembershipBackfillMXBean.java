@@ -0,0 +1,60 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import java.util.Date;
+
+/**
+ * Management interface of the backfill of the monthly membership stats,
+ * published in the platform MBean server under the name
+ * org.cejug.yougi:type=MembershipBackfill.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public interface MembershipBackfillMXBean {
+
+    boolean isRunning();
+
+    /**
+     * @return the number of members read by the running backfill, or by the
+     * last one if there is none running.
+     */
+    long getMembers();
+
+    /**
+     * @return the number of months written by the last backfill.
+     */
+    int getMonths();
+
+    Date getLastBackfill();
+
+    /**
+     * @return the time, in milliseconds, spent by the last backfill.
+     */
+    long getLastDuration();
+
+    /**
+     * Counts all months again from the user accounts, unless there is a
+     * backfill running.
+     * @return the number of months written.
+     */
+    int backfill();
+}
@@ -0,0 +1,222 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.MembershipMonthlyStats;
+
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.SessionContext;
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.cejug.yougi.entity.MembershipMonthlyStats.*;
+
+/**
+ * Maintains the monthly registrations, deactivations and cumulative number of
+ * members, so the growth of the membership is reported for any period
+ * without reading the user accounts.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Stateless
+public class MembershipStatsBean {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @EJB
+    private ReportCacheBean reportCacheBean;
+
+    @Resource
+    private SessionContext sessionContext;
+
+    /**
+     * Counts a member confirmed at the informed date.
+     */
+    public void registered(Date registrationDate) {
+        int period = periodOf(registrationDate);
+        openMonthIfAbsent(period);
+        add(period, 1, 0);
+    }
+
+    /**
+     * Counts members confirmed in several months, like members imported from
+     * another group. All months are opened before any of them is changed,
+     * because a month opened after the update of a more recent one would wait
+     * for the locks held by this same transaction.
+     * @param registrations the number of registrations indexed by month, in
+     * the form yyyymm.
+     */
+    public void registered(Map<Integer, Long> registrations) {
+        for(Integer period: registrations.keySet()) {
+            openMonthIfAbsent(period);
+        }
+        for(Map.Entry<Integer, Long> registration: registrations.entrySet()) {
+            add(registration.getKey(), registration.getValue(), 0);
+        }
+    }
+
+    /**
+     * Counts a member deactivated at the informed date.
+     */
+    public void deactivated(Date deactivationDate) {
+        int period = periodOf(deactivationDate);
+        openMonthIfAbsent(period);
+        add(period, 0, 1);
+    }
+
+    private void openMonthIfAbsent(int period) {
+        if(em.find(MembershipMonthlyStats.class, period) == null) {
+            sessionContext.getBusinessObject(MembershipStatsBean.class).openMonth(period);
+        }
+    }
+
+    /**
+     * Adds registrations and deactivations to the month and the growth to the
+     * cumulative total of the month and of all months after it. The month
+     * must be open already.
+     */
+    private void add(int period, long registrations, long deactivations) {
+        em.createQuery("update MembershipMonthlyStats s set s.registrations = s.registrations + :registrations, " +
+                       "s.deactivations = s.deactivations + :deactivations where s.period = :period")
+          .setParameter("registrations", registrations)
+          .setParameter("deactivations", deactivations)
+          .setParameter("period", period)
+          .executeUpdate();
+        em.createQuery("update MembershipMonthlyStats s set s.total = s.total + :growth where s.period >= :period")
+          .setParameter("growth", registrations - deactivations)
+          .setParameter("period", period)
+          .executeUpdate();
+        reportCacheBean.invalidate(ReportCacheBean.MEMBERSHIP_GROWTH);
+    }
+
+    /**
+     * Creates the month, if it doesn't exist yet, carrying the total of the
+     * last month before it. The month is created in a transaction of its own
+     * and nothing happens if another transaction creates it first, so
+     * concurrent registrations never fail on the primary key. It must be
+     * called before the caller's transaction changes any month, otherwise it
+     * may wait for locks held by that transaction.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void openMonth(int period) {
+        MembershipMonthlyStats previous = findLastMonthBefore(period);
+        int created = em.createNativeQuery("insert into membership_monthly_stats (period, registrations, deactivations, total) values (?1, 0, 0, ?2) " +
+                                           "on duplicate key update period = period")
+                        .setParameter(1, period)
+                        .setParameter(2, previous != null ? previous.getTotal() : 0L)
+                        .executeUpdate();
+        if(created > 0) {
+            reportCacheBean.invalidate(ReportCacheBean.MEMBERSHIP_GROWTH);
+        }
+    }
+
+    public boolean hasMonths() {
+        return !em.createQuery("select s.period from MembershipMonthlyStats s", Integer.class)
+                   .setMaxResults(1)
+                   .getResultList()
+                   .isEmpty();
+    }
+
+    private MembershipMonthlyStats findLastMonthBefore(int period) {
+        List<MembershipMonthlyStats> months = em.createQuery("select s from MembershipMonthlyStats s where s.period < :period order by s.period desc", MembershipMonthlyStats.class)
+                                                .setParameter("period", period)
+                                                .setMaxResults(1)
+                                                .getResultList();
+        return months.isEmpty() ? null : months.get(0);
+    }
+
+    /**
+     * Returns one element for each month of the period, including the months
+     * without registrations or deactivations.
+     * @param from the first month, in the form yyyymm.
+     * @param to the last month, in the form yyyymm.
+     */
+    public List<MembershipMonthlyStats> findMonths(int from, int to) {
+        List<MembershipMonthlyStats> existing = em.createQuery("select s from MembershipMonthlyStats s where s.period >= :from and s.period <= :to order by s.period", MembershipMonthlyStats.class)
+                                                  .setParameter("from", from)
+                                                  .setParameter("to", to)
+                                                  .getResultList();
+
+        MembershipMonthlyStats previous = findLastMonthBefore(from);
+        long total = previous != null ? previous.getTotal() : 0;
+
+        List<MembershipMonthlyStats> months = new ArrayList<>();
+        int i = 0;
+        for(int period = from; period <= to; period = nextPeriod(period)) {
+            MembershipMonthlyStats month;
+            if(i < existing.size() && existing.get(i).getPeriod() == period) {
+                month = existing.get(i++);
+            } else {
+                month = new MembershipMonthlyStats(period);
+                month.setTotal(total);
+            }
+            total = month.getTotal();
+            months.add(month);
+        }
+        return months;
+    }
+
+    /**
+     * Returns a batch of members who confirmed their registration, ordered by
+     * id.
+     * @param lastId the id of the last member of the previous batch, or an
+     * empty string to read the first one.
+     * @return arrays with the id, the registration date, whether the member is
+     * deactivated and the deactivation date.
+     */
+    public List<Object[]> findMembershipDates(String lastId, int maxResults) {
+        return em.createQuery("select ua.id, ua.registrationDate, ua.deactivated, ua.deactivationDate from UserAccount ua where ua.email is not null and ua.registrationDate is not null and ua.id > :lastId order by ua.id", Object[].class)
+                 .setParameter("lastId", lastId)
+                 .setMaxResults(maxResults)
+                 .getResultList();
+    }
+
+    /**
+     * Replaces all months by the informed registrations and deactivations,
+     * calculating the cumulative totals.
+     * @param months registrations and deactivations indexed by period.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void replaceAll(SortedMap<Integer, long[]> months) {
+        em.createQuery("delete from MembershipMonthlyStats s").executeUpdate();
+
+        long total = 0;
+        for(Map.Entry<Integer, long[]> entry: months.entrySet()) {
+            MembershipMonthlyStats month = new MembershipMonthlyStats(entry.getKey());
+            month.setRegistrations(entry.getValue()[0]);
+            month.setDeactivations(entry.getValue()[1]);
+            total += month.getGrowth();
+            month.setTotal(total);
+            em.persist(month);
+        }
+        reportCacheBean.invalidate(ReportCacheBean.MEMBERSHIP_GROWTH);
+    }
+}
@@ -20,13 +20,26 @@
  * */
 package org.cejug.yougi.business;
 
+import org.cejug.yougi.entity.EntitySupport;
+import org.cejug.yougi.entity.MessageBody;
 import org.cejug.yougi.entity.MessageHistory;
 import org.cejug.yougi.entity.UserAccount;
 
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * @author Hildeberto Mendonca - http://www.hildeberto.com
@@ -34,6 +47,13 @@ import java.util.List;
 @Stateless
 public class MessageHistoryBean extends AbstractBean<MessageHistory> {
 
+    private static final Logger LOGGER = Logger.getLogger(MessageHistoryBean.class.getSimpleName());
+
+    private static final String BATCH_SIZE_PROPERTY = "hibernate.jdbc.batch_size";
+
+    // Used when the persistence unit doesn't define the size of JDBC batches.
+    private static final int DEFAULT_BATCH_SIZE = 50;
+
     @PersistenceContext
     private EntityManager em;
 
@@ -46,9 +66,250 @@ public class MessageHistoryBean extends AbstractBean<MessageHistory> {
         return em;
     }
 
-    public List<MessageHistory> findByRecipient(UserAccount recipient) {
-    	return em.createQuery("select hm from MessageHistory hm where hm.recipient = :userAccount order by hm.dateSent desc", MessageHistory.class)
-                 .setParameter("userAccount", recipient)
-                 .getResultList();
+    /**
+     * Inserts many new historical messages, sending the inserts to the database
+     * in JDBC batches of the size defined by the persistence unit.
+     * @see #saveAll(java.util.List, int)
+     */
+    public List<String> saveAll(List<MessageHistory> messagesHistory) {
+        return saveAll(messagesHistory, getBatchSize());
+    }
+
+    /**
+     * Inserts many new historical messages. The persistence context is flushed
+     * after each batch of messages, so the JDBC driver sends the inserts of the
+     * batch together, and the flushed messages are detached to keep the
+     * persistence context small. Other entities managed by the current
+     * transaction are not affected.
+     * @param messagesHistory messages not persisted yet.
+     * @param batchSize number of messages inserted at once. It should be equal
+     * to the property hibernate.jdbc.batch_size of the persistence unit.
+     * @return the ids of the inserted messages, in the same order.
+     */
+    public List<String> saveAll(List<MessageHistory> messagesHistory, int batchSize) {
+        EntityManager entityManager = getEntityManager();
+        List<String> ids = new ArrayList<>(messagesHistory.size());
+        List<MessageHistory> batch = new ArrayList<>(batchSize);
+        Map<String, MessageBody> messageBodies = new HashMap<>();
+        for(MessageHistory messageHistory: messagesHistory) {
+            messageHistory.setMessageBody(saveMessageBody(messageHistory.getMessageBody(), messageBodies));
+            messageHistory.setId(EntitySupport.INSTANCE.generateEntityId());
+            entityManager.persist(messageHistory);
+            ids.add(messageHistory.getId());
+            batch.add(messageHistory);
+
+            if(batch.size() == batchSize) {
+                flush(entityManager, batch);
+            }
+        }
+
+        if(!batch.isEmpty()) {
+            flush(entityManager, batch);
+        }
+        return ids;
+    }
+
+    @Override
+    public MessageHistory save(MessageHistory messageHistory) {
+        messageHistory.setMessageBody(saveMessageBody(messageHistory.getMessageBody(), new HashMap<String, MessageBody>()));
+        return super.save(messageHistory);
+    }
+
+    /**
+     * Stores the message body if there is no equal content stored yet. The
+     * insert ignores a body with the same id, so concurrent transactions
+     * storing the same content don't fail on the primary key.
+     * @param messageBodies the message bodies already stored in the current
+     * transaction, indexed by their ids.
+     * @return the stored message body with the same content.
+     */
+    private MessageBody saveMessageBody(MessageBody messageBody, Map<String, MessageBody> messageBodies) {
+        MessageBody storedMessageBody = messageBodies.get(messageBody.getId());
+        if(storedMessageBody == null) {
+            getEntityManager().createNativeQuery("insert into message_body (id, subject, body) values (?1, ?2, ?3) on duplicate key update id = id")
+                              .setParameter(1, messageBody.getId())
+                              .setParameter(2, messageBody.getSubject())
+                              .setParameter(3, messageBody.getBody())
+                              .executeUpdate();
+            storedMessageBody = getEntityManager().find(MessageBody.class, messageBody.getId());
+            messageBodies.put(storedMessageBody.getId(), storedMessageBody);
+        }
+        return storedMessageBody;
+    }
+
+    private void flush(EntityManager entityManager, List<MessageHistory> batch) {
+        entityManager.flush();
+        for(MessageHistory messageHistory: batch) {
+            entityManager.detach(messageHistory);
+        }
+        batch.clear();
+    }
+
+    private int getBatchSize() {
+        Object batchSize = getEntityManager().getEntityManagerFactory().getProperties().get(BATCH_SIZE_PROPERTY);
+        if(batchSize != null) {
+            try {
+                return Integer.parseInt(batchSize.toString());
+            } catch (NumberFormatException nfe) {
+                LOGGER.log(Level.WARNING, "Invalid value for {0}: {1}", new Object[]{BATCH_SIZE_PROPERTY, batchSize});
+            }
+        }
+        return DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Finds a page of the messages sent to a recipient, from the most recent
+     * to the oldest, including the archived ones. Pages are delimited by the
+     * date and id of the last message of the previous page, instead of an
+     * offset, so every page is read from the indexes (recipient, date_queued,
+     * id) of the history and of the archive with the same cost. Each table
+     * gives at most one page and the two are merged.
+     * @param after the last message of the previous page, or null to find the
+     * first page.
+     * @param pageSize the maximum number of messages returned.
+     */
+    public List<MessageHistory> findByRecipient(UserAccount recipient, MessageHistory after, int pageSize) {
+        TypedQuery<MessageHistory> query;
+        Query archiveQuery;
+        String archiveColumns = "select id, message_body, variables, recipient, message_sent, date_queued, date_sent, delivery_attempts, next_attempt, delivery_failed from historical_message_archive where recipient = ?1";
+        if(after == null) {
+            query = em.createQuery("select hm from MessageHistory hm where hm.recipient = :userAccount order by hm.dateQueued desc, hm.id desc", MessageHistory.class);
+            archiveQuery = em.createNativeQuery(archiveColumns + " order by date_queued desc, id desc", MessageHistory.class);
+        } else {
+            query = em.createQuery("select hm from MessageHistory hm where hm.recipient = :userAccount and (hm.dateQueued < :dateQueued or (hm.dateQueued = :dateQueued and hm.id < :id)) order by hm.dateQueued desc, hm.id desc", MessageHistory.class)
+                      .setParameter("dateQueued", after.getDateQueued())
+                      .setParameter("id", after.getId());
+            archiveQuery = em.createNativeQuery(archiveColumns + " and (date_queued < ?2 or (date_queued = ?2 and id < ?3)) order by date_queued desc, id desc", MessageHistory.class)
+                             .setParameter(2, after.getDateQueued())
+                             .setParameter(3, after.getId());
+        }
+        List<MessageHistory> messagesHistory = new ArrayList<>(query.setParameter("userAccount", recipient)
+                                                                    .setMaxResults(pageSize)
+                                                                    .getResultList());
+
+        @SuppressWarnings("unchecked")
+        List<MessageHistory> archived = archiveQuery.setParameter(1, recipient.getId())
+                                                    .setMaxResults(pageSize)
+                                                    .getResultList();
+        if(archived.isEmpty()) {
+            return messagesHistory;
+        }
+        for(MessageHistory messageHistory: archived) {
+            // They are not in the table of the entity, so they must never be updated.
+            em.detach(messageHistory);
+        }
+        messagesHistory.addAll(archived);
+        Collections.sort(messagesHistory, new Comparator<MessageHistory>() {
+            @Override
+            public int compare(MessageHistory messageHistory, MessageHistory other) {
+                int comparison = other.getDateQueued().compareTo(messageHistory.getDateQueued());
+                return comparison != 0 ? comparison : other.getId().compareTo(messageHistory.getId());
+            }
+        });
+        return messagesHistory.size() > pageSize ? messagesHistory.subList(0, pageSize) : messagesHistory;
+    }
+
+    /**
+     * Moves the oldest messages queued before the informed date to the archive
+     * table. Messages still waiting for delivery are not archived. Each call
+     * moves at most one batch in its own transaction, so the locks on the
+     * history are held only for a short time. Archived messages are still
+     * listed in the history of their recipients.
+     * @return the number of archived messages. Zero means there is nothing else
+     * to archive.
+     */
+    public int archive(Date queuedBefore, int batchSize) {
+        List<String> ids = em.createQuery("select hm.id from MessageHistory hm where hm.dateQueued < :queuedBefore and (hm.messageSent = :messageSent or hm.deliveryFailed = :deliveryFailed) order by hm.dateQueued, hm.id", String.class)
+                             .setParameter("queuedBefore", queuedBefore)
+                             .setParameter("messageSent", Boolean.TRUE)
+                             .setParameter("deliveryFailed", Boolean.TRUE)
+                             .setMaxResults(batchSize)
+                             .getResultList();
+
+        if(ids.isEmpty()) {
+            return 0;
+        }
+
+        em.createNativeQuery("insert into historical_message_archive (id, message_body, variables, recipient, message_sent, date_queued, date_sent, delivery_attempts, next_attempt, delivery_failed) " +
+                             "select id, message_body, variables, recipient, message_sent, date_queued, date_sent, delivery_attempts, next_attempt, delivery_failed from historical_message where id in (:ids)")
+          .setParameter("ids", ids)
+          .executeUpdate();
+
+        return em.createQuery("delete from MessageHistory hm where hm.id in :ids")
+                 .setParameter("ids", ids)
+                 .executeUpdate();
+    }
+
+    /**
+     * Claims a message for delivery, so only one worker sends it even if it
+     * was queued more than once. The claim succeeds only if the message is
+     * still waiting for the attempt the worker was queued for. A concurrent
+     * claim of the same message waits for the lock on the row and then finds
+     * it already sent or with one more attempt registered.
+     * @param messageHistoryId the id of the historical message to deliver.
+     * @param deliveryAttempts the number of failed attempts when the message
+     * was queued.
+     * @param nextAttempt the moment of the next attempt if this one is lost.
+     * @return true if the message was claimed and must be sent.
+     */
+    public boolean claimDelivery(String messageHistoryId, int deliveryAttempts, Date nextAttempt) {
+        return em.createQuery("update MessageHistory hm set hm.nextAttempt = :nextAttempt where hm.id = :id and hm.messageSent = :messageSent and hm.deliveryFailed = :deliveryFailed and coalesce(hm.deliveryAttempts, 0) = :deliveryAttempts")
+                 .setParameter("nextAttempt", nextAttempt)
+                 .setParameter("id", messageHistoryId)
+                 .setParameter("messageSent", Boolean.FALSE)
+                 .setParameter("deliveryFailed", Boolean.FALSE)
+                 .setParameter("deliveryAttempts", deliveryAttempts)
+                 .executeUpdate() > 0;
+    }
+
+    /**
+     * Postpones the next attempt of a message waiting for delivery, so the
+     * retry scan doesn't queue it again while its delivery is deferred in
+     * memory.
+     * @param messageHistoryId the id of the historical message deferred.
+     * @param nextAttempt the moment of the next attempt if the deferred one is
+     * lost.
+     */
+    public void postponeDelivery(String messageHistoryId, Date nextAttempt) {
+        em.createQuery("update MessageHistory hm set hm.nextAttempt = :nextAttempt where hm.id = :id and hm.messageSent = :messageSent")
+          .setParameter("nextAttempt", nextAttempt)
+          .setParameter("id", messageHistoryId)
+          .setParameter("messageSent", Boolean.FALSE)
+          .executeUpdate();
+    }
+
+    /**
+     * Finds the next batch of messages waiting for a new delivery attempt and
+     * postpones their next attempt, so they are not found again while the
+     * outbound queue delivers them. Messages are visited in the order of their
+     * ids, starting after the informed one, so consecutive calls scan the
+     * pending messages without loading all of them at once.
+     * @param lastId the id of the last message of the previous batch, or an
+     * empty string to start from the beginning.
+     * @param nextAttempt the moment of the next attempt if this one is lost.
+     * @param batchSize the maximum number of messages returned.
+     * @return the messages to deliver, with their recipients, in ascending
+     * order of ids.
+     */
+    public List<MessageHistory> claimMessagesToRetry(String lastId, Date nextAttempt, int batchSize) {
+        List<MessageHistory> messagesHistory = em.createQuery("select hm from MessageHistory hm join fetch hm.recipient where hm.messageSent = :messageSent and hm.deliveryFailed = :deliveryFailed and (hm.nextAttempt is null or hm.nextAttempt <= :now) and hm.id > :lastId order by hm.id", MessageHistory.class)
+                                                 .setParameter("messageSent", Boolean.FALSE)
+                                                 .setParameter("deliveryFailed", Boolean.FALSE)
+                                                 .setParameter("now", Calendar.getInstance().getTime())
+                                                 .setParameter("lastId", lastId)
+                                                 .setMaxResults(batchSize)
+                                                 .getResultList();
+
+        if(!messagesHistory.isEmpty()) {
+            List<String> ids = new ArrayList<>(messagesHistory.size());
+            for(MessageHistory messageHistory: messagesHistory) {
+                ids.add(messageHistory.getId());
+            }
+            em.createQuery("update MessageHistory hm set hm.nextAttempt = :nextAttempt where hm.id in :ids")
+              .setParameter("nextAttempt", nextAttempt)
+              .setParameter("ids", ids)
+              .executeUpdate();
+        }
+        return messagesHistory;
     }
 }
\ No newline at end of file
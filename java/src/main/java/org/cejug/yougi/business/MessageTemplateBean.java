@@ -20,24 +20,42 @@
  * */
 package org.cejug.yougi.business;
 
+import org.cejug.yougi.entity.CompiledMessageTemplate;
 import org.cejug.yougi.entity.MessageTemplate;
 
+import javax.annotation.Resource;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Business logic related to MessageTemplate entity class.
+ * Business logic related to MessageTemplate entity class. Templates are
+ * compiled once and kept in memory, indexed by their ids. A compiled template
+ * is used only if it was compiled from the title and body just loaded,
+ * otherwise it is compiled again and replaced. So a reader that loaded a
+ * template before a change, or a change made by another node of a cluster,
+ * never leaves an outdated template in use. Templates are also evicted after
+ * a change or removal commits.
  *
  * @author Hildeberto Mendonca - http://www.hildeberto.com
  */
 @Stateless
 public class MessageTemplateBean extends AbstractBean<MessageTemplate> {
 
+    private static final ConcurrentMap<String, CompiledMessageTemplate> COMPILED_TEMPLATES = new ConcurrentHashMap<>();
+
     @PersistenceContext
     private EntityManager em;
 
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
     public MessageTemplateBean() {
         super(MessageTemplate.class);
     }
@@ -50,4 +68,52 @@ public class MessageTemplateBean extends AbstractBean<MessageTemplate> {
     public List<MessageTemplate> findAll() {
         return em.createQuery("select mt from MessageTemplate mt order by mt.title", MessageTemplate.class).getResultList();
     }
+
+    @Override
+    public MessageTemplate find(String id) {
+        MessageTemplate messageTemplate = super.find(id);
+        if(messageTemplate != null) {
+            CompiledMessageTemplate compiledTemplate = COMPILED_TEMPLATES.get(id);
+            if(compiledTemplate != null && compiledTemplate.isCompiledFrom(messageTemplate.getTitle(), messageTemplate.getBody())) {
+                messageTemplate.setCompiledTemplate(compiledTemplate);
+            } else if(compiledTemplate == null) {
+                COMPILED_TEMPLATES.putIfAbsent(id, messageTemplate.getCompiledTemplate());
+            } else {
+                COMPILED_TEMPLATES.replace(id, compiledTemplate, messageTemplate.getCompiledTemplate());
+            }
+        }
+        return messageTemplate;
+    }
+
+    @Override
+    public MessageTemplate save(MessageTemplate messageTemplate) {
+        MessageTemplate persistedTemplate = super.save(messageTemplate);
+        evict(persistedTemplate.getId());
+        return persistedTemplate;
+    }
+
+    @Override
+    public void remove(String id) {
+        super.remove(id);
+        evict(id);
+    }
+
+    private void evict(final String id) {
+        if(transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            COMPILED_TEMPLATES.remove(id);
+            return;
+        }
+
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if(status == Status.STATUS_COMMITTED) {
+                    COMPILED_TEMPLATES.remove(id);
+                }
+            }
+        });
+    }
 }
\ No newline at end of file
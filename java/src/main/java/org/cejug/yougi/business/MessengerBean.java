@@ -23,16 +23,20 @@ package org.cejug.yougi.business;
 import org.cejug.yougi.entity.ApplicationProperty;
 import org.cejug.yougi.entity.EmailMessage;
 import org.cejug.yougi.entity.MessageHistory;
+import org.cejug.yougi.entity.MessageTemplate;
 import org.cejug.yougi.entity.Properties;
 
 import javax.annotation.Resource;
+import javax.batch.runtime.BatchRuntime;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.mail.MessagingException;
 import javax.mail.Session;
-import javax.mail.Transport;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Centralizes the posting of all email messages sent by the system and manage
@@ -44,6 +48,10 @@ import java.util.List;
 @Stateless
 public class MessengerBean {
 
+    private static final Logger LOGGER = Logger.getLogger(MessengerBean.class.getSimpleName());
+
+    private static final String MEMBER_MAILING_JOB = "member_mailing";
+
     @Resource(name = "java:/mail/yougi")
     private Session mailSession;
 
@@ -53,41 +61,112 @@ public class MessengerBean {
     @EJB
     private MessageHistoryBean messageHistoryBean;
 
+    @EJB
+    private MailQueueBean mailQueueBean;
+
+    @EJB
+    private MailTransportBean mailTransportBean;
+
     /**
-     * If the application is configured to send emails, it sends the email message
-     * based on the message template. The message is saved in the history and an
-     * attempt to send the message is done. If successful the historical message
-     * is set as sent, otherwise the message is set as not sent and new attempts
-     * will be carried out later until the message is successfully sent.
+     * If the application is configured to send emails, it queues the email
+     * message for delivery. The message is saved in the history as not sent,
+     * one historical message for each recipient, and the outbound queue
+     * delivers them after the current transaction commits. Therefore, the
+     * caller doesn't wait for the mail server. Messages that cannot be
+     * delivered remain as not sent and new attempts will be carried out later
+     * until the message is successfully sent.
      * @param emailMessage The message to be sent.
      */
     public void sendEmailMessage(EmailMessage emailMessage) throws MessagingException {
+        queueMessages(MessageHistory.createHistoricMessages(emailMessage));
+    }
+
+    /**
+     * Saves historical messages as not sent and queues them for delivery after
+     * the current transaction commits. It is useful to send personalized
+     * messages, when each recipient has a message of its own.
+     * @param messagesHistory messages not saved yet, one for each recipient.
+     */
+    public void queueMessages(List<MessageHistory> messagesHistory) {
         ApplicationProperty appProp = applicationPropertyBean.findApplicationProperty(Properties.SEND_EMAILS);
         if(!appProp.sendEmailsEnabled()) {
             return;
         }
 
-        MessagingException messagingException = null;
+        // If the first attempt is lost, the message is retried after the usual delay.
+        Date nextAttempt = new Date(System.currentTimeMillis() + getRetryDelay());
+        Date dateQueued = Calendar.getInstance().getTime();
+        for(MessageHistory messageHistory: messagesHistory) {
+            messageHistory.setDateQueued(dateQueued);
+            messageHistory.setMessageSent(Boolean.FALSE);
+            messageHistory.setDeliveryAttempts(0);
+            messageHistory.setDeliveryFailed(Boolean.FALSE);
+            messageHistory.setNextAttempt(nextAttempt);
+        }
 
-        try {
-            Transport.send(emailMessage.createMimeMessage(mailSession));
-        } catch (MessagingException me) {
-            messagingException = me;
+        messageHistoryBean.saveAll(messagesHistory);
+        mailQueueBean.enqueue(messagesHistory);
+    }
+
+    /**
+     * Starts the batch job that sends a personalized message, built from the
+     * informed template, to each member who subscribed to receive the informed
+     * kind of message.
+     * @param messageTemplate the template of the message.
+     * @param subscription news, event or jobOffer.
+     * @return the id of the job execution.
+     */
+    public long sendToSubscribers(MessageTemplate messageTemplate, String subscription) {
+        java.util.Properties parameters = new java.util.Properties();
+        parameters.setProperty("messageTemplate", messageTemplate.getId());
+        parameters.setProperty("subscription", subscription);
+        return BatchRuntime.getJobOperator().start(MEMBER_MAILING_JOB, parameters);
+    }
+
+    /**
+     * Delivers a queued message to its recipient and updates its history. It
+     * is invoked by the workers of the outbound queue, in a transaction of its
+     * own, so the status of the message is committed as soon as it is sent.
+     * If the mail server refuses the message, a new attempt is scheduled with
+     * an increasing delay, until the maximum number of attempts is reached.
+     * The message is claimed first, so a copy queued twice is sent only once.
+     * @param messageHistoryId the id of the historical message to deliver.
+     * @param deliveryAttempts the number of failed attempts when the message
+     * was queued.
+     * @return true if the message was sent or there is nothing to deliver,
+     * false if the mail server refused it.
+     */
+    public boolean deliver(String messageHistoryId, int deliveryAttempts) {
+        Date lease = new Date(System.currentTimeMillis() + getRetryDelay());
+        if(!messageHistoryBean.claimDelivery(messageHistoryId, deliveryAttempts, lease)) {
+            return true;
         }
+        MessageHistory messageHistory = messageHistoryBean.find(messageHistoryId);
 
-        List<MessageHistory> messagesHistory = MessageHistory.createHistoricMessages(emailMessage);
-        for(MessageHistory messageHistory: messagesHistory) {
-            if(messagingException == null) {
-                messageHistory.setMessageSent(Boolean.TRUE);
-                messageHistory.setDateSent(Calendar.getInstance().getTime());
+        EmailMessage emailMessage = messageHistory.createEmailMessage();
+        try {
+            mailTransportBean.send(emailMessage.createMimeMessage(mailSession));
+        } catch (MessagingException me) {
+            int maxAttempts = applicationPropertyBean.getIntegerPropertyValue(Properties.MAIL_DELIVERY_ATTEMPTS);
+            if(messageHistory.registerFailedAttempt(maxAttempts, getRetryDelay())) {
+                LOGGER.log(Level.WARNING, "Error when sending the message "+ messageHistoryId +" to "+ messageHistory.getRecipient().getPostingEmail() +". Attempt "+ messageHistory.getDeliveryAttempts() +" of "+ maxAttempts +".", me);
             } else {
-                messageHistory.setMessageSent(Boolean.FALSE);
+                LOGGER.log(Level.SEVERE, "The message "+ messageHistoryId +" to "+ messageHistory.getRecipient().getPostingEmail() +" failed after "+ maxAttempts +" attempts and will not be sent.", me);
             }
-            messageHistoryBean.save(messageHistory);
+            return false;
         }
 
-        if(messagingException != null) {
-            throw messagingException;
-        }
+        messageHistory.setMessageSent(Boolean.TRUE);
+        messageHistory.setDateSent(Calendar.getInstance().getTime());
+        messageHistory.setNextAttempt(null);
+        return true;
+    }
+
+    /**
+     * @return the interval in milliseconds between the first attempt to
+     * deliver a message and the second one.
+     */
+    public long getRetryDelay() {
+        return applicationPropertyBean.getIntegerPropertyValue(Properties.MAIL_RETRY_DELAY) * 1000L;
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.util.PasswordVerifier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Starts the pool of threads that check passwords with threads managed by the
+ * container. It uses half of the available processors, so logins never take
+ * all the processors from the rest of the application.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@Startup
+public class PasswordVerificationBean {
+
+    private static final Logger LOGGER = Logger.getLogger(PasswordVerificationBean.class.getSimpleName());
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    @PostConstruct
+    public void start() {
+        int threads = Math.max(Runtime.getRuntime().availableProcessors() / 2, 1);
+        PasswordVerifier.INSTANCE.start(threadFactory, threads);
+        LOGGER.log(Level.INFO, "Password verification started with {0} threads.", threads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        PasswordVerifier.INSTANCE.stop();
+    }
+}
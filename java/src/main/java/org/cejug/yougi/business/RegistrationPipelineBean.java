@@ -0,0 +1,280 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.UserAccount;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the steps of the registration that don't need to delay the response to
+ * the member, like sending messages and assigning groups. The steps of a
+ * registration are handed to a small pool of workers once the registration
+ * commits, and each one runs in a transaction of its own. A failed step is
+ * retried with an exponential delay, without repeating the steps that
+ * succeeded. Steps pending at shutdown are lost, the same as a message whose
+ * sending fails, since members can ask for the confirmation again.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class RegistrationPipelineBean implements RegistrationPipelineMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger(RegistrationPipelineBean.class.getSimpleName());
+
+    private static final String OBJECT_NAME = "org.cejug.yougi:type=RegistrationPipeline";
+
+    private static final int WORKERS = 2;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long FIRST_RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+
+    @EJB
+    private UserAccountBean userAccountBean;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    private ScheduledThreadPoolExecutor workers;
+
+    private final Map<RegistrationStep, StepStatistics> statistics = new EnumMap<>(RegistrationStep.class);
+
+    public RegistrationPipelineBean() {
+        for(RegistrationStep step: RegistrationStep.values()) {
+            statistics.put(step, new StepStatistics());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        workers = new ScheduledThreadPoolExecutor(WORKERS, threadFactory);
+        registerMBean();
+    }
+
+    @PreDestroy
+    public void stop() {
+        unregisterMBean();
+        int pending = workers.shutdownNow().size();
+        if(pending > 0) {
+            LOGGER.log(Level.WARNING, "{0} registration steps were not executed before the shutdown.", pending);
+        }
+    }
+
+    /**
+     * Schedules the steps for the user account. If there is an active
+     * transaction, the steps are handed to the workers only after it commits,
+     * so they never see an account that doesn't exist yet.
+     */
+    public void submit(UserAccount userAccount, RegistrationStep... steps) {
+        final String userAccountId = userAccount.getId();
+        final RegistrationStep[] registrationSteps = steps;
+        if(transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            submit(userAccountId, registrationSteps);
+            return;
+        }
+
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if(status == Status.STATUS_COMMITTED) {
+                    submit(userAccountId, registrationSteps);
+                }
+            }
+        });
+    }
+
+    private void submit(String userAccountId, RegistrationStep[] steps) {
+        long now = System.nanoTime();
+        for(RegistrationStep step: steps) {
+            workers.execute(new Attempt(step, userAccountId, 1, now));
+        }
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException jme) {
+            LOGGER.log(Level.WARNING, "Registration pipeline metrics are not available.", jme);
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException jme) {
+            LOGGER.log(Level.INFO, jme.getMessage(), jme);
+        }
+    }
+
+    @Override
+    public int getPendingSteps() {
+        return workers.getQueue().size();
+    }
+
+    @Override
+    public Map<String, Long> getCompletedSteps() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for(Map.Entry<RegistrationStep, StepStatistics> entry: statistics.entrySet()) {
+            values.put(entry.getKey().name(), entry.getValue().completed.get());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getFailedAttempts() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for(Map.Entry<RegistrationStep, StepStatistics> entry: statistics.entrySet()) {
+            values.put(entry.getKey().name(), entry.getValue().failed.get());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getAbandonedSteps() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for(Map.Entry<RegistrationStep, StepStatistics> entry: statistics.entrySet()) {
+            values.put(entry.getKey().name(), entry.getValue().abandoned.get());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getAverageWaitTime() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for(Map.Entry<RegistrationStep, StepStatistics> entry: statistics.entrySet()) {
+            StepStatistics stepStatistics = entry.getValue();
+            values.put(entry.getKey().name(), average(stepStatistics.totalWaitTime.get(), stepStatistics.started.get()));
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getAverageRunTime() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for(Map.Entry<RegistrationStep, StepStatistics> entry: statistics.entrySet()) {
+            StepStatistics stepStatistics = entry.getValue();
+            values.put(entry.getKey().name(), average(stepStatistics.totalRunTime.get(), stepStatistics.completed.get() + stepStatistics.failed.get()));
+        }
+        return values;
+    }
+
+    private double average(long totalNanos, long count) {
+        if(count == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos) / (double) count;
+    }
+
+    private static class StepStatistics {
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong abandoned = new AtomicLong();
+        private final AtomicLong totalWaitTime = new AtomicLong();
+        private final AtomicLong totalRunTime = new AtomicLong();
+    }
+
+    /**
+     * One attempt to run a step. If it fails, the next attempt is scheduled
+     * with twice the delay of the previous one.
+     */
+    private class Attempt implements Runnable {
+
+        private final RegistrationStep step;
+        private final String userAccountId;
+        private final int number;
+        private final long submitted;
+
+        Attempt(RegistrationStep step, String userAccountId, int number, long submitted) {
+            this.step = step;
+            this.userAccountId = userAccountId;
+            this.number = number;
+            this.submitted = submitted;
+        }
+
+        @Override
+        public void run() {
+            StepStatistics stepStatistics = statistics.get(step);
+            long start = System.nanoTime();
+            if(number == 1) {
+                stepStatistics.started.incrementAndGet();
+                stepStatistics.totalWaitTime.addAndGet(start - submitted);
+            }
+
+            try {
+                userAccountBean.runRegistrationStep(step, userAccountId);
+                stepStatistics.completed.incrementAndGet();
+            } catch (RuntimeException re) {
+                stepStatistics.failed.incrementAndGet();
+                if(number < MAX_ATTEMPTS) {
+                    long delay = FIRST_RETRY_DELAY << (number - 1);
+                    LOGGER.log(Level.WARNING, "Registration step {0} failed for the account {1}. Trying again in {2} seconds.",
+                               new Object[]{step, userAccountId, TimeUnit.MILLISECONDS.toSeconds(delay)});
+                    workers.schedule(new Attempt(step, userAccountId, number + 1, submitted), delay, TimeUnit.MILLISECONDS);
+                } else {
+                    stepStatistics.abandoned.incrementAndGet();
+                    LOGGER.log(Level.SEVERE, "Registration step "+ step +" abandoned for the account "+ userAccountId, re);
+                }
+            } finally {
+                stepStatistics.totalRunTime.addAndGet(System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import java.util.Map;
+
+/**
+ * Management interface of the registration pipeline, published in the
+ * platform MBean server under the name org.cejug.yougi:type=RegistrationPipeline.
+ * The maps are indexed by the name of the registration step.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public interface RegistrationPipelineMXBean {
+
+    /**
+     * @return the number of steps waiting for a free worker or for a retry.
+     */
+    int getPendingSteps();
+
+    Map<String, Long> getCompletedSteps();
+
+    /**
+     * @return the number of failed attempts of each step, including the ones
+     * retried later.
+     */
+    Map<String, Long> getFailedAttempts();
+
+    /**
+     * @return the number of steps abandoned after all attempts failed.
+     */
+    Map<String, Long> getAbandonedSteps();
+
+    /**
+     * @return the average time, in milliseconds, between the commit of the
+     * registration and the start of the first attempt of each step.
+     */
+    Map<String, Double> getAverageWaitTime();
+
+    /**
+     * @return the average time, in milliseconds, spent running each step.
+     */
+    Map<String, Double> getAverageRunTime();
+}
@@ -0,0 +1,43 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+/**
+ * Steps of the registration of a member that run after the account is
+ * committed, out of the request thread. Each step runs and is retried
+ * independently of the others.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public enum RegistrationStep {
+
+    /** Sends the message with the code to confirm the registration. */
+    CONFIRMATION_REQUEST,
+
+    /** Adds the first member of the community to the administrative group. */
+    ADMINISTRATIVE_GROUP,
+
+    /** Welcomes the member who confirmed the registration. */
+    WELCOME_MESSAGE,
+
+    /** Tells the administrators about the new member. */
+    ADMIN_NOTIFICATION
+}
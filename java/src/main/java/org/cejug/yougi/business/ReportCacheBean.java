@@ -0,0 +1,110 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.Properties;
+import org.cejug.yougi.util.ReportCache;
+
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.EJBException;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the results of the reports of the dashboard for the time defined by
+ * the application property reportCacheTtl. Results are kept by report and
+ * locale, since they include translated labels. The business beans invalidate
+ * a report when the data behind it changes, after the transaction commits.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class ReportCacheBean {
+
+    public static final String COMMUNICATION_PRIVACY = "communicationPrivacy";
+    public static final String MEMBERSHIP_GROWTH = "membershipGrowth";
+    public static final String MEMBERS_MAP = "membersMap";
+
+    @EJB
+    private ApplicationPropertyBean applicationPropertyBean;
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    private final ReportCache cache = new ReportCache();
+
+    /**
+     * Returns the result of the report in the locale, computing it with the
+     * loader when it is not in the cache. Concurrent requests for the same
+     * result wait for a single computation.
+     * @param variant distinguishes results of the same report and locale
+     * computed with different parameters, or null if there are none.
+     */
+    public <T> T get(String report, Locale locale, String variant, Callable<T> loader) {
+        long timeToLive = TimeUnit.SECONDS.toMillis(applicationPropertyBean.getIntegerPropertyValue(Properties.REPORT_CACHE_TTL));
+        if(timeToLive <= 0) {
+            try {
+                return loader.call();
+            } catch (RuntimeException re) {
+                throw re;
+            } catch (Exception e) {
+                throw new EJBException(e);
+            }
+        }
+        return cache.get(report, locale + "/" + variant, timeToLive, loader);
+    }
+
+    /**
+     * Removes all results of the report. If there is an active transaction,
+     * they are removed only after it commits, so the report is not computed
+     * again with data about to change.
+     */
+    public void invalidate(final String report) {
+        if(transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            cache.invalidate(report);
+            return;
+        }
+
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if(status == Status.STATUS_COMMITTED) {
+                    cache.invalidate(report);
+                }
+            }
+        });
+    }
+}
@@ -30,12 +30,15 @@ import javax.mail.MessagingException;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
-import java.text.Format;
-import java.text.SimpleDateFormat;
+import javax.persistence.TypedQuery;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -56,6 +59,24 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
     @EJB
     private MessengerBean messengerBean;
 
+    @EJB
+    private AdminNotificationBean adminNotificationBean;
+
+    @EJB
+    private UserAccountVersionBean userAccountVersionBean;
+
+    @EJB
+    private MemberSearchBean memberSearchBean;
+
+    @EJB
+    private RegistrationPipelineBean registrationPipelineBean;
+
+    @EJB
+    private CommunicationPrivacyBean communicationPrivacyBean;
+
+    @EJB
+    private MembershipStatsBean membershipStatsBean;
+
     @EJB
     private MessageTemplateBean messageTemplateBean;
 
@@ -94,8 +115,11 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
      * @return true if there is no account registered in the database.
      * */
     public boolean thereIsNoAccount() {
-        Long totalUserAccounts = (Long)em.createQuery("select count(u) from UserAccount u").getSingleResult();
-        return totalUserAccounts == 0;
+        // Reading a single id is enough to know whether there is any account.
+        return em.createQuery("select u.id from UserAccount u")
+                 .setMaxResults(1)
+                 .getResultList()
+                 .isEmpty();
     }
 
     /**
@@ -125,16 +149,37 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
         }
     }
 
+    /**
+     * Finds the member who owns the informed address. The indexed host only
+     * narrows the candidates, since members may share a host with different
+     * paths. Among them, the member whose website is the longest prefix of the
+     * address is chosen.
+     * @return the member whose website contains the address, or null if there
+     * is none or if more than one member has the same website.
+     */
     public UserAccount findByWebsite(String website) {
-        try {
-            String websiteWithoutProtocol = UrlUtils.INSTANCE.removeProtocol(website);
-            return (UserAccount) em.createQuery("select ua from UserAccount ua where ua.website like :website")
-                    .setParameter("website", "%" + websiteWithoutProtocol + "%")
-                    .getSingleResult();
-        } catch(NoResultException nre) {
-            LOGGER.log(Level.INFO, nre.getMessage(), nre);
+        String host = UrlUtils.INSTANCE.getHost(website);
+        if(host == null) {
             return null;
         }
+        List<UserAccount> candidates = em.createQuery("select ua from UserAccount ua where ua.websiteHost = :host", UserAccount.class)
+                                         .setParameter("host", host)
+                                         .getResultList();
+        UserAccount owner = null;
+        int ownerPathLength = -1;
+        for(UserAccount candidate: candidates) {
+            if(!UrlUtils.INSTANCE.isUnder(website, candidate.getWebsite())) {
+                continue;
+            }
+            int pathLength = UrlUtils.INSTANCE.getPath(candidate.getWebsite()).length();
+            if(pathLength > ownerPathLength) {
+                owner = candidate;
+                ownerPathLength = pathLength;
+            } else if(pathLength == ownerPathLength) {
+                owner = null;
+            }
+        }
+        return owner;
     }
 
     public UserAccount findByConfirmationCode(String confirmationCode) {
@@ -157,39 +202,108 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
                  .getResultList();
     }
 
-    public List<UserAccount> findActiveWithPublicProfile() {
-        return em.createQuery("select ua from UserAccount ua where ua.deactivated = false and ua.confirmationCode is null and ua.publicProfile = true order by ua.firstName", UserAccount.class)
+    /**
+     * Returns a page of activated user accounts that are visible to everyone,
+     * ordered by name.
+     * @param after the last user account of the previous page, or null to
+     * read the first page.
+     * @param maxResults the size of the page.
+     */
+    public List<UserAccount> findActiveWithPublicProfile(UserAccount after, int maxResults) {
+        return createPageQuery("ua.deactivated = false and ua.confirmationCode is null and ua.publicProfile = true", after, maxResults)
+                 .getResultList();
+    }
+
+    /**
+     * Returns a page of active members who subscribed to receive a kind of
+     * message. Members are ordered by id and the page starts after the
+     * informed id, so the next page can be read without skipping rows.
+     * @param subscription news, event or jobOffer.
+     * @param lastId the id of the last member of the previous page, or an
+     * empty string to read the first page.
+     * @param maxResults the size of the page.
+     */
+    public List<UserAccount> findSubscribers(String subscription, String lastId, int maxResults) {
+        String attribute;
+        switch (subscription) {
+            case "news":
+            case "event":
+            case "jobOffer":
+                attribute = subscription;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown subscription: "+ subscription);
+        }
+        return em.createQuery("select ua from UserAccount ua where ua.deactivated = false and ua.confirmationCode is null and ua."+ attribute +" = true and ua.id > :lastId order by ua.id", UserAccount.class)
+                 .setParameter("lastId", lastId)
+                 .setMaxResults(maxResults)
                  .getResultList();
     }
 
     /**
      * Returns user accounts ordered by registration date and in which the
-     * registration date is between the informed period of time.
+     * registration date is between the informed period of time. The period
+     * includes the first date but not the last one, so consecutive periods
+     * never return the same account.
      */
     public List<UserAccount> findConfirmedAccounts(Date from, Date to) {
-        return em.createQuery("select ua from UserAccount ua where ua.confirmationCode is null and ua.registrationDate >= :from and ua.registrationDate <= :to order by ua.registrationDate asc", UserAccount.class)
+        return em.createQuery("select ua from UserAccount ua where ua.confirmationCode is null and ua.registrationDate >= :from and ua.registrationDate < :to order by ua.registrationDate asc", UserAccount.class)
                  .setParameter("from", from)
                  .setParameter("to", to)
                  .getResultList();
     }
 
-    public List<UserAccount> findAllNotVerifiedAccounts() {
-        return em.createQuery("select ua from UserAccount ua where ua.verified = :verified and ua.deactivated = :deactivated order by ua.registrationDate desc", UserAccount.class)
-                 .setParameter("verified", Boolean.FALSE)
-                 .setParameter("deactivated", Boolean.FALSE)
+    /**
+     * Returns user accounts ordered by deactivation date and in which the
+     * deactivation date is between the informed period of time, including the
+     * first date but not the last one.
+     */
+    public List<UserAccount> findDeactivatedAccounts(Date from, Date to) {
+        return em.createQuery("select ua from UserAccount ua where ua.deactivated = true and ua.deactivationDate >= :from and ua.deactivationDate < :to order by ua.deactivationDate asc", UserAccount.class)
+                 .setParameter("from", from)
+                 .setParameter("to", to)
                  .getResultList();
     }
 
-    public List<UserAccount> findAllStartingWith(String firstLetter) {
-        return em.createQuery("select ua from UserAccount ua where ua.firstName like '"+ firstLetter +"%' and ua.deactivated = :deactivated order by ua.firstName", UserAccount.class)
-                 .setParameter("deactivated", Boolean.FALSE)
+    /**
+     * Returns a page of user accounts not verified yet, ordered by name.
+     * @param after the last user account of the previous page, or null to
+     * read the first page.
+     * @param maxResults the size of the page.
+     */
+    public List<UserAccount> findAllNotVerifiedAccounts(UserAccount after, int maxResults) {
+        return createPageQuery("ua.verified = false and ua.deactivated = false", after, maxResults)
+                 .getResultList();
+    }
+
+    /**
+     * Returns a page of active user accounts whose first name starts with the
+     * informed letter, ordered by name.
+     */
+    public List<UserAccount> findAllStartingWith(String firstLetter, UserAccount after, int maxResults) {
+        return createPageQuery("ua.firstName like :firstLetter and ua.deactivated = false", after, maxResults)
+                 .setParameter("firstLetter", firstLetter + "%")
                  .getResultList();
     }
 
     /**
-     * @return the list of deactivated user accounts that were deactivated by
-     * their own will or administratively.
+     * Creates a query that reads a page of user accounts ordered by first name
+     * and id, starting right after the last account of the previous page. The
+     * index on (first_name, id) makes the cost of a page depend only on its
+     * size, no matter how deep it is in the list.
+     * @param condition the filter of the accounts, without user parameters.
      */
+    private TypedQuery<UserAccount> createPageQuery(String condition, UserAccount after, int maxResults) {
+        String keyset = after == null ? "" : " and (ua.firstName > :firstName or (ua.firstName = :firstName and ua.id > :id))";
+        TypedQuery<UserAccount> query = em.createQuery("select ua from UserAccount ua where "+ condition + keyset +" order by ua.firstName, ua.id", UserAccount.class)
+                                          .setMaxResults(maxResults);
+        if(after != null) {
+            query.setParameter("firstName", after.getFirstName())
+                 .setParameter("id", after.getId());
+        }
+        return query;
+    }
+
     public List<UserAccount> findAllDeactivatedUserAccounts() {
         return em.createQuery("select ua from UserAccount ua where ua.deactivated = :deactivated and ua.deactivationType <> :type order by ua.deactivationDate desc", UserAccount.class)
                  .setParameter("deactivated", Boolean.TRUE)
@@ -284,22 +398,60 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
 
         authentication.setUserAccount(userAccount);
         authenticationBean.save(authentication);
+        memberSearchBean.update(userAccount);
 
         /* In case there is no account, the user is added to the administrative
-         * group straight away. There is no need to send a confirmation email.*/
+         * group as soon as the registration commits. There is no need to send
+         * a confirmation email. The other steps also run after the commit, so
+         * the new member doesn't wait for them. */
         if(noAccount) {
             userAccount.setEmailAsVerified();
-            AccessGroup adminGroup = accessGroupBean.findAdministrativeGroup();
-            UserGroup userGroup = new UserGroup(adminGroup, authentication);
-            userGroupBean.add(userGroup);
+            membershipStatsBean.registered(userAccount.getRegistrationDate());
+            registrationPipelineBean.submit(userAccount, RegistrationStep.ADMINISTRATIVE_GROUP);
         } else {
             /* A confirmation email is sent to all other new users. */
             ApplicationProperty appProp = applicationPropertyBean.findApplicationProperty(Properties.SEND_EMAILS);
             if(appProp.sendEmailsEnabled()) {
-                ApplicationProperty url = applicationPropertyBean.findApplicationProperty(Properties.URL);
-                sendEmailConfirmationRequest(userAccount, url.getPropertyValue());
+                registrationPipelineBean.submit(userAccount, RegistrationStep.CONFIRMATION_REQUEST);
             }
         }
+        communicationPrivacyBean.changed(userAccount);
+    }
+
+    /**
+     * Runs a step of the registration of the user account in a transaction of
+     * its own. Called by the registration pipeline after the registration
+     * commits.
+     * @throws javax.ejb.EJBException if the step fails and should be retried.
+     */
+    public void runRegistrationStep(RegistrationStep step, String userAccountId) {
+        UserAccount userAccount = find(userAccountId);
+        if(userAccount == null) {
+            LOGGER.log(Level.INFO, "The account {0} was removed before the registration step {1}.", new Object[]{userAccountId, step});
+            return;
+        }
+
+        switch (step) {
+            case CONFIRMATION_REQUEST:
+                ApplicationProperty url = applicationPropertyBean.findApplicationProperty(Properties.URL);
+                try {
+                    sendEmailConfirmationRequest(userAccount, url.getPropertyValue());
+                } catch(BusinessLogicException ble) {
+                    throw new EJBException(ble);
+                }
+                break;
+            case ADMINISTRATIVE_GROUP:
+                AccessGroup adminGroup = accessGroupBean.findAdministrativeGroup();
+                Authentication authentication = authenticationBean.findByUserAccount(userAccount);
+                userGroupBean.add(new UserGroup(adminGroup, authentication));
+                break;
+            case WELCOME_MESSAGE:
+                sendWelcomeMessage(userAccount);
+                break;
+            case ADMIN_NOTIFICATION:
+                adminNotificationBean.notifyNewMember(userAccount);
+                break;
+        }
     }
 
     public void sendEmailConfirmationRequest(UserAccount userAccount, String serverAddress) throws BusinessLogicException {
@@ -343,14 +495,12 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
                 Authentication authentication = authenticationBean.findByUserAccount(userAccount);
                 UserGroup userGroup = new UserGroup(defaultGroup, authentication);
                 userGroupBean.add(userGroup);
+                communicationPrivacyBean.changed(userAccount);
+                membershipStatsBean.registered(userAccount.getRegistrationDate());
 
                 ApplicationProperty appProp = applicationPropertyBean.findApplicationProperty(Properties.SEND_EMAILS);
                 if(appProp.sendEmailsEnabled()) {
-                    sendWelcomeMessage(userAccount);
-
-                    AccessGroup administrativeGroup = accessGroupBean.findAdministrativeGroup();
-                    List<UserAccount> admins = userGroupBean.findUsersGroup(administrativeGroup);
-                    sendNewMemberAlertMessage(userAccount, admins);
+                    registrationPipelineBean.submit(userAccount, RegistrationStep.WELCOME_MESSAGE, RegistrationStep.ADMIN_NOTIFICATION);
                 }
             }
 
@@ -374,30 +524,41 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
         }
     }
 
-    public void sendNewMemberAlertMessage(UserAccount userAccount, List<UserAccount> admins) {
-        MessageTemplate messageTemplate = messageTemplateBean.find("0D6F96382D91454F8155A720F3326F1B");
-        messageTemplate.setVariable("userAccount.fullName", userAccount.getFullName());
-        messageTemplate.setVariable("userAccount.registrationDate", userAccount.getRegistrationDate());
-        EmailMessage emailMessage = messageTemplate.buildEmailMessage();
-        emailMessage.setRecipients(admins);
-
-        try {
-            messengerBean.sendEmailMessage(emailMessage);
-        } catch(MessagingException me) {
-            LOGGER.log(Level.WARNING, "Error when sending alert to administrators about the registration of "+ userAccount.getPostingEmail(), me);
-        }
-    }
-
     public UserAccount save(UserAccount userAccount) {
         userAccount.setLastUpdate(Calendar.getInstance().getTime());
-        return super.save(userAccount);
+        UserAccount savedUserAccount = super.save(userAccount);
+        userAccountVersionBean.changed(savedUserAccount);
+        memberSearchBean.update(savedUserAccount);
+        communicationPrivacyBean.changed(savedUserAccount);
+        return savedUserAccount;
+    }
+
+    @Override
+    public void remove(String id) {
+        UserAccount userAccount = find(id);
+        if(userAccount != null) {
+            communicationPrivacyBean.removed(userAccount);
+
+            // Only members who confirmed their registration are counted in the membership stats.
+            if(userAccount.getEmail() != null && !Boolean.TRUE.equals(userAccount.getDeactivated())) {
+                membershipStatsBean.deactivated(Calendar.getInstance().getTime());
+            }
+        }
+        super.remove(id);
+        memberSearchBean.remove(id);
     }
 
     public void deactivateMembership(UserAccount userAccount, DeactivationType deactivationType) {
         UserAccount existingUserAccount = find(userAccount.getId());
 
+        // Only members who confirmed their registration are counted in the membership stats.
+        boolean member = existingUserAccount.getEmail() != null && !Boolean.TRUE.equals(existingUserAccount.getDeactivated());
+
         existingUserAccount.setDeactivated(Boolean.TRUE);
         existingUserAccount.setDeactivationDate(Calendar.getInstance().getTime());
+        if(member) {
+            membershipStatsBean.deactivated(existingUserAccount.getDeactivationDate());
+        }
         existingUserAccount.setDeactivationReason(userAccount.getDeactivationReason());
         existingUserAccount.setDeactivationType(deactivationType);
 
@@ -413,11 +574,8 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
             sendDeactivationReason(existingUserAccount);
         }
 
-        AccessGroup administrativeGroup = accessGroupBean.findAdministrativeGroup();
-        List<UserAccount> admins = userGroupBean.findUsersGroup(administrativeGroup);
-
         if(appProp.sendEmailsEnabled()) {
-            sendDeactivationAlertMessage(existingUserAccount, admins);
+            adminNotificationBean.notifyDeactivation(existingUserAccount);
         }
     }
 
@@ -440,25 +598,12 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
         }
     }
 
-    public void sendDeactivationAlertMessage(UserAccount userAccount, List<UserAccount> admins) {
-        MessageTemplate messageTemplate = messageTemplateBean.find("0D6F96382IKEJSUIWOK5A720F3326F1B");
-        messageTemplate.setVariable("userAccount.fullName", userAccount.getFullName());
-        messageTemplate.setVariable("userAccount.deactivationReason", userAccount.getDeactivationReason());
-        EmailMessage emailMessage = messageTemplate.buildEmailMessage();
-        emailMessage.setRecipients(admins);
-
-        try {
-            messengerBean.sendEmailMessage(emailMessage);
-        } catch(MessagingException me) {
-            LOGGER.log(Level.WARNING, "Error when sending the deactivation reason from "+ userAccount.getPostingEmail() +" to administrators.", me);
-        }
-    }
-
     public void requestConfirmationPasswordChange(String username, String serverAddress) throws BusinessLogicException {
         UserAccount userAccount = findByUsername(username);
 
         if(userAccount != null) {
             userAccount.defineNewConfirmationCode();
+            communicationPrivacyBean.changed(userAccount);
             sendConfirmationCode(userAccount, serverAddress);
         } else {
             throw new BusinessLogicException("Usuário inexistente: {0}", username);
@@ -501,6 +646,8 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
 
         // Change the email address in the UserAccount
         existingUserAccount.setUnverifiedEmail(newEmail);
+        userAccountVersionBean.changed(existingUserAccount);
+        communicationPrivacyBean.changed(existingUserAccount);
 
         // Send an email to the user to confirm the new email address
         ApplicationProperty url = applicationPropertyBean.findApplicationProperty(Properties.URL);
@@ -548,6 +695,9 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
         userGroupBean.changeUsername(userAccount);
 
         authenticationBean.changeUsername(userAccount);
+        userAccountVersionBean.changed(userAccount);
+        memberSearchBean.update(userAccount);
+        communicationPrivacyBean.changed(userAccount);
     }
 
     public void changePassword(UserAccount userAccount, String password) throws BusinessLogicException {
@@ -557,24 +707,129 @@ public class UserAccountBean extends AbstractBean<UserAccount> {
     }
 
     /**
-     * Remove all users whose registration date is older than two days ago, the
-     * confirmation code is not null and the user was not verified by an
-     * administrator. This method is scheduled to execute every 12 hours.
+     * Removes a batch of accounts not confirmed since the informed date,
+     * together with their authentication, groups and messages, in a
+     * transaction of its own. Called repeatedly by the purge of unconfirmed
+     * accounts until it returns less than the size of the batch.
+     * @return the number of removed accounts.
      */
-    @Schedules({ @Schedule(hour="*/12") })
-    public void removeNonConfirmedAccounts(Timer timer) {
-        LOGGER.log(Level.INFO, "Timer to remove non confirmed accounts started.");
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int removeNonConfirmedAccounts(Date registeredBefore, int batchSize) {
+        List<String> ids = em.createQuery("select ua.id from UserAccount ua where ua.registrationDate <= :registeredBefore and ua.confirmationCode is not null and ua.verified = false", String.class)
+                             .setParameter("registeredBefore", registeredBefore)
+                             .setMaxResults(batchSize)
+                             .getResultList();
+        if(ids.isEmpty()) {
+            return 0;
+        }
 
-        Calendar twoDaysAgo = Calendar.getInstance();
-        twoDaysAgo.add(Calendar.DAY_OF_YEAR, -2);
+        em.createQuery("delete from UserGroup ug where ug.id.userId in :ids").setParameter("ids", ids).executeUpdate();
+        em.createQuery("delete from Authentication a where a.userAccount.id in :ids").setParameter("ids", ids).executeUpdate();
+        em.createQuery("delete from MessageHistory mh where mh.recipient.id in :ids").setParameter("ids", ids).executeUpdate();
+        int removed = em.createQuery("delete from UserAccount ua where ua.id in :ids").setParameter("ids", ids).executeUpdate();
+
+        for(String id: ids) {
+            memberSearchBean.remove(id);
+        }
+        return removed;
+    }
 
-        Format formatter = new SimpleDateFormat("dd/MM/yyyy HH:mm");
-        LOGGER.log(Level.INFO, "Accounts that were now confirmed after {0} will be removed.", formatter.format(twoDaysAgo.getTime()));
+    /**
+     * Inserts a batch of members imported from a file, in a transaction of its
+     * own. Members are confirmed right away, in the default group, with a
+     * password that they define by requesting a new one. No message is sent.
+     * @param userAccounts valid user accounts, with the email already verified.
+     * @return the emails, in lowercase, of the members not inserted because
+     * their emails are already registered.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public Set<String> importMembers(List<UserAccount> userAccounts) {
+        Set<String> emails = new HashSet<>();
+        for(UserAccount userAccount: userAccounts) {
+            emails.add(userAccount.getEmail());
+        }
 
-        int i = em.createQuery("delete from UserAccount ua where ua.registrationDate <= :twoDaysAgo and ua.confirmationCode is not null and ua.verified = false")
-                  .setParameter("twoDaysAgo", twoDaysAgo.getTime())
-                  .executeUpdate();
+        Set<String> existingEmails = new HashSet<>();
+        List<String> found = new ArrayList<>();
+        found.addAll(em.createQuery("select a.username from Authentication a where a.username in :emails", String.class)
+                       .setParameter("emails", emails)
+                       .getResultList());
+        found.addAll(em.createQuery("select ua.email from UserAccount ua where ua.email in :emails", String.class)
+                       .setParameter("emails", emails)
+                       .getResultList());
+        found.addAll(em.createQuery("select ua.unverifiedEmail from UserAccount ua where ua.unverifiedEmail in :emails", String.class)
+                       .setParameter("emails", emails)
+                       .getResultList());
+        for(String email: found) {
+            existingEmails.add(email.toLowerCase());
+        }
 
-        LOGGER.log(Level.INFO, "Number of removed accounts: {0}", i);
+        AccessGroup defaultGroup = accessGroupBean.findDefaultAccessGroup();
+        String timezone = applicationPropertyBean.getPropertyValue(Properties.TIMEZONE);
+        Map<Integer, Long> registrations = new HashMap<>();
+        for(UserAccount userAccount: userAccounts) {
+            if(existingEmails.contains(userAccount.getEmail().toLowerCase())) {
+                continue;
+            }
+            userAccount.setId(EntitySupport.INSTANCE.generateEntityId());
+            userAccount.setTimeZone(timezone);
+            em.persist(userAccount);
+
+            Authentication authentication = new Authentication();
+            authentication.setUsername(userAccount.getEmail());
+            authentication.setUserAccount(userAccount);
+            authentication.lockPassword();
+            em.persist(authentication);
+            em.persist(new UserGroup(defaultGroup, authentication));
+            memberSearchBean.update(userAccount);
+
+            int period = MembershipMonthlyStats.periodOf(userAccount.getRegistrationDate());
+            Long count = registrations.get(period);
+            registrations.put(period, count == null ? 1L : count + 1);
+        }
+        // The inserts are sent in JDBC batches on flush.
+        em.flush();
+
+        membershipStatsBean.registered(registrations);
+        return existingEmails;
+    }
+
+    /**
+     * Returns a batch of active members to export, ordered by id, with only
+     * the exported fields.
+     * @param lastId the id of the last member of the previous batch, or an
+     * empty string to read the first one.
+     * @return arrays with the id, email, first name, last name, gender,
+     * website, twitter, the eight communication preferences and the
+     * registration date.
+     */
+    public List<Object[]> findMembersToExport(String lastId, int maxResults) {
+        return em.createQuery("select ua.id, ua.email, ua.firstName, ua.lastName, ua.gender, ua.website, ua.twitter, " +
+                              "ua.publicProfile, ua.mailingList, ua.news, ua.generalOffer, ua.jobOffer, ua.event, ua.sponsor, ua.speaker, " +
+                              "ua.registrationDate from UserAccount ua " +
+                              "where ua.deactivated = false and ua.confirmationCode is null and ua.id > :lastId order by ua.id", Object[].class)
+                 .setParameter("lastId", lastId)
+                 .setMaxResults(maxResults)
+                 .getResultList();
+    }
+
+    /**
+     * Fills the host of the website of a batch of accounts stored before the
+     * host was kept, in a transaction of its own.
+     * @param lastId the id of the last account of the previous batch, or an
+     * empty string to start from the first one.
+     * @return the id of the last account of the batch, or null if there is no
+     * account left.
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public String fillWebsiteHosts(String lastId, int batchSize) {
+        List<UserAccount> userAccounts = em.createQuery("select ua from UserAccount ua where ua.website is not null and ua.websiteHost is null and ua.id > :lastId order by ua.id", UserAccount.class)
+                                           .setParameter("lastId", lastId)
+                                           .setMaxResults(batchSize)
+                                           .getResultList();
+        for(UserAccount userAccount: userAccounts) {
+            userAccount.setWebsite(userAccount.getWebsite());
+        }
+        return userAccounts.size() == batchSize ? userAccounts.get(batchSize - 1).getId() : null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.UserAccount;
+
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the changes committed on each user account, its authentication and
+ * its groups, so data about a user kept in memory, like the authenticated user
+ * of a session, knows when it has to be loaded again.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.SUPPORTS)
+public class UserAccountVersionBean {
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    private final ConcurrentMap<String, Long> versions = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastVersion = new AtomicLong();
+
+    /**
+     * @return the version of the user account, which changes every time the
+     * user account is changed. Zero if it didn't change since the startup.
+     */
+    public long getVersion(String userAccountId) {
+        Long version = versions.get(userAccountId);
+        return version != null ? version : 0L;
+    }
+
+    /**
+     * Registers a change on the user account. If there is an active
+     * transaction, the version changes only after it commits.
+     */
+    public void changed(UserAccount userAccount) {
+        final String userAccountId = userAccount.getId();
+        if(transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            versions.put(userAccountId, lastVersion.incrementAndGet());
+            return;
+        }
+
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if(status == Status.STATUS_COMMITTED) {
+                    versions.put(userAccountId, lastVersion.incrementAndGet());
+                }
+            }
+        });
+    }
+}
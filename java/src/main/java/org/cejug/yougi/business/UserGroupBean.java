@@ -24,6 +24,7 @@ import org.cejug.yougi.entity.AccessGroup;
 import org.cejug.yougi.entity.UserAccount;
 import org.cejug.yougi.entity.UserGroup;
 
+import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -45,6 +46,9 @@ public class UserGroupBean {
     @PersistenceContext
     private EntityManager em;
 
+    @EJB
+    private UserAccountVersionBean userAccountVersionBean;
+
     public List<UserAccount> findUsersGroup(AccessGroup accessGroup) {
         return em.createQuery("select ug.userAccount from UserGroup ug where ug.accessGroup = :accessGroup order by ug.userAccount.firstName", UserAccount.class)
                  .setParameter("accessGroup", accessGroup)
@@ -86,6 +90,9 @@ public class UserGroupBean {
 
     public void update(AccessGroup accessGroup, List<UserGroup> userGroups) {
         if(userGroups.isEmpty()) {
+            for(UserGroup userGroup: findUsersGroups(accessGroup)) {
+                userAccountVersionBean.changed(userGroup.getUserAccount());
+            }
             em.createQuery("delete from UserGroup ug where ug.accessGroup = :accessGroup")
                     .setParameter("accessGroup", accessGroup)
                     .executeUpdate();
@@ -97,12 +104,14 @@ public class UserGroupBean {
         for(UserGroup userGroup: currentUserGroups) {
             if(!userGroups.contains(userGroup)) {
                 em.remove(userGroup);
+                userAccountVersionBean.changed(userGroup.getUserAccount());
             }
         }
 
         for(UserGroup userGroup: userGroups) {
             if(!currentUserGroups.contains(userGroup)) {
                 em.persist(userGroup);
+                userAccountVersionBean.changed(userGroup.getUserAccount());
             }
         }
     }
@@ -111,11 +120,13 @@ public class UserGroupBean {
         em.createQuery("delete from UserGroup ug where ug.userAccount = :userAccount")
                 .setParameter("userAccount", userAccount)
                 .executeUpdate();
+        userAccountVersionBean.changed(userAccount);
     }
 
     public void add(UserGroup userGroup) {
         if(!isUserPartOfGroup(userGroup)) {
             em.persist(userGroup);
+            userAccountVersionBean.changed(userGroup.getUserAccount());
         }
     }
 
@@ -0,0 +1,64 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fills the host of the website of the accounts stored before the host was
+ * kept in the column website_host. It runs at startup, in short batches, and
+ * finds nothing to do once all accounts are migrated, since the host is
+ * updated whenever the website changes.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Singleton
+@Startup
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class WebsiteHostMigrationBean {
+
+    private static final Logger LOGGER = Logger.getLogger(WebsiteHostMigrationBean.class.getSimpleName());
+
+    private static final int BATCH_SIZE = 500;
+
+    @EJB
+    private UserAccountBean userAccountBean;
+
+    @PostConstruct
+    public void migrate() {
+        long start = System.nanoTime();
+        int batches = 0;
+        String lastId = "";
+        do {
+            lastId = userAccountBean.fillWebsiteHosts(lastId, BATCH_SIZE);
+            batches++;
+        } while(lastId != null);
+        LOGGER.log(Level.INFO, "Website hosts filled in {0} batches and {1} ms.", new Object[]{batches, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)});
+    }
+}
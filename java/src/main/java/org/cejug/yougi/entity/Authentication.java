@@ -20,13 +20,10 @@
  * */
 package org.cejug.yougi.entity;
 
-import org.cejug.yougi.util.Base64Encoder;
+import org.cejug.yougi.util.PasswordHash;
 
 import javax.persistence.*;
 import java.io.Serializable;
-import java.io.UnsupportedEncodingException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 /**
  * Represents the authentication credentials of the user.
@@ -70,9 +67,26 @@ public class Authentication implements Serializable {
      * be invoked only in case of changing the password.
      */
     public void setPassword(String password) {
-        this.password = hashPassword(password);
+        setPassword(password, PasswordHash.DEFAULT_ITERATIONS);
     }
 
+    /**
+     * Receive a new password, hash it with the informed cost and set the
+     * password attribute.
+     * @see org.cejug.yougi.util.PasswordHash#hash(String, int)
+     */
+    public void setPassword(String password, int iterations) {
+        this.password = PasswordHash.INSTANCE.hash(password, iterations);
+    }
+
+    /**
+     * Sets a password that can't be used to sign in, until the user defines a
+     * new one.
+     * @see org.cejug.yougi.util.PasswordHash#unusable()
+     */
+    public void lockPassword() {
+        this.password = PasswordHash.INSTANCE.unusable();
+    }
 
     /**
      * @return the userAccount that is associated to the authentication credentials.
@@ -86,24 +100,13 @@ public class Authentication implements Serializable {
     }
 
     /**
-     * Hash a raw password using the SHA-256 algorithm.
+     * Hash a raw password using the SHA-256 algorithm, as passwords were hashed
+     * before adopting PBKDF2.
      * @param rawPassword non-hashed password informed by the user.
      * @return the hashed password.
+     * @see #setPassword(String, int)
      */
     public String hashPassword(String rawPassword) {
-        MessageDigest md;
-        byte[] stringBytes;
-        try {
-            md = MessageDigest.getInstance("SHA-256");
-            stringBytes = rawPassword.getBytes("UTF8");
-
-            byte[] stringCriptBytes = md.digest(stringBytes);
-            char[] encoded = Base64Encoder.encode(stringCriptBytes);
-            return String.valueOf(encoded);
-        } catch(NoSuchAlgorithmException nsae) {
-            throw new SecurityException("The Requested encoding algorithm was not found in this execution platform.", nsae);
-        } catch(UnsupportedEncodingException uee) {
-            throw new SecurityException("UTF8 is not supported in this execution platform.", uee);
-        }
+        return PasswordHash.INSTANCE.legacyHash(rawPassword);
     }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * Number of active members who accept each kind of communication. There is a
+ * single row, kept up to date as members change their preferences, so the
+ * totals are read without counting the members.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Entity
+@Table(name="communication_privacy_stats")
+public class CommunicationPrivacyStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final Integer SINGLE_ROW = 1;
+
+    // Bits describing what a member contributes to the totals.
+    public static final int ACTIVE         = 1;
+    public static final int PUBLIC_PROFILE = 1 << 1;
+    public static final int MAILING_LIST   = 1 << 2;
+    public static final int NEWS           = 1 << 3;
+    public static final int GENERAL_OFFER  = 1 << 4;
+    public static final int JOB_OFFER      = 1 << 5;
+    public static final int EVENT          = 1 << 6;
+    public static final int SPONSOR        = 1 << 7;
+    public static final int SPEAKER        = 1 << 8;
+
+    @Id
+    private Integer id = SINGLE_ROW;
+
+    private long total;
+
+    @Column(name="public_profile")
+    private long publicProfile;
+
+    @Column(name="mailing_list")
+    private long mailingList;
+
+    private long news;
+
+    @Column(name="general_offer")
+    private long generalOffer;
+
+    @Column(name="job_offer")
+    private long jobOffer;
+
+    private long event;
+
+    private long sponsor;
+
+    private long speaker;
+
+    public CommunicationPrivacyStats() {}
+
+    public CommunicationPrivacyStats(long total, long publicProfile, long mailingList, long news, long generalOffer,
+                                     long jobOffer, long event, long sponsor, long speaker) {
+        this.total = total;
+        this.publicProfile = publicProfile;
+        this.mailingList = mailingList;
+        this.news = news;
+        this.generalOffer = generalOffer;
+        this.jobOffer = jobOffer;
+        this.event = event;
+        this.sponsor = sponsor;
+        this.speaker = speaker;
+    }
+
+    /**
+     * @return the bits of the member in the totals. Deactivated members and
+     * members whose email is not confirmed are not counted at all.
+     */
+    public static int flagsOf(UserAccount userAccount) {
+        if (!Boolean.FALSE.equals(userAccount.getDeactivated()) || userAccount.getConfirmationCode() != null) {
+            return 0;
+        }
+        int flags = ACTIVE;
+        flags |= Boolean.TRUE.equals(userAccount.getPublicProfile()) ? PUBLIC_PROFILE : 0;
+        flags |= Boolean.TRUE.equals(userAccount.getMailingList()) ? MAILING_LIST : 0;
+        flags |= Boolean.TRUE.equals(userAccount.getNews()) ? NEWS : 0;
+        flags |= Boolean.TRUE.equals(userAccount.getGeneralOffer()) ? GENERAL_OFFER : 0;
+        flags |= Boolean.TRUE.equals(userAccount.getJobOffer()) ? JOB_OFFER : 0;
+        flags |= Boolean.TRUE.equals(userAccount.getEvent()) ? EVENT : 0;
+        flags |= Boolean.TRUE.equals(userAccount.getSponsor()) ? SPONSOR : 0;
+        flags |= Boolean.TRUE.equals(userAccount.getSpeaker()) ? SPEAKER : 0;
+        return flags;
+    }
+
+    /**
+     * @return 1, 0 or -1, if the bit was added, kept or removed.
+     */
+    public static int difference(int flagsBefore, int flagsAfter, int bit) {
+        return ((flagsAfter & bit) != 0 ? 1 : 0) - ((flagsBefore & bit) != 0 ? 1 : 0);
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getPublicProfile() {
+        return publicProfile;
+    }
+
+    public long getMailingList() {
+        return mailingList;
+    }
+
+    public long getNews() {
+        return news;
+    }
+
+    public long getGeneralOffer() {
+        return generalOffer;
+    }
+
+    public long getJobOffer() {
+        return jobOffer;
+    }
+
+    public long getEvent() {
+        return event;
+    }
+
+    public long getSponsor() {
+        return sponsor;
+    }
+
+    public long getSpeaker() {
+        return speaker;
+    }
+
+    /**
+     * Replaces all totals by the ones of the informed stats.
+     */
+    public void copy(CommunicationPrivacyStats other) {
+        this.total = other.total;
+        this.publicProfile = other.publicProfile;
+        this.mailingList = other.mailingList;
+        this.news = other.news;
+        this.generalOffer = other.generalOffer;
+        this.jobOffer = other.jobOffer;
+        this.event = other.event;
+        this.sponsor = other.sponsor;
+        this.speaker = other.speaker;
+    }
+}
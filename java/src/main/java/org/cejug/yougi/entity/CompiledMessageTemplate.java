@@ -0,0 +1,152 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable form of a message template, with the title and the body split in
+ * literal and variable segments. The template is parsed only once, so building
+ * a message for each recipient just copies the segments to a buffer, replacing
+ * the variables by their values. Variables without a value are kept as they
+ * are in the template.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public final class CompiledMessageTemplate {
+
+    private static final Pattern VARIABLE = Pattern.compile("\\#\\{([a-z][a-zA-Z_0-9]*(\\.)?)+\\}");
+
+    private final String sourceTitle;
+    private final String sourceBody;
+    private final Segment[] title;
+    private final Segment[] body;
+    private final int titleLength;
+    private final int bodyLength;
+
+    private CompiledMessageTemplate(String title, String body) {
+        this.sourceTitle = title;
+        this.sourceBody = body;
+        this.title = parse(title);
+        this.body = parse(body);
+        this.titleLength = title != null ? title.length() : 0;
+        this.bodyLength = body != null ? body.length() : 0;
+    }
+
+    public static CompiledMessageTemplate compile(MessageTemplate messageTemplate) {
+        return new CompiledMessageTemplate(messageTemplate.getTitle(), messageTemplate.getBody());
+    }
+
+    public static CompiledMessageTemplate compile(String title, String body) {
+        return new CompiledMessageTemplate(title, body);
+    }
+
+    /**
+     * @return true if this template was compiled from the informed title and
+     * body, thus it can be used in place of the template that has them.
+     */
+    public boolean isCompiledFrom(String title, String body) {
+        return (sourceTitle == null ? title == null : sourceTitle.equals(title)) &&
+               (sourceBody == null ? body == null : sourceBody.equals(body));
+    }
+
+    /**
+     * Builds an email message replacing the variables of the title and the
+     * body by their values.
+     * @param values values of the variables, indexed by their names.
+     * @param buffer reused to build the title and the body. Its content is
+     * discarded.
+     */
+    public EmailMessage buildEmailMessage(Map<String, ?> values, StringBuilder buffer) {
+        EmailMessage emailMessage = new EmailMessage();
+        emailMessage.setSubject(renderTitle(values, buffer));
+        emailMessage.setBody(renderBody(values, buffer));
+        return emailMessage;
+    }
+
+    public String renderTitle(Map<String, ?> values, StringBuilder buffer) {
+        return render(title, titleLength, values, buffer);
+    }
+
+    public String renderBody(Map<String, ?> values, StringBuilder buffer) {
+        return render(body, bodyLength, values, buffer);
+    }
+
+    private static String render(Segment[] segments, int length, Map<String, ?> values, StringBuilder buffer) {
+        if(segments == null) {
+            return null;
+        }
+
+        buffer.setLength(0);
+        buffer.ensureCapacity(length);
+        Object value;
+        for(Segment segment: segments) {
+            if(segment.variable != null && (value = values.get(segment.variable)) != null) {
+                buffer.append(value);
+            } else {
+                buffer.append(segment.text);
+            }
+        }
+        return buffer.toString();
+    }
+
+    private static Segment[] parse(String text) {
+        if(text == null) {
+            return null;
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        Matcher matcher = VARIABLE.matcher(text);
+        int start = 0;
+        while(matcher.find()) {
+            if(matcher.start() > start) {
+                segments.add(new Segment(text.substring(start, matcher.start()), null));
+            }
+            String variable = matcher.group();
+            segments.add(new Segment(variable, variable.substring(2, variable.length() - 1)));
+            start = matcher.end();
+        }
+        if(start < text.length()) {
+            segments.add(new Segment(text.substring(start), null));
+        }
+        return segments.toArray(new Segment[segments.size()]);
+    }
+
+    /**
+     * A piece of text copied as it is, or a variable replaced by its value.
+     * The text of a variable is its original expression, used when there is
+     * no value for it.
+     */
+    private static final class Segment {
+
+        private final String text;
+        private final String variable;
+
+        Segment(String text, String variable) {
+            this.text = text;
+            this.variable = variable;
+        }
+    }
+}
@@ -22,6 +22,9 @@ package org.cejug.yougi.entity;
 
 import org.cejug.yougi.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.UUID;
 
 /**
@@ -31,13 +34,46 @@ public enum EntitySupport {
 
     INSTANCE;
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
     /**
      * @return Returns a 32 characteres string to be used as id of entities that
      * implements the interface org.cejug.persistence.Identified.
      */
     public final String generateEntityId() {
         UUID uuid = UUID.randomUUID();
-        return uuid.toString().replaceAll("-", "").toUpperCase();
+        char[] id = new char[32];
+        toHexDigits(uuid.getMostSignificantBits(), id, 0);
+        toHexDigits(uuid.getLeastSignificantBits(), id, 16);
+        return new String(id);
+    }
+
+    /**
+     * @return Returns a 32 characteres string that identifies the informed
+     * content. It is made of the first 128 bits of the SHA-256 hash of the
+     * content, so equal contents always have the same id.
+     */
+    public final String generateContentId(String content) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae);
+        }
+
+        char[] id = new char[32];
+        for(int i = 0; i < 16; i++) {
+            id[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+            id[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+        }
+        return new String(id);
+    }
+
+    private void toHexDigits(long bits, char[] digits, int offset) {
+        for(int i = offset + 15; i >= offset; i--) {
+            digits[i] = HEX_DIGITS[(int) (bits & 0xF)];
+            bits >>>= 4;
+        }
     }
 
     /**
@@ -0,0 +1,156 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Registrations and deactivations of members in a month, and the number of
+ * active members at the end of the month. The month is identified by its
+ * period, a number in the form yyyymm.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Entity
+@Table(name="membership_monthly_stats")
+public class MembershipMonthlyStats implements Serializable, Comparable<MembershipMonthlyStats> {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private Integer period;
+
+    private long registrations;
+
+    private long deactivations;
+
+    private long total;
+
+    public MembershipMonthlyStats() {}
+
+    public MembershipMonthlyStats(Integer period) {
+        this.period = period;
+    }
+
+    /**
+     * @return the period, in the form yyyymm, of the month of the date.
+     */
+    public static int periodOf(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return periodOf(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH));
+    }
+
+    /**
+     * @param month the month as in java.util.Calendar, starting from zero.
+     */
+    public static int periodOf(int year, int month) {
+        return year * 100 + month + 1;
+    }
+
+    public static int nextPeriod(int period) {
+        return period % 100 == 12 ? period + 89 : period + 1;
+    }
+
+    public Integer getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(Integer period) {
+        this.period = period;
+    }
+
+    public int getYear() {
+        return period / 100;
+    }
+
+    /**
+     * @return the month as in java.util.Calendar, starting from zero.
+     */
+    public int getMonth() {
+        return period % 100 - 1;
+    }
+
+    public long getRegistrations() {
+        return registrations;
+    }
+
+    public void setRegistrations(long registrations) {
+        this.registrations = registrations;
+    }
+
+    public long getDeactivations() {
+        return deactivations;
+    }
+
+    public void setDeactivations(long deactivations) {
+        this.deactivations = deactivations;
+    }
+
+    /**
+     * @return the difference between registrations and deactivations.
+     */
+    public long getGrowth() {
+        return registrations - deactivations;
+    }
+
+    /**
+     * @return the number of active members at the end of the month.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    @Override
+    public int compareTo(MembershipMonthlyStats other) {
+        return period.compareTo(other.period);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MembershipMonthlyStats)) {
+            return false;
+        }
+        MembershipMonthlyStats other = (MembershipMonthlyStats) o;
+        return period != null && period.equals(other.period);
+    }
+
+    @Override
+    public int hashCode() {
+        return period != null ? period.hashCode() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(period);
+    }
+}
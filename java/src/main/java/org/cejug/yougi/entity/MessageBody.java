@@ -0,0 +1,107 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.entity;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Subject and body of a message shared by all its recipients. They may contain
+ * variables, whose values are kept in the historical message of each
+ * recipient. The id is derived from the content, so the same content is
+ * stored only once, no matter how many times it is sent.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Entity
+@Table(name = "message_body")
+public class MessageBody implements Serializable, Identified {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    private String id;
+
+    @Column(name = "subject", nullable = false)
+    private String subject;
+
+    @Column(name = "body", nullable = false)
+    private String body;
+
+    @Transient
+    private CompiledMessageTemplate compiledTemplate;
+
+    public MessageBody() {}
+
+    public MessageBody(String subject, String body) {
+        this.id = EntitySupport.INSTANCE.generateContentId(subject + '\0' + body);
+        this.subject = subject;
+        this.body = body;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return the content parsed in segments, to replace its variables by the
+     * values of each recipient.
+     */
+    public CompiledMessageTemplate getCompiledTemplate() {
+        if(this.compiledTemplate == null) {
+            this.compiledTemplate = CompiledMessageTemplate.compile(this.subject, this.body);
+        }
+        return this.compiledTemplate;
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 0;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof MessageBody)) {
+            return false;
+        }
+        MessageBody other = (MessageBody) object;
+        return this.id == null ? other.id == null : this.id.equals(other.id);
+    }
+
+    @Override
+    public String toString() {
+        return this.subject;
+    }
+}
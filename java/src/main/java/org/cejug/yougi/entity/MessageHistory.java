@@ -23,10 +23,19 @@ package org.cejug.yougi.entity;
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
+ * A message sent to a single recipient. The subject and the body, shared by
+ * all recipients of the message, are stored only once in a message body. The
+ * values of the variables of the message body, specific to the recipient, are
+ * stored in the historical message.
+ *
  * @author Hildeberto Mendonca - http://www.hildeberto.com
  */
 @Entity
@@ -35,28 +44,61 @@ public class MessageHistory implements Serializable, Identified {
 
     private static final long serialVersionUID = 1L;
 
+    // The interval between two attempts doesn't grow beyond one day.
+    private static final long MAX_RETRY_DELAY = 24 * 60 * 60 * 1000L;
+
     @Id
     private String id;
 
-    @Column(name = "subject", nullable = false)
-    private String subject;
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "message_body", nullable = false)
+    private MessageBody messageBody;
 
-    @Column(name = "body", nullable = false)
-    private String body;
+    @Column(name = "variables")
+    private String variables;
 
     @ManyToOne
     @JoinColumn(name="recipient", nullable=false)
     private UserAccount recipient;
 
-    @Column(name = "date_sent", nullable = false)
+    @Column(name = "date_queued", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date dateQueued;
+
+    @Column(name = "date_sent")
     @Temporal(TemporalType.TIMESTAMP)
     private Date dateSent;
 
     @Column(name="message_sent")
     private Boolean messageSent;
 
+    @Column(name = "delivery_attempts")
+    private Integer deliveryAttempts;
+
+    @Column(name = "next_attempt")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date nextAttempt;
+
+    @Column(name = "delivery_failed")
+    private Boolean deliveryFailed;
+
+    @Transient
+    private EmailMessage content;
+
     public MessageHistory () {}
 
+    /**
+     * @param messageBody subject and body shared by all recipients.
+     * @param recipient the user account for whom the message is sent.
+     * @param variables values of the variables of the message body for this
+     * recipient, or null if the message body has no variables.
+     */
+    public MessageHistory(MessageBody messageBody, UserAccount recipient, Map<String, ?> variables) {
+        this.messageBody = messageBody;
+        this.recipient = recipient;
+        setVariables(variables);
+    }
+
     /**
      * A factory that creates a historical message based on an email message. In
      * this case the factory considers the email message has only one recipient.
@@ -66,33 +108,69 @@ public class MessageHistory implements Serializable, Identified {
      * @see org.cejug.entity.MessageHistory#createHistoricMessages(EmailMessage emailMessage)
      */
     public static MessageHistory createHistoricMessage(EmailMessage emailMessage) {
-        MessageHistory messageHistory = new MessageHistory();
-        messageHistory.setSubject(emailMessage.getSubject());
-        messageHistory.setBody(emailMessage.getBody());
-        messageHistory.setRecipient(emailMessage.getRecipient());
-        return messageHistory;
+        MessageBody messageBody = new MessageBody(emailMessage.getSubject(), emailMessage.getBody());
+        return new MessageHistory(messageBody, emailMessage.getRecipient(), null);
     }
 
     /**
      * A factory that creates a historical message for each recipient of the
-     * email message.
+     * email message. All of them share the same message body.
      * @return A list of historical messages, one for each recipient of the message.
      */
     public static List<MessageHistory> createHistoricMessages(EmailMessage emailMessage) {
         List<MessageHistory> messageHistories = new ArrayList<>();
-        MessageHistory messageHistory;
+        MessageBody messageBody = new MessageBody(emailMessage.getSubject(), emailMessage.getBody());
 
         for(UserAccount userAccount: emailMessage.getRecipients()) {
-            messageHistory = new MessageHistory();
-            messageHistory.setRecipient(userAccount);
-            messageHistory.setSubject(emailMessage.getSubject());
-            messageHistory.setBody(emailMessage.getBody());
-            messageHistories.add(messageHistory);
+            messageHistories.add(new MessageHistory(messageBody, userAccount, null));
         }
 
         return messageHistories;
     }
 
+    /**
+     * Rebuilds the email message that this historical message represents, so
+     * it can be delivered to its single recipient.
+     * @return an email message addressed only to the recipient of this history.
+     */
+    public EmailMessage createEmailMessage() {
+        EmailMessage emailMessage = new EmailMessage();
+        emailMessage.setSubject(getSubject());
+        emailMessage.setBody(getBody());
+        emailMessage.setRecipient(this.recipient);
+        return emailMessage;
+    }
+
+    /**
+     * Registers an unsuccessful attempt to deliver this message and schedules
+     * the next one. The interval between attempts doubles at each failure,
+     * starting from the informed delay, and a random part of it is subtracted
+     * to avoid retrying many messages at the same time. When the number of
+     * attempts reaches the limit, the message is marked as permanently failed.
+     * @param maxAttempts maximum number of attempts to deliver the message.
+     * @param retryDelay interval in milliseconds before the first retry.
+     * @return true if there will be a new attempt, false if the message failed
+     * permanently.
+     */
+    public boolean registerFailedAttempt(int maxAttempts, long retryDelay) {
+        int attempts = getDeliveryAttempts() + 1;
+        this.deliveryAttempts = attempts;
+
+        if(attempts >= maxAttempts) {
+            this.deliveryFailed = Boolean.TRUE;
+            this.nextAttempt = null;
+            return false;
+        }
+
+        long delay = MAX_RETRY_DELAY;
+        if(attempts <= 30 && retryDelay < (MAX_RETRY_DELAY >> (attempts - 1))) {
+            delay = retryDelay << (attempts - 1);
+        }
+        delay -= ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        this.nextAttempt = new Date(System.currentTimeMillis() + delay);
+        return true;
+    }
+
     @Override
     public String getId() {
         return id;
@@ -103,20 +181,53 @@ public class MessageHistory implements Serializable, Identified {
         this.id = id;
     }
 
-    public String getSubject() {
-        return subject;
+    public MessageBody getMessageBody() {
+        return messageBody;
     }
 
-    public void setSubject(String subject) {
-        this.subject = subject;
+    public void setMessageBody(MessageBody messageBody) {
+        this.messageBody = messageBody;
+        this.content = null;
     }
 
+    /**
+     * @return the values of the variables of the message body for the
+     * recipient of this message.
+     */
+    public Map<String, String> getVariables() {
+        return decodeVariables(this.variables);
+    }
+
+    public void setVariables(Map<String, ?> variables) {
+        this.variables = encodeVariables(variables);
+        this.content = null;
+    }
+
+    /**
+     * @return the subject exactly as the recipient received it.
+     */
+    public String getSubject() {
+        return getContent().getSubject();
+    }
+
+    /**
+     * @return the body exactly as the recipient received it.
+     */
     public String getBody() {
-        return body;
+        return getContent().getBody();
     }
 
-    public void setBody(String body) {
-        this.body = body;
+    private EmailMessage getContent() {
+        if(this.content == null) {
+            if(this.variables == null) {
+                this.content = new EmailMessage();
+                this.content.setSubject(messageBody.getSubject());
+                this.content.setBody(messageBody.getBody());
+            } else {
+                this.content = messageBody.getCompiledTemplate().buildEmailMessage(getVariables(), new StringBuilder());
+            }
+        }
+        return this.content;
     }
 
     /**
@@ -133,6 +244,23 @@ public class MessageHistory implements Serializable, Identified {
         this.recipient = recipient;
     }
 
+    /**
+     * @return the moment the message was queued for delivery. Messages are
+     * listed in the history by this date, since messages not sent yet have no
+     * date of delivery.
+     */
+    public Date getDateQueued() {
+        return dateQueued;
+    }
+
+    public void setDateQueued(Date dateQueued) {
+        this.dateQueued = dateQueued;
+    }
+
+    /**
+     * @return the moment the message was delivered, or null if it was not
+     * sent yet.
+     */
     public Date getDateSent() {
         return dateSent;
     }
@@ -157,6 +285,106 @@ public class MessageHistory implements Serializable, Identified {
         this.messageSent = messageSent;
     }
 
+    /**
+     * @return the number of unsuccessful attempts to deliver the message.
+     */
+    public int getDeliveryAttempts() {
+        return deliveryAttempts != null ? deliveryAttempts : 0;
+    }
+
+    public void setDeliveryAttempts(Integer deliveryAttempts) {
+        this.deliveryAttempts = deliveryAttempts;
+    }
+
+    /**
+     * @return the moment from which the message can be delivered again. Null
+     * if it can be delivered at any moment.
+     */
+    public Date getNextAttempt() {
+        return nextAttempt;
+    }
+
+    public void setNextAttempt(Date nextAttempt) {
+        this.nextAttempt = nextAttempt;
+    }
+
+    /**
+     * @return true if all attempts to deliver the message failed and it will
+     * not be sent anymore.
+     */
+    public Boolean getDeliveryFailed() {
+        return deliveryFailed;
+    }
+
+    public void setDeliveryFailed(Boolean deliveryFailed) {
+        this.deliveryFailed = deliveryFailed;
+    }
+
+    /**
+     * Writes the variables as lines of name=value. Backslashes, line breaks
+     * and equal signs are escaped with a backslash.
+     */
+    static String encodeVariables(Map<String, ?> variables) {
+        if(variables == null || variables.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder encoded = new StringBuilder();
+        for(Map.Entry<String, ?> variable: variables.entrySet()) {
+            if(variable.getValue() != null) {
+                escape(variable.getKey(), encoded);
+                encoded.append('=');
+                escape(variable.getValue().toString(), encoded);
+                encoded.append('\n');
+            }
+        }
+        return encoded.toString();
+    }
+
+    static Map<String, String> decodeVariables(String encoded) {
+        if(encoded == null) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> variables = new LinkedHashMap<>();
+        StringBuilder token = new StringBuilder();
+        String name = null;
+        for(int i = 0; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+            if(c == '\\' && i + 1 < encoded.length()) {
+                char escaped = encoded.charAt(++i);
+                token.append(escaped == 'n' ? '\n' : escaped);
+            } else if(c == '=' && name == null) {
+                name = token.toString();
+                token.setLength(0);
+            } else if(c == '\n') {
+                variables.put(name, token.toString());
+                name = null;
+                token.setLength(0);
+            } else {
+                token.append(c);
+            }
+        }
+        return variables;
+    }
+
+    private static void escape(String text, StringBuilder encoded) {
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                case '=':
+                    encoded.append('\\').append(c);
+                    break;
+                case '\n':
+                    encoded.append("\\n");
+                    break;
+                default:
+                    encoded.append(c);
+            }
+        }
+    }
+
     @Override
     public int hashCode() {
         int hash = 0;
@@ -178,6 +406,6 @@ public class MessageHistory implements Serializable, Identified {
 
     @Override
     public String toString() {
-        return this.subject;
+        return getSubject();
     }
 }
\ No newline at end of file
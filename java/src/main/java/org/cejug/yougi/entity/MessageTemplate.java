@@ -22,12 +22,8 @@ package org.cejug.yougi.entity;
 
 import javax.persistence.*;
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Message template with variables to be fulfilled with object attributes.
@@ -38,8 +34,6 @@ import java.util.regex.Pattern;
 @Table(name = "message_template")
 public class MessageTemplate implements Serializable, Identified {
 
-    private static final String VAR_PATTERN = "\\#\\{([a-z][a-zA-Z_0-9]*(\\.)?)+\\}";
-
     private static final long serialVersionUID = 1L;
 
     @Id
@@ -54,11 +48,15 @@ public class MessageTemplate implements Serializable, Identified {
     @Transient
     private Map<String, Object> variablesValues;
 
+    @Transient
+    private CompiledMessageTemplate compiledTemplate;
+
     public MessageTemplate() {
         this.variablesValues = new HashMap<>();
     }
 
     public MessageTemplate(String id) {
+        this();
         this.id = id;
     }
 
@@ -78,6 +76,7 @@ public class MessageTemplate implements Serializable, Identified {
 
     public void setTitle(String title) {
         this.title = title;
+        this.compiledTemplate = null;
     }
 
     public String getBody() {
@@ -86,6 +85,7 @@ public class MessageTemplate implements Serializable, Identified {
 
     public void setBody(String body) {
         this.body = body;
+        this.compiledTemplate = null;
     }
 
     public String getTruncatedBody() {
@@ -100,44 +100,27 @@ public class MessageTemplate implements Serializable, Identified {
         this.variablesValues.put(variable, value);
     }
 
-    public EmailMessage buildEmailMessage() {
-        EmailMessage emailMessage = new EmailMessage();
-        String subject = this.title;
-        String message = this.body;
-
-        Pattern pattern = Pattern.compile(VAR_PATTERN);
-
-        List<String> variables = findVariables(pattern, this.getTitle());
-        Object value;
-        for(String variable: variables) {
-            variable = variable.substring(2, variable.length() - 1);
-            value = this.variablesValues.get(variable);
-            if(value != null) {
-                subject = subject.replace("#{" + variable + "}", this.variablesValues.get(variable).toString());
-            }
+    /**
+     * @return the template parsed in segments, compiled at the first call if
+     * it wasn't informed before.
+     */
+    public CompiledMessageTemplate getCompiledTemplate() {
+        if(this.compiledTemplate == null) {
+            this.compiledTemplate = CompiledMessageTemplate.compile(this);
         }
-        emailMessage.setSubject(subject);
-
-        variables = findVariables(pattern, this.getBody());
-        for(String variable: variables) {
-            variable = variable.substring(2, variable.length() - 1);
-            value = this.variablesValues.get(variable);
-            if(value != null) {
-                message = message.replace("#{" + variable + "}", this.variablesValues.get(variable).toString());
-            }
-        }
-        emailMessage.setBody(message);
+        return this.compiledTemplate;
+    }
 
-        return emailMessage;
+    /**
+     * @param compiledTemplate an already compiled form of this template, to
+     * avoid parsing it again.
+     */
+    public void setCompiledTemplate(CompiledMessageTemplate compiledTemplate) {
+        this.compiledTemplate = compiledTemplate;
     }
 
-    private List<String> findVariables(Pattern pattern, CharSequence charSequence) {
-        Matcher m = pattern.matcher(charSequence);
-        List<String> matches = new ArrayList<>();
-        while (m.find()) {
-            matches.add(m.group());
-        }
-        return matches;
+    public EmailMessage buildEmailMessage() {
+        return getCompiledTemplate().buildEmailMessage(this.variablesValues, new StringBuilder());
     }
 
     @Override
@@ -24,6 +24,7 @@ package org.cejug.yougi.entity;
  * @author Hildeberto Mendonca - http://www.hildeberto.com
  */
 public enum Properties {
+    ADMIN_DIGEST_INTERVAL("adminDigestInterval", "60"                    ),
     CAPTCHA_ENABLED     ("captchaEnabled",     "false"                   ),
     CAPTCHA_PRIVATE_KEY ("captchaPrivateKey",  ""                        ),
     CAPTCHA_PUBLIC_KEY  ("captchaPublicKey",   ""                        ),
@@ -35,7 +36,17 @@ public enum Properties {
     EMAIL_USER_PASSWORD ("emailUserPassword",  ""                        ),
     FILE_REPOSITORY_PATH("fileRepositoryPath", ""                        ),
     GROUP_NAME          ("groupName",          "Yougi"                   ),
+    MAIL_DELIVERY_ATTEMPTS("mailDeliveryAttempts", "5"                   ),
+    MAIL_DOMAIN_RATE_LIMIT("mailDomainRateLimit", "120"                  ),
+    MAIL_RATE_LIMIT     ("mailRateLimit",      "600"                     ),
+    MAIL_RETRY_DELAY    ("mailRetryDelay",     "60"                      ),
+    MAIL_SENDER_WORKERS ("mailSenderWorkers",  "2"                       ),
+    MESSAGE_ARCHIVE_AGE ("messageArchiveAge",  "365"                     ),
+    PASSWORD_HASH_ITERATIONS("passwordHashIterations", "20000"           ),
+    PURGE_BATCH_SIZE    ("purgeBatchSize",     "200"                     ),
+    PURGE_PAUSE         ("purgePause",         "500"                     ),
     RECEIVE_EMAILS      ("receiveEmails",      "false"                   ),
+    REPORT_CACHE_TTL    ("reportCacheTtl",     "300"                     ),
     SEND_EMAILS         ("sendEmails",         "false"                   ),
     TIMEZONE            ("timezone",           ""                        ),
     URL                 ("url",                "http://localhost:8080/ug");
@@ -22,6 +22,7 @@ package org.cejug.yougi.entity;
 
 import org.cejug.yougi.util.StringUtils;
 import org.cejug.yougi.util.TextUtils;
+import org.cejug.yougi.util.UrlUtils;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -85,6 +86,10 @@ public class UserAccount implements Serializable, Identified {
 
     private String website;
 
+    // Host of the website, as returned by UrlUtils.getHost, to find members by website.
+    @Column(name="website_host")
+    private String websiteHost;
+
     private String twitter;
 
     @ManyToOne
@@ -124,6 +129,10 @@ public class UserAccount implements Serializable, Identified {
 
     private Boolean verified = false;
 
+    // Communication preferences as they were stored, to update the totals when they change.
+    @Transient
+    private int storedPrivacyFlags;
+
     public UserAccount() {}
 
     public UserAccount(String id) {
@@ -294,6 +303,15 @@ public class UserAccount implements Serializable, Identified {
         } else {
             this.website = website;
         }
+        this.websiteHost = UrlUtils.INSTANCE.getHost(this.website);
+    }
+
+    /**
+     * @return the host of the website, in lowercase and without the prefix
+     * www, or null if there is no website.
+     */
+    public String getWebsiteHost() {
+        return websiteHost;
     }
 
     public String getTwitter() {
@@ -460,6 +478,24 @@ public class UserAccount implements Serializable, Identified {
         return confirmationCode == null;
     }
 
+    /**
+     * @return the flags of the communication preferences when the account was
+     * loaded or last counted in the communication privacy stats.
+     * @see CommunicationPrivacyStats#flagsOf(UserAccount)
+     */
+    public int getStoredPrivacyFlags() {
+        return storedPrivacyFlags;
+    }
+
+    public void setStoredPrivacyFlags(int storedPrivacyFlags) {
+        this.storedPrivacyFlags = storedPrivacyFlags;
+    }
+
+    @PostLoad
+    void rememberPrivacyFlags() {
+        this.storedPrivacyFlags = CommunicationPrivacyStats.flagsOf(this);
+    }
+
     @Override
     public String toString() {
         return getFullName();
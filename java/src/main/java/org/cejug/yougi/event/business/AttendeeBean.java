@@ -26,7 +26,6 @@ import org.cejug.yougi.event.entity.Attendee;
 import org.cejug.yougi.event.entity.Certificate;
 import org.cejug.yougi.event.entity.Event;
 
-import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -48,9 +47,6 @@ public class AttendeeBean extends AbstractBean<Attendee> {
     @PersistenceContext
     private EntityManager em;
 
-    @EJB
-    private EventBean eventBean;
-
     public AttendeeBean() {
         super(Attendee.class);
     }
@@ -104,17 +100,13 @@ public class AttendeeBean extends AbstractBean<Attendee> {
      * Find the attendees from the informed event and from all its sub-events.
      * @param event the event on which attendees are registered. Also considered
      * as the parent of other events.
-     * @return a list of found attendees.
+     * @return a list of found attendees, from the informed event first and then
+     * from the sub-events, level by level.
      */
     public List<Attendee> findAllAttendees(Event event) {
-        List<Attendee> attendees = findAttendees(event);
-        List<Event> subEvents = eventBean.findEvents(event);
-        if(subEvents != null && !subEvents.isEmpty()) {
-            for(Event subEvent: subEvents) {
-                attendees.addAll(findAllAttendees(subEvent));
-            }
-        }
-        return attendees;
+        return em.createQuery("select a from EventClosure c, Attendee a where c.id.ancestor = :event and a.event.id = c.id.descendant order by c.depth, a.event.startDate, a.userAccount.firstName asc", Attendee.class)
+                 .setParameter("event", event.getId())
+                 .getResultList();
     }
 
     public List<Attendee> findAttendeesWhoAttended(Event event) {
@@ -24,9 +24,11 @@ import org.cejug.yougi.business.AbstractBean;
 import org.cejug.yougi.business.MessageTemplateBean;
 import org.cejug.yougi.business.MessengerBean;
 import org.cejug.yougi.entity.EmailMessage;
+import org.cejug.yougi.entity.EntitySupport;
 import org.cejug.yougi.entity.MessageTemplate;
 import org.cejug.yougi.entity.UserAccount;
 import org.cejug.yougi.event.entity.Event;
+import org.cejug.yougi.event.entity.EventClosure;
 import org.cejug.yougi.util.TextUtils;
 
 import javax.ejb.EJB;
@@ -97,6 +99,98 @@ public class EventBean extends AbstractBean<Event> {
         return loadVenues(events);
     }
 
+    /**
+     * Saves the event and keeps the hierarchy of events up to date. When the
+     * parent of an existing event changes, the event moves to the new parent
+     * with all its sub-events.
+     */
+    @Override
+    public Event save(Event event) {
+        String parent = event.getParent() != null ? event.getParent().getId() : null;
+        if(EntitySupport.INSTANCE.isIdNotValid(event)) {
+            Event savedEvent = super.save(event);
+            em.persist(new EventClosure(savedEvent.getId(), savedEvent.getId(), 0));
+            attach(savedEvent.getId(), parent);
+            return savedEvent;
+        }
+
+        List<String> subtree = findSubtree(event.getId());
+        if(parent != null && subtree.contains(parent)) {
+            throw new IllegalArgumentException("The event " + event.getId() + " cannot be a sub-event of itself or of its sub-events.");
+        }
+        String previousParent = findParent(event.getId());
+        Event savedEvent = super.save(event);
+        if(parent == null ? previousParent != null : !parent.equals(previousParent)) {
+            detach(subtree);
+            attach(event.getId(), parent);
+        }
+        return savedEvent;
+    }
+
+    /**
+     * Removes the event. Its sub-events become events without parent, as the
+     * foreign key of the parent does in the database.
+     */
+    @Override
+    public void remove(String id) {
+        detach(findSubtree(id));
+        em.createQuery("delete from EventClosure c where c.id.ancestor = :event or c.id.descendant = :event")
+          .setParameter("event", id)
+          .executeUpdate();
+        super.remove(id);
+    }
+
+    /**
+     * @return the ids of the event and of all its sub-events, at any level.
+     */
+    private List<String> findSubtree(String event) {
+        return em.createQuery("select c.id.descendant from EventClosure c where c.id.ancestor = :event", String.class)
+                 .setParameter("event", event)
+                 .getResultList();
+    }
+
+    private String findParent(String event) {
+        List<String> parents = em.createQuery("select c.id.ancestor from EventClosure c where c.id.descendant = :event and c.depth = 1", String.class)
+                                 .setParameter("event", event)
+                                 .getResultList();
+        return parents.isEmpty() ? null : parents.get(0);
+    }
+
+    /**
+     * Removes the paths from the ancestors of the subtree to the events of the
+     * subtree, keeping the paths inside of it.
+     */
+    private void detach(List<String> subtree) {
+        if(subtree.isEmpty()) {
+            return;
+        }
+        em.createQuery("delete from EventClosure c where c.id.descendant in :subtree and c.id.ancestor not in :subtree")
+          .setParameter("subtree", subtree)
+          .executeUpdate();
+    }
+
+    /**
+     * Adds the paths from the parent and from all its ancestors to the event
+     * and to all its sub-events.
+     */
+    private void attach(String event, String parent) {
+        if(parent == null) {
+            return;
+        }
+        List<EventClosure> ancestors = em.createQuery("select c from EventClosure c where c.id.descendant = :parent", EventClosure.class)
+                                         .setParameter("parent", parent)
+                                         .getResultList();
+        List<EventClosure> descendants = em.createQuery("select c from EventClosure c where c.id.ancestor = :event", EventClosure.class)
+                                           .setParameter("event", event)
+                                           .getResultList();
+        for(EventClosure ancestor: ancestors) {
+            for(EventClosure descendant: descendants) {
+                em.persist(new EventClosure(ancestor.getId().getAncestor(), descendant.getId().getDescendant(),
+                                            ancestor.getDepth() + descendant.getDepth() + 1));
+            }
+        }
+    }
+
     private List<Event> loadVenues(List<Event> events) {
         if(events != null) {
             for(Event event: events) {
@@ -72,6 +72,35 @@ public class SessionBean extends AbstractBean<SessionEvent> {
         return loadSpeakers(sessions);
     }
 
+    /**
+     * Returns the sessions of the event and of all its sub-events, at any
+     * level, with their speakers. The sessions and their speakers are loaded by
+     * one query each, no matter the number of sub-events.
+     * @param event The event at the top of the hierarchy of events.
+     */
+    public List<SessionEvent> findAllSessionsWithSpeakers(Event event) {
+        List<SessionEvent> sessions = em.createQuery("select s from EventClosure c, SessionEvent s where c.id.ancestor = :event and s.event.id = c.id.descendant order by s.startDate, s.startTime asc", SessionEvent.class)
+                                        .setParameter("event", event.getId())
+                                        .getResultList();
+
+        Map<String, List<Speaker>> speakers = new HashMap<>();
+        for(SpeakerSession speakerSession: speakerBean.findAllSpeakerSessions(event)) {
+            String session = speakerSession.getSessionEvent().getId();
+            List<Speaker> sessionSpeakers = speakers.get(session);
+            if(sessionSpeakers == null) {
+                sessionSpeakers = new ArrayList<>();
+                speakers.put(session, sessionSpeakers);
+            }
+            sessionSpeakers.add(speakerSession.getSpeaker());
+        }
+
+        for(SessionEvent session: sessions) {
+            List<Speaker> sessionSpeakers = speakers.get(session.getId());
+            session.setSpeakers(sessionSpeakers != null ? sessionSpeakers : new ArrayList<Speaker>());
+        }
+        return sessions;
+    }
+
     private List<SessionEvent> loadSpeakers(List<SessionEvent> sessions) {
         if(sessions != null) {
             for(SessionEvent session: sessions) {
@@ -31,6 +31,7 @@ import org.cejug.yougi.entity.UserGroup;
 import org.cejug.yougi.event.entity.Event;
 import org.cejug.yougi.event.entity.SessionEvent;
 import org.cejug.yougi.event.entity.Speaker;
+import org.cejug.yougi.event.entity.SpeakerSession;
 
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
@@ -99,6 +100,16 @@ public class SpeakerBean extends AbstractBean<Speaker> {
                                    .getResultList();
     }
 
+    /**
+     * Returns the speakers of all sessions of the event and of its sub-events,
+     * at any level, ordered by the name of the speakers.
+     */
+    public List<SpeakerSession> findAllSpeakerSessions(Event event) {
+        return em.createQuery("select ss from EventClosure c, SpeakerSession ss join fetch ss.speaker sp join fetch sp.userAccount ua where c.id.ancestor = :event and ss.sessionEvent.event.id = c.id.descendant order by ua.firstName asc", SpeakerSession.class)
+                 .setParameter("event", event.getId())
+                 .getResultList();
+    }
+
     /**
      * Returns the list of speakers from a specific session only.
      */
@@ -0,0 +1,92 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.event.entity;
+
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * A path in the hierarchy of events, from an event to one of its sub-events at
+ * any level. Every event is also related to itself with depth zero, so all
+ * events of a tree are found by a single query on the ancestor, without
+ * walking the tree one level at a time.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Entity
+@Table(name = "event_closure")
+public class EventClosure implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @EmbeddedId
+    private EventClosureId id;
+
+    private Integer depth;
+
+    public EventClosure() {
+    }
+
+    public EventClosure(String ancestor, String descendant, Integer depth) {
+        this.id = new EventClosureId(ancestor, descendant);
+        this.depth = depth;
+    }
+
+    public EventClosureId getId() {
+        return id;
+    }
+
+    public void setId(EventClosureId id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the number of levels between the ancestor and the descendant.
+     * Zero when they are the same event.
+     */
+    public Integer getDepth() {
+        return depth;
+    }
+
+    public void setDepth(Integer depth) {
+        this.depth = depth;
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 0;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof EventClosure)) {
+            return false;
+        }
+        EventClosure other = (EventClosure) object;
+        return id != null ? id.equals(other.id) : other.id == null;
+    }
+
+    @Override
+    public String toString() {
+        return id + " depth=" + depth;
+    }
+}
@@ -0,0 +1,91 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.event.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Embeddable
+public class EventClosureId implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Column(nullable = false)
+    private String ancestor;
+
+    @Column(nullable = false)
+    private String descendant;
+
+    public EventClosureId() {
+    }
+
+    public EventClosureId(String ancestor, String descendant) {
+        this.ancestor = ancestor;
+        this.descendant = descendant;
+    }
+
+    public String getAncestor() {
+        return ancestor;
+    }
+
+    public void setAncestor(String ancestor) {
+        this.ancestor = ancestor;
+    }
+
+    public String getDescendant() {
+        return descendant;
+    }
+
+    public void setDescendant(String descendant) {
+        this.descendant = descendant;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        hash += (ancestor != null ? ancestor.hashCode() : 0);
+        hash += (descendant != null ? descendant.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof EventClosureId)) {
+            return false;
+        }
+        EventClosureId other = (EventClosureId) object;
+        if ((this.ancestor == null && other.ancestor != null) || (this.ancestor != null && !this.ancestor.equals(other.ancestor))) {
+            return false;
+        }
+        if ((this.descendant == null && other.descendant != null) || (this.descendant != null && !this.descendant.equals(other.descendant))) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "[ancestor=" + ancestor + ", descendant=" + descendant + "]";
+    }
+}
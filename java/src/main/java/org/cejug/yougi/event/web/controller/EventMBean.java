@@ -20,11 +20,10 @@
  * */
 package org.cejug.yougi.event.web.controller;
 
-import org.cejug.yougi.business.UserAccountBean;
 import org.cejug.yougi.entity.UserAccount;
 import org.cejug.yougi.event.business.*;
 import org.cejug.yougi.event.entity.*;
-import org.cejug.yougi.qualifier.UserName;
+import org.cejug.yougi.util.AuthenticatedUser;
 import org.cejug.yougi.util.WebTextUtils;
 import org.cejug.yougi.web.controller.UserProfileMBean;
 import org.primefaces.model.chart.PieChartModel;
@@ -35,8 +34,15 @@ import javax.faces.bean.ManagedBean;
 import javax.faces.bean.ManagedProperty;
 import javax.faces.bean.RequestScoped;
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 
 /**
@@ -61,9 +67,6 @@ public class EventMBean {
     @EJB
     private AttendeeBean attendeeBean;
 
-    @EJB
-    private UserAccountBean userAccountBean;
-
     @EJB
     private EventVenueBean eventVenueBean;
 
@@ -77,8 +80,7 @@ public class EventMBean {
     private UserProfileMBean userProfileMBean;
 
     @Inject
-    @UserName
-    private String username;
+    private AuthenticatedUser authenticatedUser;
 
     private Event event;
     private Attendee attendee;
@@ -88,9 +90,9 @@ public class EventMBean {
     private List<Event> subEvents;
     private List<Event> parentEvents;
     private List<Venue> venues;
-    private List<SessionEvent> sessions;
+    private Map<String, List<SessionEvent>> sessions;
     private List<Track> tracks;
-    private List<Speaker> speakers;
+    private Map<String, List<Speaker>> speakers;
     private List<Attendee> attendees;
     private List<SponsorshipEvent> sponsors;
 
@@ -186,14 +188,33 @@ public class EventMBean {
     }
 
     public List<SessionEvent> getSessions() {
-        if (sessions == null) {
-            sessions = sessionBean.findSessionsWithSpeakers(this.event);
-        }
-        return sessions;
+        return getSessions(this.event);
     }
 
     public List<SessionEvent> getSessions(Event event) {
-        return sessionBean.findSessionsWithSpeakers(event);
+        List<SessionEvent> eventSessions = getSessionsByEvent().get(event.getId());
+        return eventSessions != null ? eventSessions : Collections.<SessionEvent>emptyList();
+    }
+
+    /**
+     * Loads the sessions of the event and of all its sub-events at once, to
+     * avoid querying them for each sub-event shown on the page.
+     */
+    private Map<String, List<SessionEvent>> getSessionsByEvent() {
+        if (sessions == null) {
+            sessions = new HashMap<>();
+            if (this.event.getId() != null) {
+                for (SessionEvent session : sessionBean.findAllSessionsWithSpeakers(this.event)) {
+                    List<SessionEvent> eventSessions = sessions.get(session.getEvent().getId());
+                    if (eventSessions == null) {
+                        eventSessions = new ArrayList<>();
+                        sessions.put(session.getEvent().getId(), eventSessions);
+                    }
+                    eventSessions.add(session);
+                }
+            }
+        }
+        return sessions;
     }
 
     public List<Track> getTracks() {
@@ -208,14 +229,33 @@ public class EventMBean {
     }
 
     public List<Speaker> getSpeakers() {
-        if (speakers == null) {
-            speakers = speakerBean.findSpeakers(this.event);
-        }
-        return speakers;
+        return getSpeakers(this.event);
     }
 
+    /**
+     * @return the speakers of the sessions of the event, taken from the
+     * sessions already loaded for the whole hierarchy of events.
+     */
     public List<Speaker> getSpeakers(Event event) {
-        return speakerBean.findSpeakers(event);
+        if (speakers == null) {
+            speakers = new HashMap<>();
+        }
+        List<Speaker> eventSpeakers = speakers.get(event.getId());
+        if (eventSpeakers == null) {
+            Set<Speaker> distinctSpeakers = new LinkedHashSet<>();
+            for (SessionEvent session : getSessions(event)) {
+                distinctSpeakers.addAll(session.getSpeakers());
+            }
+            eventSpeakers = new ArrayList<>(distinctSpeakers);
+            Collections.sort(eventSpeakers, new Comparator<Speaker>() {
+                @Override
+                public int compare(Speaker speaker, Speaker other) {
+                    return speaker.getUserAccount().getFirstName().compareTo(other.getUserAccount().getFirstName());
+                }
+            });
+            speakers.put(event.getId(), eventSpeakers);
+        }
+        return eventSpeakers;
     }
 
     public List<Attendee> getAttendees() {
@@ -275,7 +315,7 @@ public class EventMBean {
                 this.selectedParent = this.event.getParent().getId();
             }
 
-            UserAccount person = userAccountBean.findByUsername(username);
+            UserAccount person = authenticatedUser.getUserAccount();
 
             this.attendee = attendeeBean.find(this.event, person);
 
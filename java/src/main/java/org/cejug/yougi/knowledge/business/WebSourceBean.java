@@ -77,13 +77,20 @@ public class WebSourceBean extends AbstractBean<WebSource> {
     	return em.createQuery("select ws from WebSource ws order by ws.title asc", WebSource.class).getResultList();
     }
 
+    /**
+     * @return active members with a website that is not a web source yet,
+     * ordered by name. Members without a web source are found with an
+     * anti-join on the provider of the web sources.
+     */
+    @SuppressWarnings("unchecked")
     public List<UserAccount> findNonReferencedProviders() {
-        return em.createQuery("select ua from UserAccount ua " +
+        return em.createNativeQuery("select ua.* from user_account ua " +
+                "left join web_source ws on ws.provider = ua.id " +
                 "where ua.deactivated = false and " +
-                    "ua.confirmationCode is null and " +
-                    "(ua.website is not null and ua.website <> '') and " +
-                    "ua not in (select distinct ws.provider from WebSource ws) " +
-                "order by ua.firstName", UserAccount.class)
+                    "ua.confirmation_code is null and " +
+                    "ua.website_host is not null and " +
+                    "ws.id is null " +
+                "order by ua.first_name", UserAccount.class)
                 .getResultList();
     }
 
@@ -21,13 +21,12 @@
 package org.cejug.yougi.partnership.web.controller;
 
 import org.cejug.yougi.business.ApplicationPropertyBean;
-import org.cejug.yougi.business.UserAccountBean;
 import org.cejug.yougi.entity.*;
 import org.cejug.yougi.partnership.business.PartnerBean;
 import org.cejug.yougi.partnership.business.RepresentativeBean;
 import org.cejug.yougi.partnership.entity.Partner;
 import org.cejug.yougi.partnership.entity.Representative;
-import org.cejug.yougi.qualifier.UserName;
+import org.cejug.yougi.util.AuthenticatedUser;
 import org.cejug.yougi.util.WebTextUtils;
 import org.cejug.yougi.web.controller.LocationMBean;
 import org.primefaces.event.FileUploadEvent;
@@ -59,9 +58,6 @@ public class PartnershipMBean {
     @EJB
     private RepresentativeBean representativeBean;
 
-    @EJB
-    private UserAccountBean userAccountBean;
-
     @EJB
     private PartnerBean partnerBean;
 
@@ -72,8 +68,7 @@ public class PartnershipMBean {
     private LocationMBean locationMBean;
 
     @Inject
-    @UserName
-    private String username;
+    private AuthenticatedUser authenticatedUser;
 
     @Inject
     private FacesContext context;
@@ -131,7 +126,7 @@ public class PartnershipMBean {
 
     @PostConstruct
     public void load() {
-        UserAccount person = userAccountBean.findByUsername(username);
+        UserAccount person = authenticatedUser.getUserAccount();
         this.representative = representativeBean.findRepresentative(person);
 
         if (this.representative == null) {
@@ -206,7 +201,7 @@ public class PartnershipMBean {
         LOGGER.log(Level.INFO, "JUG-0001: File {0} of type {1} temporarely uploaded to {2}", new String[]{uploadedFile.getFileName(), uploadedFile.getContentType(), System.getProperty("java.io.tmpdir")});
         try {
             /* Loads the representative related to the logged user. */
-            UserAccount person = userAccountBean.findByUsername(username);
+            UserAccount person = authenticatedUser.getUserAccount();
             this.representative = representativeBean.findRepresentative(person);
 
             /* Write the inputStream to a FileOutputStream */
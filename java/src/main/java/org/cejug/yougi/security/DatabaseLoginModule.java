@@ -0,0 +1,103 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.security;
+
+import org.cejug.yougi.entity.Properties;
+import org.cejug.yougi.util.PasswordHash;
+import org.cejug.yougi.util.PasswordVerifier;
+import org.jboss.security.auth.spi.DatabaseServerLoginModule;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Database login module of the security domain Ug that accepts passwords
+ * hashed with PBKDF2 as well as the legacy SHA-256 hashes. Everything else,
+ * including the options dsJndiName, principalsQuery and rolesQuery, is
+ * inherited from the database login module of the server. When a password
+ * matches a legacy hash, or a hash with a cost different from the property
+ * passwordHashIterations, it is hashed again with the current cost. The
+ * configuration of the security domain is described in the file README.md.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class DatabaseLoginModule extends DatabaseServerLoginModule {
+
+    private static final Logger LOGGER = Logger.getLogger(DatabaseLoginModule.class.getSimpleName());
+
+    /**
+     * @param inputPassword the password typed by the user.
+     * @param expectedPassword the hash stored in the table authentication.
+     */
+    @Override
+    protected boolean validatePassword(String inputPassword, String expectedPassword) {
+        if(inputPassword == null || expectedPassword == null || !PasswordVerifier.INSTANCE.matches(inputPassword, expectedPassword)) {
+            return false;
+        }
+
+        try (Connection connection = lookupDataSource().getConnection()) {
+            int iterations = findHashIterations(connection);
+            if(PasswordHash.INSTANCE.needsRehash(expectedPassword, iterations)) {
+                updatePassword(connection, getUsername(), expectedPassword, PasswordHash.INSTANCE.hash(inputPassword, iterations));
+            }
+        } catch(SQLException | NamingException e) {
+            LOGGER.log(Level.WARNING, "The password of "+ getUsername() +" was not hashed again.", e);
+        }
+        return true;
+    }
+
+    private DataSource lookupDataSource() throws NamingException {
+        return (DataSource) new InitialContext().lookup(dsJndiName);
+    }
+
+    private int findHashIterations(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select property_value from application_property where property_key = ?")) {
+            statement.setString(1, Properties.PASSWORD_HASH_ITERATIONS.getKey());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if(resultSet.next()) {
+                    return Math.max(Integer.parseInt(resultSet.getString(1).trim()), 1);
+                }
+            } catch(NumberFormatException | NullPointerException e) {
+                LOGGER.log(Level.WARNING, "Invalid value for {0}. Using the default value.", Properties.PASSWORD_HASH_ITERATIONS.getKey());
+            }
+        }
+        return PasswordHash.DEFAULT_ITERATIONS;
+    }
+
+    /**
+     * Replaces the password only if it was not changed meanwhile.
+     */
+    private void updatePassword(Connection connection, String user, String oldHash, String newHash) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("update authentication set password = ? where username = ? and password = ?")) {
+            statement.setString(1, newHash);
+            statement.setString(2, user);
+            statement.setString(3, oldHash);
+            statement.executeUpdate();
+        }
+    }
+}
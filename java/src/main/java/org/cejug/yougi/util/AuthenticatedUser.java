@@ -0,0 +1,143 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.cejug.yougi.business.AuthenticationBean;
+import org.cejug.yougi.business.UserAccountBean;
+import org.cejug.yougi.business.UserAccountVersionBean;
+import org.cejug.yougi.business.UserGroupBean;
+import org.cejug.yougi.entity.Authentication;
+import org.cejug.yougi.entity.UserAccount;
+import org.cejug.yougi.entity.UserGroup;
+
+import javax.enterprise.context.SessionScoped;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The user authenticated in the session, with its authentication and the
+ * names of its groups. They are loaded once per login and loaded again only
+ * when the user account, its email or its groups are changed.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@SessionScoped
+public class AuthenticatedUser implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Inject
+    private UserAccountBean userAccountBean;
+
+    @Inject
+    private AuthenticationBean authenticationBean;
+
+    @Inject
+    private UserGroupBean userGroupBean;
+
+    @Inject
+    private UserAccountVersionBean userAccountVersionBean;
+
+    @Inject
+    private HttpServletRequest httpServletRequest;
+
+    private String username;
+    private UserAccount userAccount;
+    private Authentication authentication;
+    private Set<String> groups = Collections.emptySet();
+    private long version;
+
+    /**
+     * @return the account of the authenticated user or null if nobody is
+     * authenticated.
+     */
+    public UserAccount getUserAccount() {
+        refresh();
+        return userAccount;
+    }
+
+    public Authentication getAuthentication() {
+        refresh();
+        return authentication;
+    }
+
+    /**
+     * @return the names of the access groups of the authenticated user.
+     */
+    public Set<String> getGroups() {
+        refresh();
+        return groups;
+    }
+
+    public boolean isMemberOf(String groupName) {
+        return getGroups().contains(groupName);
+    }
+
+    private synchronized void refresh() {
+        String remoteUser = httpServletRequest.getRemoteUser();
+        if(remoteUser == null) {
+            clear();
+            return;
+        }
+
+        if(!remoteUser.equals(username)) {
+            // The version is read before loading the rest, so a change committed meanwhile causes another load.
+            username = remoteUser;
+            UserAccount loaded = userAccountBean.findByUsername(username);
+            version = loaded != null ? userAccountVersionBean.getVersion(loaded.getId()) : 0L;
+            load(loaded);
+        } else if(userAccount != null) {
+            long currentVersion = userAccountVersionBean.getVersion(userAccount.getId());
+            if(currentVersion != version) {
+                version = currentVersion;
+                load(userAccountBean.find(userAccount.getId()));
+            }
+        }
+    }
+
+    private void load(UserAccount userAccount) {
+        this.userAccount = userAccount;
+        if(userAccount == null) {
+            this.authentication = null;
+            this.groups = Collections.emptySet();
+            return;
+        }
+
+        this.authentication = authenticationBean.findByUserAccount(userAccount);
+        Set<String> groupNames = new HashSet<>();
+        for(UserGroup userGroup: userGroupBean.findUserGroups(userAccount)) {
+            groupNames.add(userGroup.getAccessGroup().getName());
+        }
+        this.groups = Collections.unmodifiableSet(groupNames);
+    }
+
+    private void clear() {
+        this.username = null;
+        this.userAccount = null;
+        this.authentication = null;
+        this.groups = Collections.emptySet();
+        this.version = 0L;
+    }
+}
@@ -14,6 +14,8 @@
  * */
 package org.cejug.yougi.util;
 
+import java.nio.CharBuffer;
+
 /**
  * A Base64 Encoder/Decoder.
  *
@@ -39,11 +41,12 @@ package org.cejug.yougi.util;
  * 2009-09-16: Additional license (BSD) added.<br>
  * 2009-09-16: Additional license (BSD) added.<br>
  * 2010-01-27: Package name added.<br>
+ * 2014-05-16: Encoding and decoding into arrays supplied by the caller.<br>
  */
 public final class Base64Encoder {
 
     // Mapping table from 6-bit nibbles to Base64 characters.
-    private static char[] map1 = new char[64];
+    private static final char[] map1 = new char[64];
 
     static {
         int i = 0;
@@ -61,7 +64,7 @@ public final class Base64Encoder {
     }
 
     // Mapping table from Base64 characters to 6-bit nibbles.
-    private static byte[] map2 = new byte[128];
+    private static final byte[] map2 = new byte[128];
 
     static {
         for (int i = 0; i < map2.length; i++) {
@@ -75,6 +78,27 @@ public final class Base64Encoder {
     // Dummy constructor.
     private Base64Encoder() {}
 
+    /**
+     * @param iLen number of bytes to encode.
+     * @return The number of characters of the encoded data, including padding.
+     */
+    public static int encodedLength(int iLen) {
+        return ((iLen + 2) / 3) * 4;
+    }
+
+    /**
+     * @param in a Base64 encoded data.
+     * @param iOff position of the first character of the encoded data.
+     * @param iLen number of characters of the encoded data, including padding.
+     * @return The number of bytes of the decoded data.
+     */
+    public static int decodedLength(CharSequence in, int iOff, int iLen) {
+        while (iLen > 0 && in.charAt(iOff + iLen - 1) == '=') {
+            iLen--;
+        }
+        return (iLen * 3) / 4;
+    }
+
     /**
      * Encodes a string into Base64 format. No blanks or line breaks are
      * inserted.
@@ -106,29 +130,50 @@ public final class Base64Encoder {
      * @return A character array with the Base64 encoded data.
      */
     public static char[] encode(byte[] in, int iLen) {
-        // output length without padding
-        int oDataLen = (iLen * 4 + 2) / 3;
-        // output length including padding
-        int oLen = ((iLen + 2) / 3) * 4;
-        char[] out = new char[oLen];
-        int ip = 0;
-        int op = 0;
-        while (ip < iLen) {
+        char[] out = new char[encodedLength(iLen)];
+        encode(in, 0, iLen, out, 0);
+        return out;
+    }
+
+    /**
+     * Encodes a byte array into Base64 format, writing the result in an array
+     * supplied by the caller, which can be reused from one call to another to
+     * avoid allocations. No blanks or line breaks are inserted.
+     *
+     * @param in an array containing the data bytes to be encoded.
+     * @param iOff position of the first byte to encode.
+     * @param iLen number of bytes to process in <code>in</code>.
+     * @param out the array that receives the encoded data. It must have at
+     * least <code>encodedLength(iLen)</code> positions after <code>oOff</code>.
+     * @param oOff position of <code>out</code> where the encoded data starts.
+     * @return The number of characters written in <code>out</code>.
+     */
+    public static int encode(byte[] in, int iOff, int iLen, char[] out, int oOff) {
+        int oLen = encodedLength(iLen);
+        if (out.length - oOff < oLen) {
+            throw new IllegalArgumentException("Output buffer too small for the Base64 encoded data.");
+        }
+        int ip = iOff;
+        int op = oOff;
+        // Complete groups of 3 bytes, without checks for padding.
+        int iEnd = iOff + (iLen / 3) * 3;
+        while (ip < iEnd) {
+            int bits = (in[ip++] & 0xff) << 16 | (in[ip++] & 0xff) << 8 | (in[ip++] & 0xff);
+            out[op++] = map1[(bits >>> 18) & 0x3f];
+            out[op++] = map1[(bits >>> 12) & 0x3f];
+            out[op++] = map1[(bits >>> 6) & 0x3f];
+            out[op++] = map1[bits & 0x3f];
+        }
+        int remaining = iOff + iLen - ip;
+        if (remaining > 0) {
             int i0 = in[ip++] & 0xff;
-            int i1 = ip < iLen ? in[ip++] & 0xff : 0;
-            int i2 = ip < iLen ? in[ip++] & 0xff : 0;
-            int o0 = i0 >>> 2;
-            int o1 = ((i0 & 3) << 4) | (i1 >>> 4);
-            int o2 = ((i1 & 0xf) << 2) | (i2 >>> 6);
-            int o3 = i2 & 0x3F;
-            out[op++] = map1[o0];
-            out[op++] = map1[o1];
-            out[op] = op < oDataLen ? map1[o2] : '=';
-            op++;
-            out[op] = op < oDataLen ? map1[o3] : '=';
-            op++;
+            int i1 = remaining == 2 ? in[ip] & 0xff : 0;
+            out[op++] = map1[i0 >>> 2];
+            out[op++] = map1[((i0 & 3) << 4) | (i1 >>> 4)];
+            out[op++] = remaining == 2 ? map1[(i1 & 0xf) << 2] : '=';
+            out[op++] = '=';
         }
-        return out;
+        return oLen;
     }
 
     /**
@@ -152,7 +197,7 @@ public final class Base64Encoder {
      * data.
      */
     public static byte[] decode(String s) {
-        return decode(s.toCharArray());
+        return decode(s, 0, s.length());
     }
 
     /**
@@ -165,43 +210,74 @@ public final class Base64Encoder {
      * data.
      */
     public static byte[] decode(char[] in) {
-        int iLen = in.length;
-        if (iLen % 4 != 0) {
-            throw new IllegalArgumentException("Length of Base64 encoded input string is not a multiple of 4.");
-        }
-        while (iLen > 0 && in[iLen - 1] == '=') {
+        return decode(CharBuffer.wrap(in), 0, in.length);
+    }
+
+    private static byte[] decode(CharSequence in, int iOff, int iLen) {
+        checkLength(iLen);
+        byte[] out = new byte[decodedLength(in, iOff, iLen)];
+        decode(in, iOff, iLen, out, 0);
+        return out;
+    }
+
+    /**
+     * Decodes Base64 encoded data, writing the result in an array supplied by
+     * the caller, which can be reused from one call to another to avoid
+     * allocations. No blanks or line breaks are allowed within the Base64
+     * encoded data.
+     *
+     * @param in a String, StringBuilder or CharBuffer containing the Base64
+     * encoded data.
+     * @param iOff position of the first character to decode.
+     * @param iLen number of characters to process in <code>in</code>.
+     * @param out the array that receives the decoded bytes. It must have at
+     * least <code>decodedLength(in, iOff, iLen)</code> positions after
+     * <code>oOff</code>.
+     * @param oOff position of <code>out</code> where the decoded data starts.
+     * @return The number of bytes written in <code>out</code>.
+     * @throws IllegalArgumentException if the input is not valid Base64 encoded
+     * data or the output buffer is too small.
+     */
+    public static int decode(CharSequence in, int iOff, int iLen, byte[] out, int oOff) {
+        checkLength(iLen);
+        while (iLen > 0 && in.charAt(iOff + iLen - 1) == '=') {
             iLen--;
         }
         int oLen = (iLen * 3) / 4;
-        byte[] out = new byte[oLen];
-        int ip = 0;
-        int op = 0;
-        while (ip < iLen) {
-            int i0 = in[ip++];
-            int i1 = in[ip++];
-            int i2 = ip < iLen ? in[ip++] : 'A';
-            int i3 = ip < iLen ? in[ip++] : 'A';
-            if (i0 > 127 || i1 > 127 || i2 > 127 || i3 > 127) {
-                throw new IllegalArgumentException("Illegal character in Base64 encoded data.");
-            }
-            int b0 = map2[i0];
-            int b1 = map2[i1];
-            int b2 = map2[i2];
-            int b3 = map2[i3];
-            if (b0 < 0 || b1 < 0 || b2 < 0 || b3 < 0) {
-                throw new IllegalArgumentException("Illegal character in Base64 encoded data.");
-            }
-            int o0 = (b0 << 2) | (b1 >>> 4);
-            int o1 = ((b1 & 0xf) << 4) | (b2 >>> 2);
-            int o2 = ((b2 & 3) << 6) | b3;
-            out[op++] = (byte) o0;
-            if (op < oLen) {
-                out[op++] = (byte) o1;
+        if (out.length - oOff < oLen) {
+            throw new IllegalArgumentException("Output buffer too small for the Base64 decoded data.");
+        }
+        int ip = iOff;
+        int iEnd = iOff + iLen;
+        int op = oOff;
+        int oEnd = oOff + oLen;
+        while (ip < iEnd) {
+            int b0 = nibble(in.charAt(ip++));
+            int b1 = nibble(in.charAt(ip++));
+            int b2 = ip < iEnd ? nibble(in.charAt(ip++)) : 0;
+            int b3 = ip < iEnd ? nibble(in.charAt(ip++)) : 0;
+            out[op++] = (byte) ((b0 << 2) | (b1 >>> 4));
+            if (op < oEnd) {
+                out[op++] = (byte) (((b1 & 0xf) << 4) | (b2 >>> 2));
             }
-            if (op < oLen) {
-                out[op++] = (byte) o2;
+            if (op < oEnd) {
+                out[op++] = (byte) (((b2 & 3) << 6) | b3);
             }
         }
-        return out;
+        return oLen;
+    }
+
+    private static void checkLength(int iLen) {
+        if (iLen % 4 != 0) {
+            throw new IllegalArgumentException("Length of Base64 encoded input string is not a multiple of 4.");
+        }
+    }
+
+    private static int nibble(char c) {
+        int b = c > 127 ? -1 : map2[c];
+        if (b < 0) {
+            throw new IllegalArgumentException("Illegal character in Base64 encoded data.");
+        }
+        return b;
     }
 }
\ No newline at end of file
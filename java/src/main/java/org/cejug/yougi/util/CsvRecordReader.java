@@ -0,0 +1,176 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads comma separated values as described in the RFC 4180. The first
+ * record has the names of the fields. Values can be quoted to contain
+ * separators, quotes and line breaks. Files separated by semicolons, as
+ * saved by spreadsheets in many locales, are also accepted: the first
+ * separator found in the header decides. The single quote that the
+ * CsvRecordWriter puts in front of formulas is removed.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class CsvRecordReader implements RecordReader {
+
+    private static final int NONE = -2;
+
+    private final Reader reader;
+    private final List<String> header;
+
+    private char separator;
+    private int pushedBack = NONE;
+    private long line = 1;
+    private long recordLine;
+
+    public CsvRecordReader(Reader reader) throws IOException {
+        this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+        // Skips the byte order mark that some editors write at the beginning.
+        int first = this.reader.read();
+        if(first != '\uFEFF') {
+            pushedBack = first;
+            if(first == '\n') {
+                line++;
+            }
+        }
+        List<String> names = readFields();
+        if(names == null) {
+            throw new IOException("The file is empty.");
+        }
+        this.header = new ArrayList<>(names.size());
+        for(String name: names) {
+            this.header.add(name.trim());
+        }
+    }
+
+    public List<String> getHeader() {
+        return header;
+    }
+
+    @Override
+    public Map<String, String> read() throws IOException {
+        List<String> fields = readFields();
+        if(fields == null) {
+            return null;
+        }
+        Map<String, String> record = new HashMap<>();
+        String value;
+        for(int i = 0; i < fields.size() && i < header.size(); i++) {
+            value = fields.get(i);
+            if(value.length() > 1 && value.charAt(0) == '\'' && CsvRecordWriter.startsFormula(value.substring(1))) {
+                value = value.substring(1);
+            }
+            record.put(header.get(i), value);
+        }
+        return record;
+    }
+
+    @Override
+    public long getLineNumber() {
+        return recordLine;
+    }
+
+    /**
+     * @return the fields of the next record, or null at the end of the
+     * stream. Empty lines are skipped.
+     */
+    List<String> readFields() throws IOException {
+        int c = next();
+        while(c == '\r' || c == '\n') {
+            c = next();
+        }
+        if(c == -1) {
+            return null;
+        }
+        recordLine = line;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while(true) {
+            if(quoted) {
+                if(c == -1) {
+                    throw new IOException("Quote not closed in the record starting at line " + recordLine + ".");
+                }
+                if(c == '"') {
+                    c = next();
+                    if(c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if(c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if(isSeparator(c)) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if(c == '\r' || c == '\n' || c == -1) {
+                fields.add(field.toString());
+                if(c == '\r') {
+                    c = next();
+                    if(c != '\n') {
+                        pushedBack = c;
+                    }
+                }
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = next();
+        }
+    }
+
+    private boolean isSeparator(int c) {
+        if(separator == 0 && (c == ',' || c == ';')) {
+            separator = (char) c;
+        }
+        return c == separator;
+    }
+
+    private int next() throws IOException {
+        int c;
+        if(pushedBack != NONE) {
+            c = pushedBack;
+            pushedBack = NONE;
+        } else {
+            c = reader.read();
+            if(c == '\n') {
+                line++;
+            }
+        }
+        return c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
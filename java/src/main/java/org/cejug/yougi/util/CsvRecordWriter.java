@@ -0,0 +1,116 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes comma separated values as described in the RFC 4180, starting with
+ * a record with the names of the fields. Values are quoted only when they
+ * contain separators, quotes, line breaks or surrounding spaces. Values that
+ * a spreadsheet would evaluate as formulas are written with a single quote in
+ * front, which the CsvRecordReader removes.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class CsvRecordWriter implements RecordWriter {
+
+    private static final String LINE_BREAK = "\r\n";
+
+    private final Writer writer;
+    private final int numberOfFields;
+
+    public CsvRecordWriter(Writer writer, String... fields) throws IOException {
+        this.writer = writer;
+        this.numberOfFields = fields.length;
+        write(fields);
+    }
+
+    @Override
+    public void write(String... values) throws IOException {
+        if(values.length != numberOfFields) {
+            throw new IllegalArgumentException("Expected " + numberOfFields + " values, but received " + values.length + ".");
+        }
+        for(int i = 0; i < values.length; i++) {
+            if(i > 0) {
+                writer.write(',');
+            }
+            writeValue(values[i]);
+        }
+        writer.write(LINE_BREAK);
+    }
+
+    private void writeValue(String value) throws IOException {
+        if(value == null || value.isEmpty()) {
+            return;
+        }
+        if(startsFormula(value)) {
+            value = "'" + value;
+        }
+        if(!needsQuotes(value)) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        int start = 0;
+        int quote;
+        while((quote = value.indexOf('"', start)) >= 0) {
+            writer.write(value, start, quote - start + 1);
+            writer.write('"');
+            start = quote + 1;
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+
+    /**
+     * @return true if a spreadsheet opening the file would take the value as
+     * a formula, like "=HYPERLINK(...)" or "@SUM(...)".
+     */
+    static boolean startsFormula(String value) {
+        char c = value.charAt(0);
+        return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r';
+    }
+
+    private boolean needsQuotes(String value) {
+        if(value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ') {
+            return true;
+        }
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c == ',' || c == ';' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,128 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads records from a JSON array of objects, using the streaming parser, so
+ * the array is never loaded as a whole. Strings, numbers and booleans are read
+ * as text. Nested arrays and objects are ignored.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class JsonRecordReader implements RecordReader {
+
+    private final JsonParser parser;
+    private long recordLine;
+
+    public JsonRecordReader(Reader reader) throws IOException {
+        this.parser = Json.createParser(reader);
+        try {
+            if(!parser.hasNext() || parser.next() != JsonParser.Event.START_ARRAY) {
+                throw new IOException("The file must contain an array of objects.");
+            }
+        } catch (JsonException je) {
+            throw new IOException(je.getMessage(), je);
+        }
+    }
+
+    @Override
+    public Map<String, String> read() throws IOException {
+        try {
+            JsonParser.Event event = parser.next();
+            if(event == JsonParser.Event.END_ARRAY) {
+                return null;
+            }
+            if(event != JsonParser.Event.START_OBJECT) {
+                throw new IOException("Object expected at line " + parser.getLocation().getLineNumber() + ".");
+            }
+            recordLine = parser.getLocation().getLineNumber();
+
+            Map<String, String> record = new HashMap<>();
+            String name = null;
+            while((event = parser.next()) != JsonParser.Event.END_OBJECT) {
+                switch(event) {
+                    case KEY_NAME:
+                        name = parser.getString();
+                        break;
+                    case VALUE_STRING:
+                    case VALUE_NUMBER:
+                        record.put(name, parser.getString());
+                        break;
+                    case VALUE_TRUE:
+                        record.put(name, "true");
+                        break;
+                    case VALUE_FALSE:
+                        record.put(name, "false");
+                        break;
+                    case VALUE_NULL:
+                        break;
+                    default:
+                        skip();
+                }
+            }
+            return record;
+        } catch (JsonException je) {
+            throw new IOException(je.getMessage(), je);
+        }
+    }
+
+    /**
+     * Skips a nested array or object whose start was just read.
+     */
+    private void skip() {
+        int depth = 1;
+        while(depth > 0) {
+            switch(parser.next()) {
+                case START_ARRAY:
+                case START_OBJECT:
+                    depth++;
+                    break;
+                case END_ARRAY:
+                case END_OBJECT:
+                    depth--;
+                    break;
+                default:
+            }
+        }
+    }
+
+    @Override
+    public long getLineNumber() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            parser.close();
+        } catch (JsonException je) {
+            throw new IOException(je.getMessage(), je);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonGenerator;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes records as a JSON array of objects, using the streaming generator.
+ * Fields without value are left out of the objects.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class JsonRecordWriter implements RecordWriter {
+
+    private final JsonGenerator generator;
+    private final String[] fields;
+
+    public JsonRecordWriter(Writer writer, String... fields) throws IOException {
+        this.fields = fields.clone();
+        try {
+            this.generator = Json.createGenerator(writer);
+            this.generator.writeStartArray();
+        } catch (JsonException je) {
+            throw new IOException(je.getMessage(), je);
+        }
+    }
+
+    @Override
+    public void write(String... values) throws IOException {
+        if(values.length != fields.length) {
+            throw new IllegalArgumentException("Expected " + fields.length + " values, but received " + values.length + ".");
+        }
+        try {
+            generator.writeStartObject();
+            for(int i = 0; i < values.length; i++) {
+                if(values[i] != null) {
+                    generator.write(fields[i], values[i]);
+                }
+            }
+            generator.writeEnd();
+        } catch (JsonException je) {
+            throw new IOException(je.getMessage(), je);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            generator.flush();
+        } catch (JsonException je) {
+            throw new IOException(je.getMessage(), je);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            generator.writeEnd();
+            generator.close();
+        } catch (JsonException je) {
+            throw new IOException(je.getMessage(), je);
+        }
+    }
+}
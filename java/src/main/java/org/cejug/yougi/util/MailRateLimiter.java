@@ -0,0 +1,136 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paces outbound email messages with a token bucket shared by all messages
+ * and a token bucket for each recipient domain, so neither the mail server nor
+ * large mail providers receive more messages than they accept. A rate of zero
+ * disables the corresponding limit.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class MailRateLimiter {
+
+    private static final int SECONDS_PER_MINUTE = 60;
+
+    private final TokenBucket globalBucket;
+    private final int domainRate;
+    private final ConcurrentMap<String, TokenBucket> domainBuckets = new ConcurrentHashMap<>();
+    private final AtomicLong throttledMessages = new AtomicLong();
+
+    /**
+     * @param globalRate maximum number of messages sent per minute.
+     * @param domainRate maximum number of messages sent per minute to the same
+     * recipient domain.
+     */
+    public MailRateLimiter(int globalRate, int domainRate) {
+        this.globalBucket = createBucket(globalRate);
+        this.domainRate = domainRate;
+    }
+
+    /**
+     * Asks permission to send a message to the informed address. Bursts of up
+     * to one second of the rate are allowed.
+     * @return zero if the message can be sent now, otherwise the time in
+     * nanoseconds to wait before asking again.
+     */
+    public long acquire(String address) {
+        TokenBucket domainBucket = getDomainBucket(address);
+        if(domainBucket != null) {
+            long wait = domainBucket.tryConsume();
+            if(wait > 0) {
+                throttledMessages.incrementAndGet();
+                return wait;
+            }
+        }
+
+        if(globalBucket != null) {
+            long wait = globalBucket.tryConsume();
+            if(wait > 0) {
+                if(domainBucket != null) {
+                    domainBucket.refund();
+                }
+                throttledMessages.incrementAndGet();
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Discards the buckets of domains that didn't receive messages recently.
+     * They are created again when needed.
+     * @return the number of discarded buckets.
+     */
+    public int evictIdleBuckets() {
+        int evicted = 0;
+        Iterator<TokenBucket> buckets = domainBuckets.values().iterator();
+        while(buckets.hasNext()) {
+            if(buckets.next().isFull()) {
+                buckets.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return how many times a message had to wait because of a limit.
+     */
+    public long getThrottledMessages() {
+        return throttledMessages.get();
+    }
+
+    public int getDomainBuckets() {
+        return domainBuckets.size();
+    }
+
+    private TokenBucket getDomainBucket(String address) {
+        if(domainRate <= 0 || address == null) {
+            return null;
+        }
+
+        String domain = address.substring(address.lastIndexOf('@') + 1).trim().toLowerCase(Locale.ENGLISH);
+        TokenBucket bucket = domainBuckets.get(domain);
+        if(bucket == null) {
+            TokenBucket newBucket = createBucket(domainRate);
+            bucket = domainBuckets.putIfAbsent(domain, newBucket);
+            if(bucket == null) {
+                bucket = newBucket;
+            }
+        }
+        return bucket;
+    }
+
+    private static TokenBucket createBucket(int ratePerMinute) {
+        if(ratePerMinute <= 0) {
+            return null;
+        }
+        return new TokenBucket(Math.max(ratePerMinute / SECONDS_PER_MINUTE, 1), ratePerMinute);
+    }
+}
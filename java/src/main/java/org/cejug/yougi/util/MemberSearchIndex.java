@@ -0,0 +1,191 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index of members by the words of their names, their email and the host of
+ * their website. Words are folded, so searches ignore accents and case, and a
+ * search matches members having at least one word starting with each of the
+ * searched words. "jo silv" finds "José da Silva". Searches can run
+ * concurrently, while changes wait for them to finish.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class MemberSearchIndex {
+
+    // Ids of the members by word, sorted to find words by prefix.
+    private final TreeMap<String, Set<String>> words = new TreeMap<>();
+
+    // Words of each member, to remove them when the member changes.
+    private final Map<String, Set<String>> memberWords = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Adds the member to the index or replaces the data of a member already
+     * indexed.
+     */
+    public void put(String id, String firstName, String lastName, String email, String website) {
+        Set<String> tokens = new HashSet<>();
+        tokens.addAll(tokenize(firstName));
+        tokens.addAll(tokenize(lastName));
+        tokens.addAll(tokenize(email));
+        String host = UrlUtils.INSTANCE.getHost(website);
+        if (host != null) {
+            tokens.add(host);
+        }
+
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+            for (String token : tokens) {
+                Set<String> ids = words.get(token);
+                if (ids == null) {
+                    ids = new HashSet<>(2);
+                    words.put(token, ids);
+                }
+                ids.add(id);
+            }
+            memberWords.put(id, tokens);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            words.clear();
+            memberWords.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return memberWords.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param query one or more words, or the beginning of them.
+     * @param maxResults the maximum number of ids to return.
+     * @return the ids of the members matching all words of the query, in no
+     * particular order. Empty if the query has no words.
+     */
+    public List<String> search(String query, int maxResults) {
+        List<String> prefixes = tokenize(query);
+        if (prefixes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<String> found = null;
+            for (int i = 0; i < prefixes.size(); i++) {
+                // Only the last word limits the matches, since the previous ones are still filtered.
+                int limit = i == prefixes.size() - 1 ? maxResults : Integer.MAX_VALUE;
+                found = findByPrefix(prefixes.get(i), found, limit);
+                if (found.isEmpty()) {
+                    break;
+                }
+            }
+            return new ArrayList<>(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits a text in folded words. Dots, at signs and hyphens don't split
+     * words, so emails and hosts are kept whole.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : TextUtils.INSTANCE.fold(text).split("[^\\p{L}\\p{N}@._-]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @param candidates if not null, only these ids are considered.
+     */
+    private Set<String> findByPrefix(String prefix, Set<String> candidates, int limit) {
+        Set<String> matches = new LinkedHashSet<>();
+        SortedMap<String, Set<String>> range = words.subMap(prefix, prefix + Character.MAX_VALUE);
+        for (Set<String> ids : range.values()) {
+            for (String id : ids) {
+                if (candidates == null || candidates.contains(id)) {
+                    matches.add(id);
+                    if (matches.size() == limit) {
+                        return matches;
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    private void unindex(String id) {
+        Set<String> tokens = memberWords.remove(id);
+        if (tokens != null) {
+            for (String token : tokens) {
+                Set<String> ids = words.get(token);
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    words.remove(token);
+                }
+            }
+        }
+    }
+}
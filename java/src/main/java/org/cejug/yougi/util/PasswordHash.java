@@ -0,0 +1,155 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Hashes passwords with PBKDF2 and a random salt. The number of iterations is
+ * the cost of the hash and is stored with it, together with the salt, in the
+ * format pbkdf2$iterations$salt$hash, where salt and hash are in Base64.
+ * Hashes without this format are the legacy ones: a single SHA-256 pass
+ * without salt, also in Base64.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public enum PasswordHash {
+
+    INSTANCE;
+
+    public static final int DEFAULT_ITERATIONS = 20000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA1";
+    private static final String PREFIX = "pbkdf2";
+    private static final String SEPARATOR = "$";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+
+    // Never the beginning of a hash, neither in the current nor in the legacy format.
+    private static final String UNUSABLE = "!";
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param password the password informed by the user.
+     * @param iterations the cost of the hash. The higher, the slower.
+     * @return the hash of the password, with its salt and cost.
+     */
+    public String hash(String password, int iterations) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        char[] encoded = new char[Base64Encoder.encodedLength(Math.max(SALT_LENGTH, hash.length))];
+        StringBuilder storedHash = new StringBuilder(PREFIX).append(SEPARATOR).append(iterations).append(SEPARATOR);
+        storedHash.append(encoded, 0, Base64Encoder.encode(salt, 0, salt.length, encoded, 0)).append(SEPARATOR);
+        storedHash.append(encoded, 0, Base64Encoder.encode(hash, 0, hash.length, encoded, 0));
+        return storedHash.toString();
+    }
+
+    /**
+     * @return a random value, stored in place of a hash, that no password
+     * matches. Used for accounts whose password is defined later by the user.
+     */
+    public String unusable() {
+        byte[] value = new byte[SALT_LENGTH];
+        random.nextBytes(value);
+        return UNUSABLE + String.valueOf(Base64Encoder.encode(value));
+    }
+
+    /**
+     * Checks the password against a stored hash, either in the current or in
+     * the legacy format. The time spent comparing the hashes doesn't depend on
+     * how many bytes are equal.
+     */
+    public boolean matches(String password, String storedHash) {
+        if(password == null || storedHash == null || storedHash.startsWith(UNUSABLE)) {
+            return false;
+        }
+
+        if(isLegacy(storedHash)) {
+            return MessageDigest.isEqual(legacyHash(password).getBytes(), storedHash.getBytes());
+        }
+
+        int iterationsStart = PREFIX.length() + SEPARATOR.length();
+        int saltStart = storedHash.indexOf(SEPARATOR, iterationsStart) + 1;
+        int hashStart = saltStart > 0 ? storedHash.indexOf(SEPARATOR, saltStart) + 1 : 0;
+        if(hashStart <= 0 || !storedHash.startsWith(PREFIX + SEPARATOR)) {
+            return false;
+        }
+
+        try {
+            int iterations = Integer.parseInt(storedHash.substring(iterationsStart, saltStart - 1));
+            byte[] salt = new byte[Base64Encoder.decodedLength(storedHash, saltStart, hashStart - 1 - saltStart)];
+            Base64Encoder.decode(storedHash, saltStart, hashStart - 1 - saltStart, salt, 0);
+            byte[] hash = new byte[Base64Encoder.decodedLength(storedHash, hashStart, storedHash.length() - hashStart)];
+            Base64Encoder.decode(storedHash, hashStart, storedHash.length() - hashStart, hash, 0);
+            return MessageDigest.isEqual(hash, pbkdf2(password, salt, iterations));
+        } catch(IllegalArgumentException iae) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the stored hash is in the legacy format or its cost is
+     * different from the informed one, meaning that the password should be
+     * hashed again as soon as it is known.
+     */
+    public boolean needsRehash(String storedHash, int iterations) {
+        return isLegacy(storedHash) || !storedHash.startsWith(PREFIX + SEPARATOR + iterations + SEPARATOR);
+    }
+
+    public boolean isLegacy(String storedHash) {
+        return !storedHash.startsWith(PREFIX + SEPARATOR);
+    }
+
+    /**
+     * Hashes a password using a single pass of SHA-256, as it was done before
+     * adopting PBKDF2. Only useful to check legacy hashes.
+     */
+    public String legacyHash(String password) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] stringCriptBytes = md.digest(password.getBytes("UTF8"));
+            return String.valueOf(Base64Encoder.encode(stringCriptBytes));
+        } catch(NoSuchAlgorithmException nsae) {
+            throw new SecurityException("The Requested encoding algorithm was not found in this execution platform.", nsae);
+        } catch(UnsupportedEncodingException uee) {
+            throw new SecurityException("UTF8 is not supported in this execution platform.", uee);
+        }
+    }
+
+    private byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_LENGTH * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch(GeneralSecurityException gse) {
+            throw new SecurityException("The algorithm "+ ALGORITHM +" is not available in this execution platform.", gse);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Checks passwords on a small pool of threads with a bounded queue, so a flood
+ * of login attempts uses at most that number of processors to compute hashes
+ * and the attempts beyond the capacity of the queue are refused immediately,
+ * instead of holding the threads serving other requests. While the pool is not
+ * started, passwords are checked in the calling thread.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public enum PasswordVerifier {
+
+    INSTANCE;
+
+    private static final Logger LOGGER = Logger.getLogger(PasswordVerifier.class.getSimpleName());
+
+    // Attempts waiting for a thread, for each thread of the pool.
+    private static final int QUEUE_PER_THREAD = 8;
+
+    private static final long TIMEOUT = 10;
+
+    private volatile ThreadPoolExecutor verifiers;
+
+    public synchronized void start(ThreadFactory threadFactory, int threads) {
+        stop();
+        verifiers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                           new ArrayBlockingQueue<Runnable>(threads * QUEUE_PER_THREAD), threadFactory);
+    }
+
+    public synchronized void stop() {
+        if(verifiers != null) {
+            verifiers.shutdownNow();
+            verifiers = null;
+        }
+    }
+
+    /**
+     * @return true if the password matches the stored hash. False if it doesn't
+     * match or if it couldn't be checked because the pool is saturated.
+     */
+    public boolean matches(final String password, final String storedHash) {
+        ThreadPoolExecutor current = verifiers;
+        if(current == null) {
+            return PasswordHash.INSTANCE.matches(password, storedHash);
+        }
+
+        Future<Boolean> verification;
+        try {
+            verification = current.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return PasswordHash.INSTANCE.matches(password, storedHash);
+                }
+            });
+        } catch(RejectedExecutionException ree) {
+            LOGGER.log(Level.WARNING, "Password verification refused. There are {0} verifications waiting.", current.getQueue().size());
+            return false;
+        }
+
+        try {
+            return verification.get(TIMEOUT, TimeUnit.SECONDS);
+        } catch(TimeoutException te) {
+            verification.cancel(true);
+            LOGGER.log(Level.WARNING, "Password verification timed out.", te);
+            return false;
+        } catch(ExecutionException ee) {
+            LOGGER.log(Level.SEVERE, "Password verification failed.", ee.getCause());
+            return false;
+        } catch(InterruptedException ie) {
+            verification.cancel(true);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
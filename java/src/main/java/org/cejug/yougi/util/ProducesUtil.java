@@ -21,7 +21,6 @@
 package org.cejug.yougi.util;
 
 
-import org.cejug.yougi.business.UserAccountBean;
 import org.cejug.yougi.entity.UserAccount;
 import org.cejug.yougi.qualifier.UserName;
 
@@ -39,7 +38,7 @@ import javax.servlet.http.HttpServletResponse;
 public class ProducesUtil {
 
     @Inject
-    private UserAccountBean userAccountBean;
+    private AuthenticatedUser authenticatedUser;
 
     @Inject
     private FacesContext facesContext;
@@ -67,8 +66,7 @@ public class ProducesUtil {
 
     @Produces @Named
     public String getFirstName() {
-        String username = getUserName();
-        UserAccount userAccount = userAccountBean.findByUsername(username);
+        UserAccount userAccount = authenticatedUser.getUserAccount();
         return userAccount == null ? "" : userAccount.getFirstName();
     }
 }
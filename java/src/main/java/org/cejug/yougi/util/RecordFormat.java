@@ -0,0 +1,93 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Formats of the files used to import and export records.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public enum RecordFormat {
+
+    CSV("text/csv", "csv") {
+        @Override
+        public RecordReader createReader(Reader reader) throws IOException {
+            return new CsvRecordReader(reader);
+        }
+
+        @Override
+        public RecordWriter createWriter(Writer writer, String... fields) throws IOException {
+            return new CsvRecordWriter(writer, fields);
+        }
+    },
+
+    JSON("application/json", "json") {
+        @Override
+        public RecordReader createReader(Reader reader) throws IOException {
+            return new JsonRecordReader(reader);
+        }
+
+        @Override
+        public RecordWriter createWriter(Writer writer, String... fields) throws IOException {
+            return new JsonRecordWriter(writer, fields);
+        }
+    };
+
+    private final String contentType;
+    private final String extension;
+
+    private RecordFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public abstract RecordReader createReader(Reader reader) throws IOException;
+
+    public abstract RecordWriter createWriter(Writer writer, String... fields) throws IOException;
+
+    /**
+     * @return the format of the file according to its extension, or null if
+     * the extension is not known.
+     */
+    public static RecordFormat fromFileName(String fileName) {
+        if(fileName != null) {
+            String lowerCaseName = fileName.toLowerCase();
+            for(RecordFormat format: values()) {
+                if(lowerCaseName.endsWith("." + format.extension)) {
+                    return format;
+                }
+            }
+        }
+        return null;
+    }
+}
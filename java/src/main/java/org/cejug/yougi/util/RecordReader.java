@@ -0,0 +1,46 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reads records from a stream one at a time, so files of any size are read
+ * with constant memory.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public interface RecordReader extends Closeable {
+
+    /**
+     * @return the values of the next record by field name, or null if there
+     * are no records left. Fields missing in the record are not in the map.
+     * @throws IOException if the stream can't be read or is malformed.
+     */
+    Map<String, String> read() throws IOException;
+
+    /**
+     * @return the line of the stream where the last record read starts.
+     */
+    long getLineNumber();
+}
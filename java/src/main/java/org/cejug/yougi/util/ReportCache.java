@@ -0,0 +1,141 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the results of reports for a limited time. Results are identified by
+ * the name of the report and a key, such as the locale, that distinguishes
+ * versions of the same report. When concurrent requests miss the same result,
+ * only the first one computes it while the others wait for it. A report is
+ * invalidated as a whole when the data behind it changes.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class ReportCache {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, Entry>> reports = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the result of the report, computing it with the loader if it
+     * is not in the cache or if it has expired.
+     * @param timeToLive the time, in milliseconds, the computed result is kept.
+     * @throws IllegalStateException if the loader fails with a checked exception.
+     * Unchecked exceptions are thrown as they are. Failures are not cached.
+     */
+    public <T> T get(String report, String key, long timeToLive, Callable<T> loader) {
+        return get(report, key, timeToLive, loader, System.nanoTime());
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T get(String report, String key, long timeToLive, Callable<T> loader, long now) {
+        ConcurrentMap<String, Entry> entries = entriesOf(report);
+        Entry entry;
+        while(true) {
+            entry = entries.get(key);
+            if(entry != null && !entry.isExpired(now)) {
+                break;
+            }
+            Entry newEntry = new Entry(new FutureTask<Object>((Callable<Object>) loader), now + TimeUnit.MILLISECONDS.toNanos(timeToLive));
+            boolean added = entry == null ? entries.putIfAbsent(key, newEntry) == null : entries.replace(key, entry, newEntry);
+            if(added) {
+                entry = newEntry;
+                entry.task.run();
+                break;
+            }
+        }
+
+        try {
+            return (T) entry.task.get();
+        } catch (ExecutionException ee) {
+            entries.remove(key, entry);
+            if(ee.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ee.getCause();
+            }
+            if(ee.getCause() instanceof Error) {
+                throw (Error) ee.getCause();
+            }
+            throw new IllegalStateException("The report " + report + " could not be computed.", ee.getCause());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the report " + report + ".", ie);
+        }
+    }
+
+    /**
+     * Removes all results of the report. Results being computed are still
+     * delivered to the requests waiting for them, but are not kept.
+     */
+    public void invalidate(String report) {
+        ConcurrentMap<String, Entry> entries = reports.get(report);
+        if(entries != null) {
+            entries.clear();
+        }
+    }
+
+    public void clear() {
+        reports.clear();
+    }
+
+    /**
+     * @return the number of results in the cache, including the expired ones
+     * not replaced yet.
+     */
+    public int size() {
+        int size = 0;
+        for(ConcurrentMap<String, Entry> entries: reports.values()) {
+            size += entries.size();
+        }
+        return size;
+    }
+
+    private ConcurrentMap<String, Entry> entriesOf(String report) {
+        ConcurrentMap<String, Entry> entries = reports.get(report);
+        if(entries == null) {
+            ConcurrentMap<String, Entry> newEntries = new ConcurrentHashMap<>();
+            entries = reports.putIfAbsent(report, newEntries);
+            if(entries == null) {
+                entries = newEntries;
+            }
+        }
+        return entries;
+    }
+
+    private static class Entry {
+        private final FutureTask<Object> task;
+        private final long expiration;
+
+        Entry(FutureTask<Object> task, long expiration) {
+            this.task = task;
+            this.expiration = expiration;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiration >= 0;
+        }
+    }
+}
@@ -20,6 +20,7 @@
  * */
 package org.cejug.yougi.util;
 
+import java.text.Normalizer;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
@@ -51,6 +52,25 @@ public enum TextUtils {
         return result.toString();
     }
 
+    /**
+     * Removes the accents and converts the text to lowercase, so texts can be
+     * compared regardless of how they were typed. "José" becomes "jose".
+     */
+    public String fold(String text) {
+        if (text == null) {
+            return null;
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded.append(Character.toLowerCase(c));
+            }
+        }
+        return folded.toString();
+    }
+
     public String getFormattedDate(Date date, String formatDate) {
         if (date == null) {
             return "";
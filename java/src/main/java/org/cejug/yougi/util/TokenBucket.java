@@ -0,0 +1,100 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate of an operation. The bucket holds up to capacity tokens and
+ * gains new tokens at a constant rate. Each operation consumes one token, so
+ * bursts up to the capacity are allowed, but on the long run the operation
+ * never happens more often than the rate.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param capacity the maximum number of tokens, which is the size of the
+     * largest burst. The bucket starts full.
+     * @param tokensPerMinute the number of tokens added every minute.
+     */
+    public TokenBucket(int capacity, int tokensPerMinute) {
+        if(capacity < 1 || tokensPerMinute < 1) {
+            throw new IllegalArgumentException("The bucket needs a positive capacity and rate.");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Consumes a token if there is one available.
+     * @return zero if a token was consumed, otherwise the time in nanoseconds
+     * until the next token is available.
+     */
+    public long tryConsume() {
+        return tryConsume(System.nanoTime());
+    }
+
+    synchronized long tryConsume(long now) {
+        refill(now);
+        if(tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return Math.max((long) Math.ceil((1 - tokens) / tokensPerNano), 1);
+    }
+
+    /**
+     * Gives back a token consumed by an operation that didn't happen.
+     */
+    public synchronized void refund() {
+        tokens = Math.min(tokens + 1, capacity);
+    }
+
+    /**
+     * @return true if the bucket has all its tokens, meaning that it was not
+     * used for a while.
+     */
+    public boolean isFull() {
+        return isFull(System.nanoTime());
+    }
+
+    synchronized boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        if(now > lastRefill) {
+            tokens = Math.min(tokens + (now - lastRefill) * tokensPerNano, capacity);
+            lastRefill = now;
+        }
+    }
+}
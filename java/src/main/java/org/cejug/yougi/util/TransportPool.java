@@ -0,0 +1,227 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps authenticated connections to the mail server open, so many messages
+ * can be sent through the same connection without repeating the handshake.
+ * At most maxSize connections are open at the same time. Connections are
+ * discarded when an error occurs while sending or when they stay idle longer
+ * than the idle timeout.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class TransportPool {
+
+    private static final Logger LOGGER = Logger.getLogger(TransportPool.class.getSimpleName());
+
+    // Connections idle for less than this interval are reused without checking them with the server.
+    private static final long VALIDATION_INTERVAL = 5000;
+
+    private final Session session;
+    private final long idleTimeout;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledTransport> idleTransports = new LinkedBlockingDeque<>();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * @param session the mail session used to open connections.
+     * @param maxSize maximum number of connections open at the same time.
+     * @param idleTimeout time in milliseconds a connection can stay idle before being closed.
+     */
+    public TransportPool(Session session, int maxSize, long idleTimeout) {
+        if(maxSize < 1) {
+            throw new IllegalArgumentException("The pool needs at least one connection.");
+        }
+        this.session = session;
+        this.idleTimeout = idleTimeout;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public void send(Message message) throws MessagingException {
+        send(Collections.singletonList(message));
+    }
+
+    /**
+     * Sends all messages, one after the other, through the same connection.
+     * If the server refuses the recipients of a message, the connection is
+     * kept, but any other error discards it and the next send opens a new one.
+     * @param messages messages to be sent in the informed order.
+     * @throws MessagingException if one of the messages could not be sent. The
+     * messages after it are not sent.
+     */
+    public void send(List<? extends Message> messages) throws MessagingException {
+        PooledTransport pooledTransport = borrow();
+        boolean reusable = false;
+        try {
+            for(Message message: messages) {
+                message.saveChanges();
+                pooledTransport.transport.sendMessage(message, message.getAllRecipients());
+                messagesSent.incrementAndGet();
+            }
+            reusable = true;
+        } catch (SendFailedException sfe) {
+            reusable = true;
+            throw sfe;
+        } finally {
+            release(pooledTransport, reusable);
+        }
+    }
+
+    /**
+     * Closes the connections that are idle for longer than the idle timeout.
+     * @return the number of closed connections.
+     */
+    public int evictIdleTransports() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        Iterator<PooledTransport> iterator = idleTransports.descendingIterator();
+        while(iterator.hasNext()) {
+            PooledTransport pooledTransport = iterator.next();
+            if(now - pooledTransport.lastUsed >= idleTimeout && idleTransports.remove(pooledTransport)) {
+                closeQuietly(pooledTransport);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Closes all idle connections. Connections in use are closed as soon as
+     * they are released.
+     */
+    public void close() {
+        closed = true;
+        PooledTransport pooledTransport;
+        while((pooledTransport = idleTransports.pollFirst()) != null) {
+            closeQuietly(pooledTransport);
+        }
+    }
+
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    public int getIdleTransports() {
+        return idleTransports.size();
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        if(closed) {
+            throw new MessagingException("The pool of mail connections is closed.");
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for a mail connection.", ie);
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            PooledTransport pooledTransport;
+            while((pooledTransport = idleTransports.pollFirst()) != null) {
+                if(pooledTransport.isUsable(now)) {
+                    return pooledTransport;
+                }
+                closeQuietly(pooledTransport);
+            }
+            return open();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledTransport pooledTransport, boolean reusable) {
+        try {
+            if(reusable && !closed) {
+                pooledTransport.lastUsed = System.currentTimeMillis();
+                idleTransports.offerFirst(pooledTransport);
+            } else {
+                closeQuietly(pooledTransport);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private PooledTransport open() throws MessagingException {
+        String protocol = session.getProperty("mail.transport.protocol");
+        Transport transport = session.getTransport(protocol != null ? protocol : "smtp");
+        transport.connect();
+        connectionsOpened.incrementAndGet();
+        return new PooledTransport(transport);
+    }
+
+    private void closeQuietly(PooledTransport pooledTransport) {
+        try {
+            pooledTransport.transport.close();
+        } catch (MessagingException me) {
+            LOGGER.log(Level.FINE, me.getMessage(), me);
+        }
+    }
+
+    private final class PooledTransport {
+
+        private final Transport transport;
+        private long lastUsed;
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * A connection is usable if it was not idle for too long and, in case
+         * it was idle for a while, the server still answers on it.
+         */
+        boolean isUsable(long now) {
+            long idleTime = now - lastUsed;
+            if(idleTime >= idleTimeout) {
+                return false;
+            }
+            return idleTime < VALIDATION_INTERVAL || transport.isConnected();
+        }
+    }
+}
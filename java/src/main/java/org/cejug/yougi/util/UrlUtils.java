@@ -47,6 +47,82 @@ public enum UrlUtils {
         return urlWithoutProtocol;
     }
 
+    /**
+     * Extracts the host of a website address, in lowercase and without the
+     * protocol, the prefix www, the port and the path, so different ways of
+     * writing the same website can be compared. "HTTP://www.Cejug.org/blog"
+     * becomes "cejug.org".
+     */
+    public String getHost(String url) {
+        if(url == null) {
+            return null;
+        }
+        String host = url.trim().toLowerCase();
+        int protocolEnd = host.indexOf("://");
+        if(protocolEnd >= 0) {
+            host = host.substring(protocolEnd + 3);
+        }
+        for(int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if(c == '/' || c == ':' || c == '?' || c == '#') {
+                host = host.substring(0, i);
+                break;
+            }
+        }
+        if(host.startsWith("www.")) {
+            host = host.substring(4);
+        }
+        return host.isEmpty() ? null : host;
+    }
+
+    /**
+     * Extracts the path of a website address, in lowercase and without the
+     * query, the fragment and the trailing slash. "HTTP://www.Cejug.org/Blog/"
+     * becomes "/blog" and an address without path becomes an empty string.
+     */
+    public String getPath(String url) {
+        if(url == null) {
+            return null;
+        }
+        String path = url.trim().toLowerCase();
+        int protocolEnd = path.indexOf("://");
+        if(protocolEnd >= 0) {
+            path = path.substring(protocolEnd + 3);
+        }
+        for(int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if(c == '?' || c == '#') {
+                path = path.substring(0, i);
+                break;
+            }
+        }
+        int pathStart = path.indexOf('/');
+        if(pathStart < 0) {
+            return "";
+        }
+        path = path.substring(pathStart);
+        while(path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    /**
+     * Checks whether the address is the website itself or one of its pages.
+     * Addresses are compared by host and by whole segments of the path, so
+     * "http://cejug.org/blog/feed" is under "www.cejug.org/blog", but not under
+     * "cejug.org/bl".
+     */
+    public boolean isUnder(String url, String website) {
+        String host = getHost(website);
+        if(host == null || !host.equals(getHost(url))) {
+            return false;
+        }
+        String path = getPath(url);
+        String websitePath = getPath(website);
+        return websitePath.isEmpty() || path.equals(websitePath) || path.startsWith(websitePath + "/");
+    }
+
     public String concatUrlFragment(String url, String fragment) {
         String urlWithFragment = url;
         if(url.endsWith("/") && fragment.startsWith("/")) {
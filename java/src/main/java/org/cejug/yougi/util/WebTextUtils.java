@@ -59,6 +59,31 @@ public enum WebTextUtils {
         return formattedStr.toString();
     }
 
+    /**
+     * Replaces the characters that have a meaning in html by their entities,
+     * so a text typed by users can be put in a html page or message without
+     * changing its markup.
+     */
+    public String escapeHtml(String str) {
+        if (str == null) {
+            return null;
+        }
+
+        StringBuilder escapedStr = new StringBuilder(str.length());
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '<': escapedStr.append("&lt;"); break;
+                case '>': escapedStr.append("&gt;"); break;
+                case '&': escapedStr.append("&amp;"); break;
+                case '"': escapedStr.append("&quot;"); break;
+                case '\'': escapedStr.append("&#39;"); break;
+                default: escapedStr.append(c);
+            }
+        }
+        return escapedStr.toString();
+    }
+
     public String getFormattedDate(Date date) {
         if (date == null) {
             return "";
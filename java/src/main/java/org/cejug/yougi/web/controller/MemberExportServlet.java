@@ -0,0 +1,74 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.web.controller;
+
+import org.cejug.yougi.business.MemberFileBean;
+import org.cejug.yougi.util.RecordFormat;
+
+import javax.ejb.EJB;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Downloads all active members as a CSV or JSON file, according to the
+ * parameter format. The members are written to the response as they are read
+ * from the database.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class MemberExportServlet extends HttpServlet {
+
+    private static final Logger LOGGER = Logger.getLogger(MemberExportServlet.class.getSimpleName());
+
+    private static final long serialVersionUID = 1L;
+
+    @EJB
+    private MemberFileBean memberFileBean;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        RecordFormat format;
+        try {
+            String parameter = request.getParameter("format");
+            format = parameter == null ? RecordFormat.CSV : RecordFormat.valueOf(parameter.toUpperCase());
+        } catch (IllegalArgumentException iae) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown format.");
+            return;
+        }
+
+        response.setContentType(format.getContentType() + ";charset=UTF-8");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"members." + format.getExtension() + "\"");
+        long exported = memberFileBean.exportMembers(response.getWriter(), format);
+        LOGGER.log(Level.INFO, "Members exported: {0}", exported);
+    }
+
+    @Override
+    public String getServletInfo() {
+        return "Exports the members as CSV or JSON.";
+    }
+}
@@ -0,0 +1,89 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.web.controller;
+
+import org.cejug.yougi.business.MemberFileBean;
+import org.cejug.yougi.business.MemberImportResult;
+import org.cejug.yougi.util.RecordFormat;
+import org.cejug.yougi.util.ResourceBundleHelper;
+import org.primefaces.event.FileUploadEvent;
+import org.primefaces.model.UploadedFile;
+
+import javax.ejb.EJB;
+import javax.faces.application.FacesMessage;
+import javax.faces.context.FacesContext;
+import javax.faces.view.ViewScoped;
+import javax.inject.Named;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Imports members from a CSV or JSON file uploaded by the administrator.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@Named
+@ViewScoped
+public class MemberImportMBean implements Serializable {
+
+    private static final Logger LOGGER = Logger.getLogger(MemberImportMBean.class.getSimpleName());
+
+    private static final long serialVersionUID = 1L;
+
+    @EJB
+    private MemberFileBean memberFileBean;
+
+    private MemberImportResult result;
+
+    public MemberImportResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return the message explaining why a record was rejected.
+     */
+    public String getMessage(MemberImportResult.Rejection rejection) {
+        if(rejection.getDetail() == null) {
+            return ResourceBundleHelper.INSTANCE.getMessage(rejection.getErrorCode());
+        }
+        return ResourceBundleHelper.INSTANCE.getMessage(rejection.getErrorCode(), rejection.getDetail());
+    }
+
+    public void handleFileUpload(FileUploadEvent event) {
+        UploadedFile uploadedFile = event.getFile();
+        FacesContext context = FacesContext.getCurrentInstance();
+        RecordFormat format = RecordFormat.fromFileName(uploadedFile.getFileName());
+        if(format == null) {
+            context.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR, ResourceBundleHelper.INSTANCE.getMessage("errorCode0018", uploadedFile.getFileName()), null));
+            return;
+        }
+
+        try (InputStream in = uploadedFile.getInputstream()) {
+            result = memberFileBean.importMembers(in, format);
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, ioe.getMessage(), ioe);
+            context.addMessage(null, new FacesMessage(FacesMessage.SEVERITY_ERROR, ResourceBundleHelper.INSTANCE.getMessage("errorCode0018", ioe.getMessage()), null));
+        }
+    }
+}
@@ -21,6 +21,7 @@
 package org.cejug.yougi.web.controller;
 
 import org.cejug.yougi.business.AuthenticationBean;
+import org.cejug.yougi.business.MemberSearchBean;
 import org.cejug.yougi.business.MessageHistoryBean;
 import org.cejug.yougi.business.UserAccountBean;
 import org.cejug.yougi.entity.Authentication;
@@ -58,12 +59,21 @@ public class MemberMBean implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    private static final int HISTORIC_MESSAGES_PAGE_SIZE = 20;
+
+    private static final int SEARCH_LIMIT = 100;
+
+    private static final int SUGGESTION_LIMIT = 10;
+
     @EJB
     private UserAccountBean userAccountBean;
 
     @EJB
     private AuthenticationBean authenticationBean;
 
+    @EJB
+    private MemberSearchBean memberSearchBean;
+
     @EJB
     private MessageHistoryBean messageHistoryBean;
 
@@ -76,12 +86,14 @@ public class MemberMBean implements Serializable {
     @Inject
     private FacesContext context;
 
-    private List<UserAccount> userAccounts;
+    private UserAccountDataModel userAccounts;
 
     private List<UserAccount> deactivatedUsers;
 
     private List<MessageHistory> historicMessages;
 
+    private boolean moreHistoricMessages;
+
     private List<Event> attendedEvents;
 
     private String userId;
@@ -90,7 +102,7 @@ public class MemberMBean implements Serializable {
 
     private Authentication authentication;
 
-    private String emailCriteria;
+    private String searchCriteria;
 
     private String firstLetterCriteria;
 
@@ -135,7 +147,7 @@ public class MemberMBean implements Serializable {
         this.locationMBean = locationMBean;
     }
 
-    public List<UserAccount> getUserAccounts() {
+    public UserAccountDataModel getUserAccounts() {
         return this.userAccounts;
     }
 
@@ -150,33 +162,84 @@ public class MemberMBean implements Serializable {
         return deactivatedUsers;
     }
 
-    public String findUserAccountByEmail() {
-        if (StringUtils.INSTANCE.isNullOrBlank(this.emailCriteria)) {
-            this.userAccounts = userAccountBean.findAllNotVerifiedAccounts();
+    /**
+     * Searches members by the beginning of the words of their names, email or
+     * website, ignoring accents and case.
+     */
+    public String searchUserAccounts() {
+        if (StringUtils.INSTANCE.isNullOrBlank(this.searchCriteria)) {
+            this.userAccounts = createNotVerifiedAccountsModel();
         } else {
-            List<UserAccount> uas = new ArrayList<>(1);
-            UserAccount ua = userAccountBean.findByEmail(this.emailCriteria);
-            if (ua != null) {
-                uas.add(ua);
-            }
-            this.userAccounts = uas;
+            final List<UserAccount> uas = memberSearchBean.search(this.searchCriteria, SEARCH_LIMIT);
+            this.userAccounts = new UserAccountDataModel() {
+                private static final long serialVersionUID = 1L;
+
+                /**
+                 * The results are already ordered by name, so the page starts
+                 * right after the last member of the previous page.
+                 */
+                @Override
+                protected List<UserAccount> findPage(UserAccount after, int maxResults) {
+                    int start = 0;
+                    if (after != null) {
+                        while (start < uas.size() && !uas.get(start).getId().equals(after.getId())) {
+                            start++;
+                        }
+                        start++;
+                    }
+                    if (start >= uas.size()) {
+                        return new ArrayList<>(0);
+                    }
+                    return new ArrayList<>(uas.subList(start, Math.min(start + maxResults, uas.size())));
+                }
+            };
         }
         this.firstLetterCriteria = null;
         return "users?faces-redirect=true";
     }
 
-    public String findUserAccountByFirstLetter(String firstLetterCriteria) {
+    /**
+     * @return suggestions of members for the search field, in the format
+     * "First Last <email>", which also works as search criteria.
+     */
+    public List<String> completeUserAccount(String query) {
+        List<String> suggestions = new ArrayList<>();
+        for (UserAccount ua : memberSearchBean.search(query, SUGGESTION_LIMIT)) {
+            suggestions.add(ua.getFullName() + " <" + ua.getPostingEmail() + ">");
+        }
+        return suggestions;
+    }
+
+    public String findUserAccountByFirstLetter(final String firstLetterCriteria) {
         if (StringUtils.INSTANCE.isNullOrBlank(firstLetterCriteria)) {
-            this.userAccounts = userAccountBean.findAllNotVerifiedAccounts();
+            this.userAccounts = createNotVerifiedAccountsModel();
         } else {
             this.firstLetterCriteria = firstLetterCriteria;
-            this.userAccounts = userAccountBean.findAllStartingWith(this.firstLetterCriteria);
-            this.emailCriteria = null;
+            this.userAccounts = new UserAccountDataModel() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected List<UserAccount> findPage(UserAccount after, int maxResults) {
+                    return userAccountBean.findAllStartingWith(firstLetterCriteria, after, maxResults);
+                }
+            };
+            this.searchCriteria = null;
         }
 
         return "users?faces-redirect=true";
     }
 
+    private UserAccountDataModel createNotVerifiedAccountsModel() {
+        return new UserAccountDataModel() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected List<UserAccount> findPage(UserAccount after, int maxResults) {
+                return userAccountBean.findAllNotVerifiedAccounts(after, maxResults);
+            }
+        };
+    }
+
     /**
      * @return the messageHistoryItens
      */
@@ -191,12 +254,31 @@ public class MemberMBean implements Serializable {
         this.historicMessages = historicMessages;
     }
 
-    public String getEmailCriteria() {
-        return emailCriteria;
+    public boolean isMoreHistoricMessages() {
+        return moreHistoricMessages;
+    }
+
+    /**
+     * Appends the next page of historic messages to the ones already loaded,
+     * starting after the oldest message loaded so far.
+     */
+    public void loadMoreHistoricMessages() {
+        MessageHistory last = historicMessages.isEmpty() ? null : historicMessages.get(historicMessages.size() - 1);
+        // One extra message is read just to know whether there is another page.
+        List<MessageHistory> page = messageHistoryBean.findByRecipient(this.userAccount, last, HISTORIC_MESSAGES_PAGE_SIZE + 1);
+        this.moreHistoricMessages = page.size() > HISTORIC_MESSAGES_PAGE_SIZE;
+        if(this.moreHistoricMessages) {
+            page = page.subList(0, HISTORIC_MESSAGES_PAGE_SIZE);
+        }
+        this.historicMessages.addAll(page);
+    }
+
+    public String getSearchCriteria() {
+        return searchCriteria;
     }
 
-    public void setEmailCriteria(String emailCriteria) {
-        this.emailCriteria = emailCriteria;
+    public void setSearchCriteria(String searchCriteria) {
+        this.searchCriteria = searchCriteria;
     }
 
     public String getFirstLetterCriteria() {
@@ -223,14 +305,15 @@ public class MemberMBean implements Serializable {
 
     @PostConstruct
     public void load() {
-        this.userAccounts = userAccountBean.findAllNotVerifiedAccounts();
+        this.userAccounts = createNotVerifiedAccountsModel();
     }
 
     public String load(String userId) {
         this.userId = userId;
         this.userAccount = userAccountBean.find(this.userId);
         this.authentication = authenticationBean.findByUserAccount(this.userAccount);
-        this.historicMessages = messageHistoryBean.findByRecipient(this.userAccount);
+        this.historicMessages = new ArrayList<>();
+        loadMoreHistoricMessages();
         this.attendedEvents = attendeeBean.findAttendeedEvents(this.userAccount);
 
         locationMBean.initialize();
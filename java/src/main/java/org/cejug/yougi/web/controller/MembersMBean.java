@@ -27,40 +27,35 @@ import org.cejug.yougi.entity.UserAccount;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
-import javax.enterprise.context.RequestScoped;
+import javax.faces.view.ViewScoped;
 import javax.inject.Named;
-import java.util.ArrayList;
+import java.io.Serializable;
 import java.util.List;
 
 /**
  * @author Efraim Gentil - https://github.com/efraimgentil
  */
 @Named
-@RequestScoped
-public class MembersMBean {
+@ViewScoped
+public class MembersMBean implements Serializable {
 
-    private List<List<UserAccount>> membersRows;
+    private static final long serialVersionUID = 1L;
+
+    private UserAccountDataModel members;
 
     @EJB
     private UserAccountBean userAccountBean;
 
     @PostConstruct
     public void init() {
-        membersRows = new ArrayList<>();
-        List<UserAccount> userAccounts = new ArrayList<>();
-        for (UserAccount account : userAccountBean.findActiveWithPublicProfile()) {
-            if (membersRows.isEmpty()) {
-                membersRows.add(userAccounts);
-            }
+        members = new UserAccountDataModel() {
+            private static final long serialVersionUID = 1L;
 
-            if (userAccounts.size() < 3) {
-                userAccounts.add(account);
-            } else {
-                userAccounts = new ArrayList<>();
-                membersRows.add(userAccounts);
-                userAccounts.add(account);
+            @Override
+            protected List<UserAccount> findPage(UserAccount after, int maxResults) {
+                return userAccountBean.findActiveWithPublicProfile(after, maxResults);
             }
-        }
+        };
     }
 
     public String formatedAddress(UserAccount member) {
@@ -91,8 +86,8 @@ public class MembersMBean {
         return member.getTwitter() != null;
     }
 
-    public List<List<UserAccount>> getMembersRows() {
-        return membersRows;
+    public UserAccountDataModel getMembers() {
+        return members;
     }
 
 }
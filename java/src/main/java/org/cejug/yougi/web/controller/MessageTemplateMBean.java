@@ -20,13 +20,17 @@
  * */
 package org.cejug.yougi.web.controller;
 
+import org.cejug.yougi.business.MessengerBean;
 import org.cejug.yougi.entity.MessageTemplate;
+import org.cejug.yougi.util.ResourceBundleHelper;
 
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
+import javax.faces.application.FacesMessage;
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.ManagedProperty;
 import javax.faces.bean.RequestScoped;
+import javax.faces.context.FacesContext;
 import java.util.List;
 
 /**
@@ -38,9 +42,12 @@ public class MessageTemplateMBean {
 
     @EJB
     private org.cejug.yougi.business.MessageTemplateBean messageTemplateBean;
+    @EJB
+    private MessengerBean messengerBean;
     @ManagedProperty(value = "#{param.id}")
     private String id;
     private MessageTemplate messageTemplate;
+    private String subscription;
 
     public MessageTemplateMBean() {
     }
@@ -61,6 +68,14 @@ public class MessageTemplateMBean {
         this.messageTemplate = messageTemplate;
     }
 
+    public String getSubscription() {
+        return subscription;
+    }
+
+    public void setSubscription(String subscription) {
+        this.subscription = subscription;
+    }
+
     public List<MessageTemplate> getMessageTemplates() {
         return messageTemplateBean.findAll();
     }
@@ -79,6 +94,16 @@ public class MessageTemplateMBean {
         return "message_templates?faces-redirect=true";
     }
 
+    /**
+     * Sends a personalized message, built from this template, to all members
+     * who subscribed to the selected kind of message.
+     */
+    public String sendToSubscribers() {
+        messengerBean.sendToSubscribers(this.messageTemplate, this.subscription);
+        FacesContext.getCurrentInstance().addMessage(null, new FacesMessage(FacesMessage.SEVERITY_INFO, ResourceBundleHelper.INSTANCE.getMessage("infoMessageSentToSubscribers"), ""));
+        return "message_template";
+    }
+
     public String remove() {
         if (messageTemplate != null) {
             messageTemplateBean.remove(messageTemplate.getId());
@@ -0,0 +1,108 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.web.controller;
+
+import org.cejug.yougi.entity.UserAccount;
+import org.primefaces.model.LazyDataModel;
+import org.primefaces.model.SortOrder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Lazy model of user accounts read page by page, each page starting after the
+ * last account of the previous one instead of skipping rows. It keeps the
+ * last account of every page already visited, so the paginator can go back
+ * and forth. The total of accounts is never counted: the model only knows
+ * whether there is a next page, reading one account more than the page size.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public abstract class UserAccountDataModel extends LazyDataModel<UserAccount> {
+
+    private static final long serialVersionUID = 1L;
+
+    // The last account before each known position. The first page has none.
+    private final TreeMap<Integer, UserAccount> cursors = new TreeMap<>();
+
+    private List<UserAccount> page = Collections.emptyList();
+
+    public UserAccountDataModel() {
+        cursors.put(0, null);
+    }
+
+    /**
+     * @param after the last account of the previous page, or null for the
+     * first page.
+     * @param maxResults the maximum number of accounts to return.
+     * @return the accounts that follow the informed one.
+     */
+    protected abstract List<UserAccount> findPage(UserAccount after, int maxResults);
+
+    @Override
+    public List<UserAccount> load(int first, int pageSize, String sortField, SortOrder sortOrder, Map<String, Object> filters) {
+        Map.Entry<Integer, UserAccount> cursor = cursors.floorEntry(first);
+        int position = cursor.getKey();
+        UserAccount after = cursor.getValue();
+
+        // Only happens when the paginator jumps over pages not visited yet.
+        while (position < first) {
+            List<UserAccount> skipped = findPage(after, Math.min(first - position, pageSize));
+            if (skipped.isEmpty()) {
+                break;
+            }
+            position += skipped.size();
+            after = skipped.get(skipped.size() - 1);
+            cursors.put(position, after);
+        }
+
+        List<UserAccount> accounts = findPage(after, pageSize + 1);
+        boolean hasNext = accounts.size() > pageSize;
+        if (hasNext) {
+            accounts = new ArrayList<>(accounts.subList(0, pageSize));
+        }
+        if (!accounts.isEmpty()) {
+            cursors.put(position + accounts.size(), accounts.get(accounts.size() - 1));
+        }
+
+        this.page = accounts;
+        setRowCount(Math.max(position + accounts.size() + (hasNext ? 1 : 0), cursors.lastKey()));
+        return accounts;
+    }
+
+    @Override
+    public Object getRowKey(UserAccount userAccount) {
+        return userAccount.getId();
+    }
+
+    @Override
+    public UserAccount getRowData(String rowKey) {
+        for (UserAccount userAccount : page) {
+            if (userAccount.getId().equals(rowKey)) {
+                return userAccount;
+            }
+        }
+        return null;
+    }
+}
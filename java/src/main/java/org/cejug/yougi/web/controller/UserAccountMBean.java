@@ -20,6 +20,7 @@
  * */
 package org.cejug.yougi.web.controller;
 
+import org.cejug.yougi.business.AuthenticationBean;
 import org.cejug.yougi.business.UserAccountBean;
 import org.cejug.yougi.entity.Authentication;
 import org.cejug.yougi.entity.DeactivationType;
@@ -59,6 +60,9 @@ public class UserAccountMBean implements Serializable {
     @EJB
     private UserAccountBean userAccountBean;
 
+    @EJB
+    private AuthenticationBean authenticationBean;
+
     @ManagedProperty(value="#{locationMBean}")
     private LocationMBean locationMBean;
 
@@ -239,7 +243,7 @@ public class UserAccountMBean implements Serializable {
         try {
             authentication.setUserAccount(this.userAccount);
             authentication.setUsername(userAccount.getUnverifiedEmail());
-            authentication.setPassword(this.password);
+            authentication.setPassword(this.password, authenticationBean.getHashIterations());
             userAccountBean.register(userAccount, authentication);
         } catch(Exception e) {
             LOGGER.log(Level.INFO, e.getMessage(), e);
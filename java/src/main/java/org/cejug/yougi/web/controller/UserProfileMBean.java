@@ -23,9 +23,8 @@ package org.cejug.yougi.web.controller;
 import org.cejug.yougi.business.ApplicationPropertyBean;
 import org.cejug.yougi.business.LanguageBean;
 import org.cejug.yougi.business.TimezoneBean;
-import org.cejug.yougi.business.UserAccountBean;
 import org.cejug.yougi.entity.*;
-import org.cejug.yougi.qualifier.UserName;
+import org.cejug.yougi.util.AuthenticatedUser;
 import org.cejug.yougi.util.StringUtils;
 
 import javax.ejb.EJB;
@@ -53,9 +52,6 @@ public class UserProfileMBean implements Serializable {
     @EJB
     private TimezoneBean timezoneBean;
 
-    @EJB
-    private UserAccountBean userAccountBean;
-
     @EJB
     private ApplicationPropertyBean applicationPropertyBean;
 
@@ -63,8 +59,7 @@ public class UserProfileMBean implements Serializable {
     private FacesContext context;
 
     @Inject
-    @UserName
-    private String username;
+    private AuthenticatedUser authenticatedUser;
 
     private Language language;
     private UserAccount userAccount;
@@ -91,15 +86,16 @@ public class UserProfileMBean implements Serializable {
     }
 
     /**
-     * In the first invocation, it loads the user account in the session, using
-     * the authenticated user to search for the corresponding user in the
-     * database. Subsequent invocations return the user account in the session.
+     * Returns the account of the authenticated user, kept in the session and
+     * loaded again only when it changes.
      */
     public UserAccount getUserAccount() {
-    	if(userAccount == null) {
-            this.userAccount = userAccountBean.findByUsername(username);
-    	}
-    	return userAccount;
+        UserAccount current = authenticatedUser.getUserAccount();
+        if(current != this.userAccount) {
+            this.userAccount = current;
+            this.timezone = null;
+        }
+        return userAccount;
     }
 
     /**
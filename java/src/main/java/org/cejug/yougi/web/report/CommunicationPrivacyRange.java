@@ -20,8 +20,9 @@
  * */
 package org.cejug.yougi.web.report;
 
-import org.cejug.yougi.business.UserAccountBean;
-import org.cejug.yougi.entity.UserAccount;
+import org.cejug.yougi.business.CommunicationPrivacyBean;
+import org.cejug.yougi.business.ReportCacheBean;
+import org.cejug.yougi.entity.CommunicationPrivacyStats;
 import org.cejug.yougi.util.ResourceBundleHelper;
 import org.primefaces.model.chart.CartesianChartModel;
 import org.primefaces.model.chart.ChartSeries;
@@ -30,8 +31,9 @@ import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.RequestScoped;
+import javax.faces.context.FacesContext;
 import java.io.Serializable;
-import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * This class feeds a column chart that shows members' preferences in terms of
@@ -46,7 +48,10 @@ public class CommunicationPrivacyRange implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @EJB
-    private UserAccountBean userAccountBean;
+    private CommunicationPrivacyBean communicationPrivacyBean;
+
+    @EJB
+    private ReportCacheBean reportCacheBean;
 
     private CartesianChartModel communicationPrivacyModel;
 
@@ -59,46 +64,24 @@ public class CommunicationPrivacyRange implements Serializable {
 
     @PostConstruct
     public void load() {
-        communicationPrivacyModel = new CartesianChartModel();
-
-        Integer totalPublicProfile = 0, totalMailingList = 0, totalNews = 0,
-                totalGeneralOffer = 0, totalJobOffer = 0, totalEvent = 0,
-                totalSponsor = 0, totalSpeaker = 0;
-
-        List<UserAccount> userAccounts = userAccountBean.findAllActiveAccounts();
-        for (UserAccount userAccount : userAccounts) {
-            if (userAccount.getPublicProfile()) {
-                totalPublicProfile++;
-            }
-
-            if (userAccount.getMailingList()) {
-                totalMailingList++;
-            }
-
-            if (userAccount.getNews()) {
-                totalNews++;
-            }
-
-            if (userAccount.getGeneralOffer()) {
-                totalGeneralOffer++;
-            }
-
-            if (userAccount.getJobOffer()) {
-                totalJobOffer++;
-            }
-
-            if (userAccount.getEvent()) {
-                totalEvent++;
+        communicationPrivacyModel = reportCacheBean.get(ReportCacheBean.COMMUNICATION_PRIVACY,
+                                                        FacesContext.getCurrentInstance().getViewRoot().getLocale(), null,
+                                                        new Callable<CartesianChartModel>() {
+            @Override
+            public CartesianChartModel call() {
+                return createModel();
             }
+        });
+    }
 
-            if (userAccount.getSponsor()) {
-                totalSponsor++;
-            }
+    private CartesianChartModel createModel() {
+        CartesianChartModel model = new CartesianChartModel();
 
-            if (userAccount.getSpeaker()) {
-                totalSpeaker++;
-            }
-        }
+        CommunicationPrivacyStats stats = communicationPrivacyBean.findStats();
+        long totalPublicProfile = stats.getPublicProfile(), totalMailingList = stats.getMailingList(),
+             totalNews = stats.getNews(), totalGeneralOffer = stats.getGeneralOffer(),
+             totalJobOffer = stats.getJobOffer(), totalEvent = stats.getEvent(),
+             totalSponsor = stats.getSponsor(), totalSpeaker = stats.getSpeaker();
 
         ChartSeries communicarionPrivacyActive = new ChartSeries();
         communicarionPrivacyActive.setLabel(ResourceBundleHelper.INSTANCE.getMessage("active"));
@@ -110,9 +93,9 @@ public class CommunicationPrivacyRange implements Serializable {
         communicarionPrivacyActive.set(ResourceBundleHelper.INSTANCE.getMessage("event"), totalEvent);
         communicarionPrivacyActive.set(ResourceBundleHelper.INSTANCE.getMessage("sponsor"), totalSponsor);
         communicarionPrivacyActive.set(ResourceBundleHelper.INSTANCE.getMessage("speaker"), totalSpeaker);
-        this.communicationPrivacyModel.addSeries(communicarionPrivacyActive);
+        model.addSeries(communicarionPrivacyActive);
 
-        Integer ttl = userAccounts.size();
+        long ttl = stats.getTotal();
         ChartSeries communicarionPrivacyInactive = new ChartSeries();
         communicarionPrivacyInactive.setLabel(ResourceBundleHelper.INSTANCE.getMessage("inactive"));
         communicarionPrivacyInactive.set(ResourceBundleHelper.INSTANCE.getMessage("publicProfile"), ttl - totalPublicProfile);
@@ -123,6 +106,7 @@ public class CommunicationPrivacyRange implements Serializable {
         communicarionPrivacyInactive.set(ResourceBundleHelper.INSTANCE.getMessage("event"), ttl - totalEvent);
         communicarionPrivacyInactive.set(ResourceBundleHelper.INSTANCE.getMessage("sponsor"), ttl - totalSponsor);
         communicarionPrivacyInactive.set(ResourceBundleHelper.INSTANCE.getMessage("speaker"), ttl - totalSpeaker);
-        this.communicationPrivacyModel.addSeries(communicarionPrivacyInactive);
+        model.addSeries(communicarionPrivacyInactive);
+        return model;
     }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@
 package org.cejug.yougi.web.report;
 
 import org.cejug.yougi.business.CityBean;
+import org.cejug.yougi.business.ReportCacheBean;
 import org.cejug.yougi.entity.City;
 import org.primefaces.model.map.DefaultMapModel;
 import org.primefaces.model.map.LatLng;
@@ -31,8 +32,10 @@ import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.RequestScoped;
+import javax.faces.context.FacesContext;
 import java.io.Serializable;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * @author Hildeberto Mendonca - http://www.hildeberto.com
@@ -42,17 +45,30 @@ import java.util.List;
 public class MembersMapDistribution implements Serializable {
 
     private static final long serialVersionUID = 1L;
-    private final MapModel simpleModel;
+    private MapModel simpleModel;
 
     @EJB
     private CityBean cityBean;
 
-    public MembersMapDistribution() {
-        simpleModel = new DefaultMapModel();
-    }
+    @EJB
+    private ReportCacheBean reportCacheBean;
+
+    public MembersMapDistribution() {}
 
     @PostConstruct
     public void load() {
+        simpleModel = reportCacheBean.get(ReportCacheBean.MEMBERS_MAP,
+                                          FacesContext.getCurrentInstance().getViewRoot().getLocale(), null,
+                                          new Callable<MapModel>() {
+            @Override
+            public MapModel call() {
+                return createModel();
+            }
+        });
+    }
+
+    private MapModel createModel() {
+        MapModel model = new DefaultMapModel();
         List<City> cities = cityBean.findValidatedCities();
         LatLng coord;
         Double latitude = null;
@@ -68,9 +84,10 @@ public class MembersMapDistribution implements Serializable {
 
             if (latitude != null && longitude != null) {
                 coord = new LatLng(latitude, longitude);
-                simpleModel.addOverlay(new Marker(coord, city.getName()));
+                model.addOverlay(new Marker(coord, city.getName()));
             }
         }
+        return model;
     }
 
     public MapModel getSimpleModel() {
@@ -20,8 +20,9 @@
  * */
 package org.cejug.yougi.web.report;
 
-import org.cejug.yougi.business.UserAccountBean;
-import org.cejug.yougi.entity.UserAccount;
+import org.cejug.yougi.business.MembershipStatsBean;
+import org.cejug.yougi.business.ReportCacheBean;
+import org.cejug.yougi.entity.MembershipMonthlyStats;
 import org.cejug.yougi.util.ResourceBundleHelper;
 import org.primefaces.model.chart.CartesianChartModel;
 import org.primefaces.model.chart.ChartSeries;
@@ -29,28 +30,50 @@ import org.primefaces.model.chart.ChartSeries;
 import javax.annotation.PostConstruct;
 import javax.ejb.EJB;
 import javax.faces.bean.ManagedBean;
+import javax.faces.bean.ManagedProperty;
 import javax.faces.bean.RequestScoped;
+import javax.faces.context.FacesContext;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * This class feeds the bar chart that shows the growth of the user group in a
- * monthly basis.
+ * monthly basis and the line chart that shows the number of members at the
+ * end of each month, one series per year. The number of years comes from the
+ * request parameter "years" and is two by default.
  * @author Hildeberto Mendonca - http://www.hildeberto.com
  */
 @ManagedBean
 @RequestScoped
 public class MembershipGrowth {
 
+    private static final int DEFAULT_YEARS = 2;
+    private static final int MAX_YEARS = 20;
+
+    @EJB
+    private MembershipStatsBean membershipStatsBean;
+
     @EJB
-    private UserAccountBean userAccountBean;
+    private ReportCacheBean reportCacheBean;
+
+    @ManagedProperty(value="#{param.years}")
+    private Integer years;
 
     private CartesianChartModel membershipGrowthModel;
     private CartesianChartModel membershipCumulativeGrowthModel;
 
     public MembershipGrowth() {}
 
+    public Integer getYears() {
+        return years;
+    }
+
+    public void setYears(Integer years) {
+        this.years = years;
+    }
+
     public CartesianChartModel getMembershipGrowthModel() {
         return membershipGrowthModel;
     }
@@ -61,8 +84,26 @@ public class MembershipGrowth {
 
     @PostConstruct
     public void load() {
-        membershipGrowthModel = new CartesianChartModel();
-        membershipCumulativeGrowthModel = new CartesianChartModel();
+        final int numberOfYears = years != null && years > 0 ? Math.min(years, MAX_YEARS) : DEFAULT_YEARS;
+        CartesianChartModel[] models = reportCacheBean.get(ReportCacheBean.MEMBERSHIP_GROWTH,
+                                                           FacesContext.getCurrentInstance().getViewRoot().getLocale(),
+                                                           String.valueOf(numberOfYears),
+                                                           new Callable<CartesianChartModel[]>() {
+            @Override
+            public CartesianChartModel[] call() {
+                return createModels(numberOfYears);
+            }
+        });
+        membershipGrowthModel = models[0];
+        membershipCumulativeGrowthModel = models[1];
+    }
+
+    /**
+     * @return the model of the growth and the model of the cumulative growth.
+     */
+    private CartesianChartModel[] createModels(int numberOfYears) {
+        CartesianChartModel growthModel = new CartesianChartModel();
+        CartesianChartModel cumulativeGrowthModel = new CartesianChartModel();
 
         String[] months = {ResourceBundleHelper.INSTANCE.getMessage("januaryShort"),
                             ResourceBundleHelper.INSTANCE.getMessage("februaryShort"),
@@ -77,73 +118,27 @@ public class MembershipGrowth {
                             ResourceBundleHelper.INSTANCE.getMessage("novemberShort"),
                             ResourceBundleHelper.INSTANCE.getMessage("decemberShort")};
 
-        Calendar lastDay = Calendar.getInstance();
-        lastDay.set(Calendar.MONTH, Calendar.DECEMBER);
-        lastDay.set(Calendar.DATE, 31);
-        lastDay.set(Calendar.HOUR, 11);
-        lastDay.set(Calendar.MINUTE, 59);
-        lastDay.set(Calendar.SECOND, 59);
-        lastDay.set(Calendar.AM_PM, Calendar.PM);
-        Date to = lastDay.getTime();
-
-        Calendar firstDay = lastDay;
-        firstDay.add(Calendar.YEAR, -1);
-        firstDay.set(Calendar.DAY_OF_MONTH, 1);
-        firstDay.set(Calendar.MONTH, 0);
-        firstDay.set(Calendar.HOUR, 0);
-        firstDay.set(Calendar.MINUTE, 0);
-        lastDay.set(Calendar.SECOND, 0);
-        lastDay.set(Calendar.AM_PM, Calendar.AM);
-        Date from = firstDay.getTime();
-
-        List<UserAccount> userAccounts = userAccountBean.findConfirmedAccounts(from, to);
-
-        Calendar registrationDate;
-        Calendar deactivationDate;
-        int[][] data = new int[2][12];
-        int year, month, currentYear = 0;
-        for(UserAccount userAccount: userAccounts) {
-            registrationDate = Calendar.getInstance();
-            registrationDate.setTime(userAccount.getRegistrationDate());
-            if(currentYear == 0) {
-                currentYear = registrationDate.get(Calendar.YEAR);
-            }
+        int currentYear = Calendar.getInstance().get(Calendar.YEAR);
+        int firstYear = currentYear - numberOfYears + 1;
 
-            year = registrationDate.get(Calendar.YEAR) - currentYear;
-            month = registrationDate.get(Calendar.MONTH);
-            data[year][month] += 1;
+        List<MembershipMonthlyStats> monthlyStats = membershipStatsBean.findMonths(MembershipMonthlyStats.periodOf(firstYear, Calendar.JANUARY),
+                                                                                  MembershipMonthlyStats.periodOf(new Date()));
 
-            if(userAccount.getDeactivationDate() != null) {
-                deactivationDate = Calendar.getInstance();
-                deactivationDate.setTime(userAccount.getDeactivationDate());
-
-                year = deactivationDate.get(Calendar.YEAR) - currentYear;
-                month = deactivationDate.get(Calendar.MONTH);
-                data[year][month] -= 1;
-            }
-        }
-
-        ChartSeries annualSeries;
-        for(int i = 0;i < 2;i++) {
-            annualSeries = new ChartSeries();
-            annualSeries.setLabel(String.valueOf(currentYear + i));
-            for(int j = 0;j < 12;j++) {
-                annualSeries.set(months[j], data[i][j]);
-            }
-            membershipGrowthModel.addSeries(annualSeries);
-        }
+        ChartSeries annualSeries = null;
+        ChartSeries accumulatedSeries = null;
+        for(MembershipMonthlyStats month: monthlyStats) {
+            if(month.getMonth() == Calendar.JANUARY || annualSeries == null) {
+                annualSeries = new ChartSeries();
+                annualSeries.setLabel(String.valueOf(month.getYear()));
+                growthModel.addSeries(annualSeries);
 
-        ChartSeries accumulatedSeries;
-        int accumulated;
-        for(int i = 0;i < 2;i++) {
-            accumulated = 0;
-            accumulatedSeries = new ChartSeries();
-            accumulatedSeries.setLabel(String.valueOf(currentYear + i));
-            for(int j = 0;j < 12;j++) {
-                accumulated = data[i][j] + accumulated;
-                accumulatedSeries.set(months[j], accumulated);
+                accumulatedSeries = new ChartSeries();
+                accumulatedSeries.setLabel(String.valueOf(month.getYear()));
+                cumulativeGrowthModel.addSeries(accumulatedSeries);
             }
-            membershipCumulativeGrowthModel.addSeries(accumulatedSeries);
+            annualSeries.set(months[month.getMonth()], month.getGrowth());
+            accumulatedSeries.set(months[month.getMonth()], month.getTotal());
         }
+        return new CartesianChartModel[] {growthModel, cumulativeGrowthModel};
     }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+--liquibase formatted sql
+
+alter table historical_message add delivery_attempts int null;
+alter table historical_message add next_attempt datetime null;
+alter table historical_message add delivery_failed tinyint(1) null;
+update historical_message set delivery_attempts = 0, delivery_failed = 0 where message_sent = 0;
+create index idx_message_pending on historical_message (message_sent, delivery_failed, id);
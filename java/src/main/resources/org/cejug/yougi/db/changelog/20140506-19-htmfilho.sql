@@ -0,0 +1,27 @@
+--liquibase formatted sql
+
+create table message_body (
+    id      char(32)     not null,
+    subject varchar(255) not null,
+    body    text         not null
+) engine = innodb;
+
+alter table message_body add constraint pk_message_body primary key (id);
+
+alter table historical_message add message_body char(32) null;
+alter table historical_message add variables text null;
+
+-- The id is the hash of the UTF-8 bytes of the content, as computed by
+-- MessageBody, whatever the charset of the columns.
+insert into message_body (id, subject, body)
+    select upper(left(sha2(concat(convert(subject using utf8mb4), char(0 using utf8mb4), convert(body using utf8mb4)), 256), 32)), min(subject), min(body)
+    from historical_message
+    group by upper(left(sha2(concat(convert(subject using utf8mb4), char(0 using utf8mb4), convert(body using utf8mb4)), 256), 32));
+
+update historical_message set message_body = upper(left(sha2(concat(convert(subject using utf8mb4), char(0 using utf8mb4), convert(body using utf8mb4)), 256), 32));
+
+alter table historical_message modify message_body char(32) not null;
+create index idx_message_body on historical_message (message_body);
+alter table historical_message add constraint fk_message_body foreign key (message_body) references message_body(id);
+alter table historical_message drop column subject;
+alter table historical_message drop column body;
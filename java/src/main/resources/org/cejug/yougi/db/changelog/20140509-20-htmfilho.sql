@@ -0,0 +1,28 @@
+--liquibase formatted sql
+
+-- Messages still waiting for delivery keep a null date_sent. Existing rows are
+-- listed by the date they were sent, or by now if they were never sent.
+alter table historical_message add date_queued datetime null;
+update historical_message set date_queued = coalesce(date_sent, now());
+alter table historical_message modify date_queued datetime not null;
+
+create index idx_message_recipient_date on historical_message (recipient, date_queued, id);
+create index idx_message_date_queued on historical_message (date_queued, id);
+
+create table historical_message_archive (
+    id                char(32)   not null,
+    message_body      char(32)   not null,
+    variables         text           null,
+    recipient         char(32)   not null,
+    message_sent      tinyint(1)     null,
+    date_queued       datetime   not null,
+    date_sent         datetime       null,
+    delivery_attempts int            null,
+    next_attempt      datetime       null,
+    delivery_failed   tinyint(1)     null
+) engine = innodb;
+
+alter table historical_message_archive add constraint pk_historical_message_archive primary key (id);
+alter table historical_message_archive add constraint fk_archive_message_body foreign key (message_body) references message_body(id);
+alter table historical_message_archive add constraint fk_archive_recipient foreign key (recipient) references user_account(id) on delete cascade;
+create index idx_archive_recipient_date on historical_message_archive (recipient, date_queued, id);
@@ -0,0 +1,4 @@
+--liquibase formatted sql
+
+insert into message_template (id, title, body) values
+    ('B3A1D6F04E7C4A5F9E2D8C6B1A0F7E35', '[UG Admin] Membership Digest', '<p>Dear UG Leader,</p><p>These are the changes in the membership since #{digest.since}.</p><p><b>New members: #{digest.totalNewMembers}</b></p>#{digest.newMembers}<p><b>Deactivated members: #{digest.totalDeactivatedMembers}</b></p>#{digest.deactivatedMembers}<p>Regards,</p><p><b>UG Management</b></p>');
@@ -0,0 +1,3 @@
+--liquibase formatted sql
+
+alter table authentication modify password varchar(255) not null;
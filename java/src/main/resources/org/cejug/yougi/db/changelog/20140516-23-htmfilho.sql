@@ -0,0 +1,3 @@
+--liquibase formatted sql
+
+create index idx_user_account_name on user_account (first_name, id);
@@ -0,0 +1,3 @@
+--liquibase formatted sql
+
+create index idx_user_account_unverified on user_account (verified, registration_date);
@@ -0,0 +1,29 @@
+--liquibase formatted sql
+
+create table communication_privacy_stats (
+    id             int          not null,
+    total          bigint       not null default 0,
+    public_profile bigint       not null default 0,
+    mailing_list   bigint       not null default 0,
+    news           bigint       not null default 0,
+    general_offer  bigint       not null default 0,
+    job_offer      bigint       not null default 0,
+    event          bigint       not null default 0,
+    sponsor        bigint       not null default 0,
+    speaker        bigint       not null default 0
+) engine = innodb;
+
+alter table communication_privacy_stats add constraint pk_communication_privacy_stats primary key (id);
+
+insert into communication_privacy_stats (id, total, public_profile, mailing_list, news, general_offer, job_offer, event, sponsor, speaker)
+    select 1, count(*),
+           coalesce(sum(case when public_profile = true then 1 else 0 end), 0),
+           coalesce(sum(case when mailing_list = true then 1 else 0 end), 0),
+           coalesce(sum(case when news = true then 1 else 0 end), 0),
+           coalesce(sum(case when general_offer = true then 1 else 0 end), 0),
+           coalesce(sum(case when job_offer = true then 1 else 0 end), 0),
+           coalesce(sum(case when event = true then 1 else 0 end), 0),
+           coalesce(sum(case when sponsor = true then 1 else 0 end), 0),
+           coalesce(sum(case when speaker = true then 1 else 0 end), 0)
+    from user_account
+    where deactivated = false and confirmation_code is null;
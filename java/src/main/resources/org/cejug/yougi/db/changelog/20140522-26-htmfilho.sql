@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+create table membership_monthly_stats (
+    period        int          not null,
+    registrations bigint       not null default 0,
+    deactivations bigint       not null default 0,
+    total         bigint       not null default 0
+) engine = innodb;
+
+alter table membership_monthly_stats add constraint pk_membership_monthly_stats primary key (period);
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+alter table user_account add website_host varchar(100) null;
+
+create index idx_user_account_website_host on user_account (website_host);
@@ -0,0 +1,28 @@
+--liquibase formatted sql
+
+create table event_closure (
+    ancestor   char(32) not null,
+    descendant char(32) not null,
+    depth      int      not null
+) engine = innodb;
+
+alter table event_closure add constraint pk_event_closure primary key (ancestor, descendant);
+create index idx_event_closure_descendant on event_closure (descendant, depth);
+alter table event_closure add constraint fk_event_closure_ancestor foreign key (ancestor) references event(id) on delete cascade;
+alter table event_closure add constraint fk_event_closure_descendant foreign key (descendant) references event(id) on delete cascade;
+
+-- Every event is its own ancestor with depth zero.
+insert into event_closure (ancestor, descendant, depth)
+    select id, id, 0 from event;
+
+-- Each statement adds the paths one level longer than the previous one. Only
+-- events without parent can be chosen as parents, so existing hierarchies are
+-- not deeper than this.
+insert into event_closure (ancestor, descendant, depth)
+    select c.ancestor, e.id, 1 from event e join event_closure c on c.descendant = e.parent and c.depth = 0;
+
+insert into event_closure (ancestor, descendant, depth)
+    select c.ancestor, e.id, 2 from event e join event_closure c on c.descendant = e.parent and c.depth = 1;
+
+insert into event_closure (ancestor, descendant, depth)
+    select c.ancestor, e.id, 3 from event e join event_closure c on c.descendant = e.parent and c.depth = 2;
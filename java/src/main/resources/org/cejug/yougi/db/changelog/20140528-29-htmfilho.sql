@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+-- The end of the last digest of membership changes sent to the administrators.
+create table admin_digest (
+    id        int      not null,
+    last_sent datetime not null
+) engine = innodb;
+
+alter table admin_digest add constraint pk_admin_digest primary key (id);
+insert into admin_digest (id, last_sent) values (1, now());
@@ -0,0 +1,174 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.Gender;
+import org.cejug.yougi.entity.MessageBody;
+import org.cejug.yougi.entity.MessageHistory;
+import org.cejug.yougi.entity.UserAccount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the insertion of 100k historical messages in an in-memory database,
+ * comparing one save per message, as messages were saved before, with the bulk
+ * insert, which flushes the messages in JDBC batches. Run it with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.cejug.yougi.business.MessageHistoryBeanBenchmark
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MessageHistoryBeanBenchmark {
+
+    private static final int MESSAGES = 100000;
+    private static final int RECIPIENTS = 100;
+    private static final int BATCH_SIZE = 50;
+
+    private EntityManagerFactory unbatchedFactory;
+    private EntityManagerFactory batchedFactory;
+    private EntityManager entityManager;
+    private List<UserAccount> recipients;
+
+    @Setup(Level.Trial)
+    public void createDatabases() {
+        Map<String, String> unbatched = new HashMap<>();
+        unbatched.put("javax.persistence.jdbc.url", "jdbc:h2:mem:unbatched;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        unbatchedFactory = Persistence.createEntityManagerFactory("ug-benchmark-pu", unbatched);
+
+        Map<String, String> batched = new HashMap<>();
+        batched.put("javax.persistence.jdbc.url", "jdbc:h2:mem:batched;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        batched.put("hibernate.jdbc.batch_size", String.valueOf(BATCH_SIZE));
+        batched.put("hibernate.order_inserts", "true");
+        batchedFactory = Persistence.createEntityManagerFactory("ug-benchmark-pu", batched);
+
+        recipients = new ArrayList<>(RECIPIENTS);
+        for(int i = 0; i < RECIPIENTS; i++) {
+            UserAccount recipient = new UserAccount("Member", String.valueOf(i), "member"+ i +"@cejug.org");
+            recipient.setId(String.format("%032d", i));
+            recipient.setGender(Gender.FEMALE);
+            recipients.add(recipient);
+        }
+        insertRecipients(unbatchedFactory);
+        insertRecipients(batchedFactory);
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabases() {
+        unbatchedFactory.close();
+        batchedFactory.close();
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeMessages() {
+        entityManager.getTransaction().begin();
+        entityManager.createQuery("delete from MessageHistory").executeUpdate();
+        entityManager.createQuery("delete from MessageBody").executeUpdate();
+        entityManager.getTransaction().commit();
+        entityManager.close();
+    }
+
+    @Benchmark
+    public void saveOneByOne() {
+        entityManager = unbatchedFactory.createEntityManager();
+        MessageHistoryBean messageHistoryBean = createMessageHistoryBean(entityManager);
+        entityManager.getTransaction().begin();
+        for(MessageHistory messageHistory: createMessages()) {
+            messageHistoryBean.save(messageHistory);
+        }
+        entityManager.getTransaction().commit();
+    }
+
+    @Benchmark
+    public void saveAll() {
+        entityManager = batchedFactory.createEntityManager();
+        MessageHistoryBean messageHistoryBean = createMessageHistoryBean(entityManager);
+        entityManager.getTransaction().begin();
+        messageHistoryBean.saveAll(createMessages(), BATCH_SIZE);
+        entityManager.getTransaction().commit();
+    }
+
+    private List<MessageHistory> createMessages() {
+        List<MessageHistory> messages = new ArrayList<>(MESSAGES);
+        Map<String, String> variables = new HashMap<>();
+        Date dateQueued = new Date();
+        for(int i = 0; i < MESSAGES; i++) {
+            // A new message body every 5,000 messages, as in a broadcast to 5,000 members.
+            MessageBody messageBody = new MessageBody("Message "+ (i / 5000), "<p>Hi #{userAccount.firstName},</p><p>This is the message number "+ (i / 5000) +".</p>");
+            variables.put("userAccount.firstName", "Member "+ i);
+            MessageHistory messageHistory = new MessageHistory(messageBody, recipients.get(i % RECIPIENTS), variables);
+            messageHistory.setMessageSent(Boolean.FALSE);
+            messageHistory.setDateQueued(dateQueued);
+            messages.add(messageHistory);
+        }
+        return messages;
+    }
+
+    private void insertRecipients(EntityManagerFactory factory) {
+        EntityManager em = factory.createEntityManager();
+        em.getTransaction().begin();
+        for(UserAccount recipient: recipients) {
+            em.persist(recipient);
+        }
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    private MessageHistoryBean createMessageHistoryBean(final EntityManager em) {
+        return new MessageHistoryBean() {
+            @Override
+            protected EntityManager getEntityManager() {
+                return em;
+            }
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MessageHistoryBeanBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,191 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.business;
+
+import org.cejug.yougi.entity.AccessGroup;
+import org.cejug.yougi.entity.Gender;
+import org.cejug.yougi.entity.Properties;
+import org.cejug.yougi.entity.UserAccount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the import of 100k members in an in-memory database, in batches of
+ * the same size used by the MemberFileBean, each one in a transaction. Every
+ * member inserts a user account, an authentication and a user group, sent to
+ * the database in JDBC batches. The search index and the membership stats are
+ * left out, since they don't touch the imported tables. Run it with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.cejug.yougi.business.UserAccountBeanBenchmark
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UserAccountBeanBenchmark {
+
+    private static final int MEMBERS = 100000;
+    private static final int JDBC_BATCH_SIZE = 50;
+
+    private EntityManagerFactory factory;
+    private EntityManager entityManager;
+    private UserAccountBean userAccountBean;
+    private List<List<UserAccount>> batches;
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws ReflectiveOperationException {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:import;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("hibernate.jdbc.batch_size", String.valueOf(JDBC_BATCH_SIZE));
+        properties.put("hibernate.order_inserts", "true");
+        factory = Persistence.createEntityManagerFactory("ug-benchmark-pu", properties);
+        entityManager = factory.createEntityManager();
+
+        final AccessGroup defaultGroup = new AccessGroup("members", "Default Members Group");
+        defaultGroup.setId(String.format("%032d", 0));
+        defaultGroup.setUserDefault(Boolean.TRUE);
+        entityManager.getTransaction().begin();
+        entityManager.persist(defaultGroup);
+        entityManager.getTransaction().commit();
+
+        userAccountBean = new UserAccountBean();
+        inject(userAccountBean, "em", entityManager);
+        inject(userAccountBean, "accessGroupBean", new AccessGroupBean() {
+            @Override
+            public AccessGroup findDefaultAccessGroup() {
+                return entityManager.find(AccessGroup.class, defaultGroup.getId());
+            }
+        });
+        inject(userAccountBean, "applicationPropertyBean", new ApplicationPropertyBean() {
+            @Override
+            public String getPropertyValue(Properties properties) {
+                return properties.getDefaultValue();
+            }
+        });
+        inject(userAccountBean, "memberSearchBean", new MemberSearchBean() {
+            @Override
+            public void update(UserAccount userAccount) {}
+        });
+        inject(userAccountBean, "membershipStatsBean", new MembershipStatsBean() {
+            @Override
+            public void registered(Map<Integer, Long> registrations) {}
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        entityManager.close();
+        factory.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void createMembers() {
+        Calendar registrationDate = Calendar.getInstance();
+        batches = new ArrayList<>();
+        List<UserAccount> batch = new ArrayList<>(MemberFileBean.BATCH_SIZE);
+        for(int i = 0; i < MEMBERS; i++) {
+            UserAccount userAccount = new UserAccount();
+            userAccount.setUnverifiedEmail("member"+ i +"@cejug.org");
+            userAccount.setEmailAsVerified();
+            userAccount.setVerified(Boolean.TRUE);
+            userAccount.setFirstName("Member");
+            userAccount.setLastName(String.valueOf(i));
+            userAccount.setGender(i % 2 == 0 ? Gender.FEMALE : Gender.MALE);
+            userAccount.setPublicProfile(Boolean.TRUE);
+            userAccount.setMailingList(Boolean.TRUE);
+            userAccount.setNews(Boolean.TRUE);
+            userAccount.setGeneralOffer(Boolean.FALSE);
+            userAccount.setJobOffer(Boolean.FALSE);
+            userAccount.setEvent(Boolean.TRUE);
+            userAccount.setSponsor(Boolean.FALSE);
+            userAccount.setSpeaker(Boolean.FALSE);
+            // Members of a group founded about eight years before.
+            registrationDate.setTimeInMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(i % 3000));
+            userAccount.setRegistrationDate(registrationDate.getTime());
+            batch.add(userAccount);
+
+            if(batch.size() == MemberFileBean.BATCH_SIZE) {
+                batches.add(batch);
+                batch = new ArrayList<>(MemberFileBean.BATCH_SIZE);
+            }
+        }
+        if(!batch.isEmpty()) {
+            batches.add(batch);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeMembers() {
+        entityManager.getTransaction().begin();
+        entityManager.createQuery("delete from UserGroup").executeUpdate();
+        entityManager.createQuery("delete from Authentication").executeUpdate();
+        entityManager.createQuery("delete from UserAccount").executeUpdate();
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+    }
+
+    @Benchmark
+    public void importMembers() {
+        for(List<UserAccount> batch: batches) {
+            entityManager.getTransaction().begin();
+            userAccountBean.importMembers(batch);
+            entityManager.getTransaction().commit();
+            entityManager.clear();
+        }
+    }
+
+    private static void inject(Object bean, String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = UserAccountBean.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(bean, value);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(UserAccountBeanBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,65 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.entity;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.cejug.yougi.entity.CommunicationPrivacyStats.*;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class CommunicationPrivacyStatsTest {
+
+    @Test
+    public void testFlagsOfActiveAccount() {
+        UserAccount userAccount = new UserAccount();
+        userAccount.setPublicProfile(true);
+        userAccount.setNews(true);
+
+        int flags = flagsOf(userAccount);
+        Assert.assertEquals(ACTIVE | PUBLIC_PROFILE | NEWS, flags);
+    }
+
+    @Test
+    public void testFlagsOfInactiveAccount() {
+        UserAccount userAccount = new UserAccount();
+        userAccount.setPublicProfile(true);
+        userAccount.defineNewConfirmationCode();
+        Assert.assertEquals(0, flagsOf(userAccount));
+
+        userAccount.resetConfirmationCode();
+        userAccount.setDeactivated(true);
+        Assert.assertEquals(0, flagsOf(userAccount));
+    }
+
+    @Test
+    public void testDifference() {
+        int before = ACTIVE | PUBLIC_PROFILE;
+        int after = ACTIVE | NEWS;
+
+        Assert.assertEquals(0, difference(before, after, ACTIVE));
+        Assert.assertEquals(-1, difference(before, after, PUBLIC_PROFILE));
+        Assert.assertEquals(1, difference(before, after, NEWS));
+        Assert.assertEquals(-1, difference(before, 0, ACTIVE));
+    }
+}
@@ -33,6 +33,13 @@ public class EntitySupportTest {
         Assert.assertFalse("An id should not contain the character '-'", EntitySupport.INSTANCE.generateEntityId().contains("-"));
     }
 
+    @Test
+    public void testGenerateEntityIdDigits() throws Exception {
+        String id = EntitySupport.INSTANCE.generateEntityId();
+        Assert.assertTrue("An id should contain only uppercase hexadecimal digits", id.matches("[0-9A-F]{32}"));
+        Assert.assertFalse("Ids should be unique", id.equals(EntitySupport.INSTANCE.generateEntityId()));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testIsIdNotValid() throws Exception {
         EntitySupport.INSTANCE.isIdNotValid(null);
@@ -0,0 +1,57 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.entity;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Calendar;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class MembershipMonthlyStatsTest {
+
+    @Test
+    public void testPeriodOf() {
+        Calendar date = Calendar.getInstance();
+        date.set(2014, Calendar.MAY, 31, 23, 59, 59);
+        Assert.assertEquals(201405, MembershipMonthlyStats.periodOf(date.getTime()));
+        Assert.assertEquals(201401, MembershipMonthlyStats.periodOf(2014, Calendar.JANUARY));
+        Assert.assertEquals(201412, MembershipMonthlyStats.periodOf(2014, Calendar.DECEMBER));
+    }
+
+    @Test
+    public void testNextPeriod() {
+        Assert.assertEquals(201406, MembershipMonthlyStats.nextPeriod(201405));
+        Assert.assertEquals(201501, MembershipMonthlyStats.nextPeriod(201412));
+    }
+
+    @Test
+    public void testYearAndMonth() {
+        MembershipMonthlyStats stats = new MembershipMonthlyStats(201412);
+        stats.setRegistrations(10);
+        stats.setDeactivations(3);
+        Assert.assertEquals(2014, stats.getYear());
+        Assert.assertEquals(Calendar.DECEMBER, stats.getMonth());
+        Assert.assertEquals(7, stats.getGrowth());
+    }
+}
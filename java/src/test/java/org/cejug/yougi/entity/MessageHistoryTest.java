@@ -0,0 +1,109 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.entity;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class MessageHistoryTest {
+
+    @Test
+    public void testRegisterFailedAttemptBacksOff() {
+        MessageHistory messageHistory = new MessageHistory();
+        long retryDelay = 60000;
+
+        for(int attempt = 1; attempt < 5; attempt++) {
+            long before = System.currentTimeMillis();
+            Assert.assertTrue(messageHistory.registerFailedAttempt(5, retryDelay));
+            long delay = messageHistory.getNextAttempt().getTime() - before;
+            long expected = retryDelay << (attempt - 1);
+
+            Assert.assertEquals(attempt, messageHistory.getDeliveryAttempts());
+            Assert.assertTrue(delay >= expected / 2 - 1000);
+            Assert.assertTrue(delay <= expected + 1000);
+        }
+    }
+
+    @Test
+    public void testRegisterFailedAttemptGivesUp() {
+        MessageHistory messageHistory = new MessageHistory();
+        Assert.assertTrue(messageHistory.registerFailedAttempt(2, 1000));
+        Assert.assertFalse(messageHistory.registerFailedAttempt(2, 1000));
+        Assert.assertEquals(Boolean.TRUE, messageHistory.getDeliveryFailed());
+        Assert.assertNull(messageHistory.getNextAttempt());
+    }
+
+    @Test
+    public void testRegisterFailedAttemptLimitsDelay() {
+        MessageHistory messageHistory = new MessageHistory();
+        messageHistory.setDeliveryAttempts(40);
+        long before = System.currentTimeMillis();
+        Assert.assertTrue(messageHistory.registerFailedAttempt(100, 60000));
+        Assert.assertTrue(messageHistory.getNextAttempt().getTime() - before <= 24 * 60 * 60 * 1000L + 1000);
+    }
+
+    @Test
+    public void testEncodeVariables() {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("userAccount.firstName", "Joe");
+        variables.put("tricky", "a=b\\c\nd");
+        variables.put("empty", "");
+        variables.put("missing", null);
+
+        Map<String, String> decoded = MessageHistory.decodeVariables(MessageHistory.encodeVariables(variables));
+        Assert.assertEquals(3, decoded.size());
+        Assert.assertEquals("Joe", decoded.get("userAccount.firstName"));
+        Assert.assertEquals("a=b\\c\nd", decoded.get("tricky"));
+        Assert.assertEquals("", decoded.get("empty"));
+        Assert.assertNull(MessageHistory.encodeVariables(null));
+    }
+
+    @Test
+    public void testSharedMessageBody() {
+        MessageBody messageBody = new MessageBody("Hello #{userAccount.firstName}", "<p>Welcome to #{groupName}, #{userAccount.firstName}!</p>");
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("groupName", "CEJUG");
+
+        variables.put("userAccount.firstName", "Joe");
+        MessageHistory joe = new MessageHistory(messageBody, new UserAccount(), variables);
+        variables.put("userAccount.firstName", "Mary");
+        MessageHistory mary = new MessageHistory(messageBody, new UserAccount(), variables);
+
+        Assert.assertEquals("Hello Joe", joe.getSubject());
+        Assert.assertEquals("<p>Welcome to CEJUG, Joe!</p>", joe.getBody());
+        Assert.assertEquals("Hello Mary", mary.getSubject());
+        Assert.assertEquals("<p>Welcome to CEJUG, Mary!</p>", mary.createEmailMessage().getBody());
+    }
+
+    @Test
+    public void testMessageBodyId() {
+        MessageBody messageBody = new MessageBody("Subject", "Body");
+        Assert.assertEquals(messageBody.getId(), new MessageBody("Subject", "Body").getId());
+        Assert.assertFalse(messageBody.getId().equals(new MessageBody("SubjectB", "ody").getId()));
+        Assert.assertTrue(EntitySupport.INSTANCE.isIdValid(messageBody.getId()));
+    }
+}
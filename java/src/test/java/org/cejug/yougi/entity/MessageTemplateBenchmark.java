@@ -0,0 +1,116 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.entity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the rendering of a message template compiled in segments with the
+ * former implementation, which parsed the template with a regular expression
+ * and replaced each variable in a new string. Run it with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.cejug.yougi.entity.MessageTemplateBenchmark
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageTemplateBenchmark {
+
+    private static final String VAR_PATTERN = "\\#\\{([a-z][a-zA-Z_0-9]*(\\.)?)+\\}";
+
+    private static final String TITLE = "[UG] Registration Confirmation of #{userAccount.firstName}";
+
+    private static final String BODY = "<p>Hi <b>#{userAccount.firstName}</b>,</p><p>you seems to register yourself as a member of UG. We would like to confirm your email address to be able to contact you when necessary. You just have to click on the link below to confirm your email:</p><p><a href='http://#{serverAddress}/EmailConfirmation?code=#{userAccount.confirmationCode}'>http://#{serverAddress}/EmailConfirmation?code=#{userAccount.confirmationCode}</a></p><p>If the address above does not look like a link, please select, copy and paste it your web browser. If you do not registered on UG and beleave that this message was sent by mistake, please ignore it and accept our apologes.</p><p>Best Regards,</p><p><b>UG Leadership Team</b></p>";
+
+    private Map<String, Object> values;
+    private CompiledMessageTemplate compiledTemplate;
+    private StringBuilder buffer;
+
+    @Setup
+    public void setUp() {
+        values = new HashMap<>();
+        values.put("userAccount.firstName", "Joe");
+        values.put("userAccount.confirmationCode", "E3F122DCC87D42248872878412B34CEE");
+        values.put("serverAddress", "localhost:8080/ug");
+        compiledTemplate = CompiledMessageTemplate.compile(TITLE, BODY);
+        buffer = new StringBuilder();
+    }
+
+    @Benchmark
+    public EmailMessage compiledTemplate() {
+        return compiledTemplate.buildEmailMessage(values, buffer);
+    }
+
+    @Benchmark
+    public EmailMessage regexReplacement() {
+        EmailMessage emailMessage = new EmailMessage();
+        Pattern pattern = Pattern.compile(VAR_PATTERN);
+        emailMessage.setSubject(replaceVariables(pattern, TITLE));
+        emailMessage.setBody(replaceVariables(pattern, BODY));
+        return emailMessage;
+    }
+
+    private String replaceVariables(Pattern pattern, String text) {
+        Matcher m = pattern.matcher(text);
+        List<String> variables = new ArrayList<>();
+        while (m.find()) {
+            variables.add(m.group());
+        }
+
+        Object value;
+        for(String variable: variables) {
+            variable = variable.substring(2, variable.length() - 1);
+            value = values.get(variable);
+            if(value != null) {
+                text = text.replace("#{" + variable + "}", value.toString());
+            }
+        }
+        return text;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MessageTemplateBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -20,14 +20,58 @@
  * */
 package org.cejug.yougi.entity;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
  * @author [name of the person who wrote this test] - [github profile url or personal website]
  */
 public class MessageTemplateTest {
+
     @Test
     public void testBuildEmailMessage() throws Exception {
+        MessageTemplate messageTemplate = new MessageTemplate();
+        messageTemplate.setTitle("[#{groupName}] Welcome #{userAccount.firstName}");
+        messageTemplate.setBody("<p>Hi #{userAccount.firstName},</p><p>Visit #{serverAddress}/confirm?code=#{userAccount.confirmationCode}</p>");
+        messageTemplate.setVariable("groupName", "CEJUG");
+        messageTemplate.setVariable("userAccount.firstName", "Joe");
+        messageTemplate.setVariable("serverAddress", "http://localhost:8080/ug");
+        messageTemplate.setVariable("userAccount.confirmationCode", "ABC123");
+
+        EmailMessage emailMessage = messageTemplate.buildEmailMessage();
+        Assert.assertEquals("[CEJUG] Welcome Joe", emailMessage.getSubject());
+        Assert.assertEquals("<p>Hi Joe,</p><p>Visit http://localhost:8080/ug/confirm?code=ABC123</p>", emailMessage.getBody());
+    }
+
+    @Test
+    public void testBuildEmailMessageWithoutValues() throws Exception {
+        MessageTemplate messageTemplate = new MessageTemplate();
+        messageTemplate.setTitle("#{event.name}");
+        messageTemplate.setBody("Price: #{1} or #{ event.price } at #{event.venue}.");
+        messageTemplate.setVariable("event.name", "JavaOne");
+
+        EmailMessage emailMessage = messageTemplate.buildEmailMessage();
+        Assert.assertEquals("JavaOne", emailMessage.getSubject());
+        Assert.assertEquals("Price: #{1} or #{ event.price } at #{event.venue}.", emailMessage.getBody());
+    }
+
+    @Test
+    public void testBuildEmailMessageAfterChange() throws Exception {
+        MessageTemplate messageTemplate = new MessageTemplate();
+        messageTemplate.setTitle("Hello #{name}");
+        messageTemplate.setBody("Body");
+        messageTemplate.setVariable("name", "Joe");
+        Assert.assertEquals("Hello Joe", messageTemplate.buildEmailMessage().getSubject());
 
+        messageTemplate.setTitle("Bye #{name}");
+        Assert.assertEquals("Bye Joe", messageTemplate.buildEmailMessage().getSubject());
+    }
+
+    @Test
+    public void testIsCompiledFrom() throws Exception {
+        CompiledMessageTemplate compiledTemplate = CompiledMessageTemplate.compile("Hello #{name}", "Body");
+        Assert.assertTrue(compiledTemplate.isCompiledFrom("Hello #{name}", "Body"));
+        Assert.assertFalse(compiledTemplate.isCompiledFrom("Hello #{name}", "New body"));
+        Assert.assertFalse(compiledTemplate.isCompiledFrom(null, "Body"));
     }
 }
@@ -81,6 +81,14 @@ public class UserAccountTest {
     	Assert.assertEquals("teste.org", user.getWebsite());
     }
 
+    @Test
+    public void testWebsiteHost() throws Exception {
+    	user.setWebsite("https://www.Teste.org/blog");
+    	Assert.assertEquals("teste.org", user.getWebsiteHost());
+    	user.setWebsite("");
+    	Assert.assertNull(user.getWebsiteHost());
+    }
+
     @Test
     public void testSetTwitter() throws Exception {
     	user.setTwitter(null);
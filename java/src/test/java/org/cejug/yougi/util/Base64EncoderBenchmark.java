@@ -0,0 +1,98 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of encoding and decoding Base64 data, allocating the
+ * result on every call or writing it into reused buffers. The sizes cover
+ * password digests (32 bytes) and payloads of some kilobytes. Run it with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.cejug.yougi.util.Base64EncoderBenchmark
+ * Add the option -Dexec.args="-prof gc" to compare the allocation rates.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Base64EncoderBenchmark {
+
+    @Param({"32", "4096", "65536"})
+    private int size;
+
+    private byte[] data;
+    private String encoded;
+    private char[] encodeBuffer;
+    private byte[] decodeBuffer;
+
+    @Setup
+    public void createData() {
+        data = new byte[size];
+        new Random(42).nextBytes(data);
+        encoded = String.valueOf(Base64Encoder.encode(data));
+        encodeBuffer = new char[Base64Encoder.encodedLength(size)];
+        decodeBuffer = new byte[size];
+    }
+
+    @Benchmark
+    public char[] encode() {
+        return Base64Encoder.encode(data);
+    }
+
+    @Benchmark
+    public int encodeIntoBuffer() {
+        return Base64Encoder.encode(data, 0, data.length, encodeBuffer, 0);
+    }
+
+    @Benchmark
+    public byte[] decode() {
+        return Base64Encoder.decode(encoded);
+    }
+
+    @Benchmark
+    public int decodeIntoBuffer() {
+        return Base64Encoder.decode(encoded, 0, encoded.length(), decodeBuffer, 0);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(Base64EncoderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,117 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class Base64EncoderTest {
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    @Test
+    public void testRfcVectors() {
+        String[][] vectors = {{"", ""}, {"f", "Zg=="}, {"fo", "Zm8="}, {"foo", "Zm9v"},
+                              {"foob", "Zm9vYg=="}, {"fooba", "Zm9vYmE="}, {"foobar", "Zm9vYmFy"}};
+        for(String[] vector: vectors) {
+            Assert.assertEquals(vector[1], Base64Encoder.encodeString(vector[0]));
+            Assert.assertEquals(vector[0], Base64Encoder.decodeString(vector[1]));
+        }
+    }
+
+    /**
+     * The hashes of passwords already stored must keep matching.
+     */
+    @Test
+    public void testStoredPasswordHash() throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest("abc".getBytes("UTF8"));
+        Assert.assertEquals("ungWv48Bz+pBQUDeXa4iI7ADYaOWF3qctBD/YfIAFa0=", String.valueOf(Base64Encoder.encode(digest)));
+        Assert.assertArrayEquals(digest, Base64Encoder.decode("ungWv48Bz+pBQUDeXa4iI7ADYaOWF3qctBD/YfIAFa0="));
+    }
+
+    @Test
+    public void testSameOutputAsPreviousEncoder() {
+        Random random = new Random(42);
+        for(int length = 0; length < 300; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            char[] expected = referenceEncode(data);
+            Assert.assertArrayEquals(expected, Base64Encoder.encode(data));
+            Assert.assertArrayEquals(data, Base64Encoder.decode(expected));
+            Assert.assertArrayEquals(data, Base64Encoder.decode(new String(expected)));
+        }
+    }
+
+    @Test
+    public void testEncodeAndDecodeIntoBuffers() {
+        byte[] data = "The quick brown fox".getBytes();
+        char[] encoded = new char[64];
+        Arrays.fill(encoded, '#');
+        int written = Base64Encoder.encode(data, 4, 5, encoded, 2);
+        Assert.assertEquals(8, written);
+        Assert.assertEquals("##cXVpY2s=#", new String(encoded, 0, 11));
+
+        byte[] decoded = new byte[16];
+        int read = Base64Encoder.decode(new String(encoded), 2, 8, decoded, 1);
+        Assert.assertEquals(5, read);
+        Assert.assertEquals("quick", new String(decoded, 1, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodeIntoSmallBuffer() {
+        Base64Encoder.encode(new byte[4], 0, 4, new char[7], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeIllegalCharacter() {
+        Base64Encoder.decode("Zm9*");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeInvalidLength() {
+        Base64Encoder.decode("Zm9vY");
+    }
+
+    /**
+     * Straightforward encoding, one character at a time, as it was done
+     * before encoding into buffers.
+     */
+    private char[] referenceEncode(byte[] in) {
+        StringBuilder out = new StringBuilder();
+        for(int i = 0; i < in.length; i += 3) {
+            int b0 = in[i] & 0xff;
+            int b1 = i + 1 < in.length ? in[i + 1] & 0xff : 0;
+            int b2 = i + 2 < in.length ? in[i + 2] & 0xff : 0;
+            out.append(ALPHABET.charAt(b0 >>> 2));
+            out.append(ALPHABET.charAt(((b0 & 3) << 4) | (b1 >>> 4)));
+            out.append(i + 1 < in.length ? ALPHABET.charAt(((b1 & 0xf) << 2) | (b2 >>> 6)) : '=');
+            out.append(i + 2 < in.length ? ALPHABET.charAt(b2 & 0x3f) : '=');
+        }
+        return out.toString().toCharArray();
+    }
+}
@@ -0,0 +1,148 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to read and to write a file of 100,000 members in the
+ * format used to import and export members. Run it with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.cejug.yougi.util.CsvRecordBenchmark
+ * Add the option -Dexec.args="-prof gc" to check that the allocation does not
+ * grow with the size of the file.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CsvRecordBenchmark {
+
+    private static final int MEMBERS = 100000;
+
+    private static final String[] FIELDS = {"email", "firstName", "lastName", "gender", "website", "twitter",
+                                            "publicProfile", "mailingList", "news", "generalOffer", "jobOffer",
+                                            "event", "sponsor", "speaker", "registrationDate"};
+
+    private String file;
+
+    @Setup
+    public void createFile() throws IOException {
+        StringWriter out = new StringWriter(MEMBERS * 160);
+        write(out);
+        file = out.toString();
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        long length = 0;
+        try (CsvRecordReader reader = new CsvRecordReader(new StringReader(file))) {
+            Map<String, String> record;
+            while((record = reader.read()) != null) {
+                length += record.get("email").length();
+            }
+        }
+        return length;
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        NullWriter out = new NullWriter();
+        write(out);
+        return out.length;
+    }
+
+    private void write(Writer out) throws IOException {
+        CsvRecordWriter writer = new CsvRecordWriter(out, FIELDS);
+        String[] values = new String[FIELDS.length];
+        for(int i = 0; i < MEMBERS; i++) {
+            values[0] = "member" + i + "@example.com";
+            values[1] = "First" + i;
+            values[2] = i % 10 == 0 ? "Last, Jr" : "Last" + i;
+            values[3] = i % 2 == 0 ? "F" : "M";
+            values[4] = "http://www.example" + (i % 100) + ".com";
+            values[5] = "@member" + i;
+            for(int j = 6; j < 14; j++) {
+                values[j] = (i + j) % 3 == 0 ? "true" : "false";
+            }
+            values[14] = "2014-05-" + (10 + i % 20);
+            writer.write(values);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Discards what is written, to measure only the cost of formatting.
+     */
+    private static class NullWriter extends Writer {
+
+        private int length;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            this.length += length;
+        }
+
+        @Override
+        public void write(String value, int offset, int length) {
+            this.length += length;
+        }
+
+        @Override
+        public void write(int c) {
+            length++;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CsvRecordBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,89 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class CsvRecordReaderTest {
+
+    @Test
+    public void testRead() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("email,firstName\r\nann@example.com,Ann\r\nbob@example.com,Bob\r\n"));
+        assertEquals(Arrays.asList("email", "firstName"), reader.getHeader());
+        Map<String, String> record = reader.read();
+        assertEquals("ann@example.com", record.get("email"));
+        assertEquals("Ann", record.get("firstName"));
+        assertEquals(2, reader.getLineNumber());
+        record = reader.read();
+        assertEquals("Bob", record.get("firstName"));
+        assertEquals(3, reader.getLineNumber());
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void testQuotedValues() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("a,b,c\n\"x, y\",\"say \"\"hi\"\"\",\"two\nlines\"\nlast,,\n"));
+        assertEquals(Arrays.asList("x, y", "say \"hi\"", "two\nlines"), reader.readFields());
+        assertEquals(2, reader.getLineNumber());
+        assertEquals(Arrays.asList("last", "", ""), reader.readFields());
+        assertEquals(4, reader.getLineNumber());
+        assertNull(reader.readFields());
+    }
+
+    @Test
+    public void testSemicolonAndByteOrderMark() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("\uFEFFemail;lastName\n\nann@example.com;Smith, Jr"));
+        assertEquals(Arrays.asList("email", "lastName"), reader.getHeader());
+        Map<String, String> record = reader.read();
+        assertEquals("Smith, Jr", record.get("lastName"));
+        assertEquals(3, reader.getLineNumber());
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void testMissingValues() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("email,firstName,lastName\nann@example.com\n"));
+        Map<String, String> record = reader.read();
+        assertEquals("ann@example.com", record.get("email"));
+        assertNull(record.get("lastName"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testQuoteNotClosed() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("a,b\n\"x,y\n"));
+        reader.read();
+    }
+
+    @Test(expected = IOException.class)
+    public void testEmpty() throws IOException {
+        new CsvRecordReader(new StringReader(""));
+    }
+}
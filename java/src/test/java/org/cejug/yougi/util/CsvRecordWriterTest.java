@@ -0,0 +1,78 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class CsvRecordWriterTest {
+
+    @Test
+    public void testWrite() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvRecordWriter writer = new CsvRecordWriter(out, "email", "firstName", "website");
+        writer.write("ann@example.com", "Ann", null);
+        writer.write("bob@example.com", "Bob \"The\" Builder", "a,b");
+        writer.flush();
+        assertEquals("email,firstName,website\r\nann@example.com,Ann,\r\nbob@example.com,\"Bob \"\"The\"\" Builder\",\"a,b\"\r\n", out.toString());
+    }
+
+    @Test
+    public void testWriteFormulas() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvRecordWriter writer = new CsvRecordWriter(out, "firstName", "lastName", "twitter", "website");
+        writer.write("=HYPERLINK(\"http://example.com\")", "+1", "@ann", "-2,3");
+        writer.flush();
+        assertEquals("firstName,lastName,twitter,website\r\n\"'=HYPERLINK(\"\"http://example.com\"\")\",'+1,'@ann,\"'-2,3\"\r\n", out.toString());
+    }
+
+    @Test
+    public void testReadWhatWasWritten() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvRecordWriter writer = new CsvRecordWriter(out, "a", "b");
+        writer.write(" padded ", "two\r\nlines;\"quoted\"");
+        writer.write("=1+1", "'quoted");
+        writer.close();
+
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(out.toString()));
+        Map<String, String> record = reader.read();
+        assertEquals(" padded ", record.get("a"));
+        assertEquals("two\r\nlines;\"quoted\"", record.get("b"));
+        record = reader.read();
+        assertEquals("=1+1", record.get("a"));
+        assertEquals("'quoted", record.get("b"));
+        assertNull(reader.read());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongNumberOfValues() throws IOException {
+        new CsvRecordWriter(new StringWriter(), "a", "b").write("only one");
+    }
+}
@@ -0,0 +1,57 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class MailRateLimiterTest {
+
+    @Test
+    public void testDomainLimit() {
+        MailRateLimiter rateLimiter = new MailRateLimiter(0, 60);
+        Assert.assertEquals(0, rateLimiter.acquire("john@gmail.com"));
+        Assert.assertTrue(rateLimiter.acquire("mary@GMAIL.com") > 0);
+        Assert.assertEquals(0, rateLimiter.acquire("john@cejug.org"));
+        Assert.assertEquals(1, rateLimiter.getThrottledMessages());
+        Assert.assertEquals(2, rateLimiter.getDomainBuckets());
+    }
+
+    @Test
+    public void testGlobalLimit() {
+        MailRateLimiter rateLimiter = new MailRateLimiter(60, 600);
+        Assert.assertEquals(0, rateLimiter.acquire("john@gmail.com"));
+        Assert.assertTrue(rateLimiter.acquire("john@cejug.org") > 0);
+        Assert.assertEquals(1, rateLimiter.getThrottledMessages());
+    }
+
+    @Test
+    public void testNoLimit() {
+        MailRateLimiter rateLimiter = new MailRateLimiter(0, 0);
+        for(int i = 0; i < 1000; i++) {
+            Assert.assertEquals(0, rateLimiter.acquire("john@gmail.com"));
+        }
+        Assert.assertEquals(0, rateLimiter.getDomainBuckets());
+    }
+}
@@ -0,0 +1,93 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class MemberSearchIndexTest {
+
+    private MemberSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new MemberSearchIndex();
+        index.put("1", "José", "da Silva", "jose@cejug.org", "http://www.josesilva.com/blog");
+        index.put("2", "Josefa", "Conceição", "josefa@gmail.com", null);
+        index.put("3", "Mark", "Silverman", "mark@example.com", "https://mark.example.com");
+    }
+
+    @Test
+    public void testSearchByPrefix() {
+        Assert.assertEquals(Arrays.asList("1", "2"), sorted(index.search("jos", 10)));
+        Assert.assertEquals(Arrays.asList("1", "3"), sorted(index.search("silv", 10)));
+        Assert.assertEquals(Collections.singletonList("1"), index.search("jo SILV", 10));
+    }
+
+    @Test
+    public void testSearchIgnoresAccents() {
+        Assert.assertEquals(Collections.singletonList("2"), index.search("conceiçao", 10));
+        Assert.assertEquals(Collections.singletonList("1"), index.search("José da", 10));
+    }
+
+    @Test
+    public void testSearchByEmailAndSuggestion() {
+        Assert.assertEquals(Collections.singletonList("2"), index.search("josefa@", 10));
+        Assert.assertEquals(Collections.singletonList("3"), index.search("Mark Silverman <mark@example.com>", 10));
+    }
+
+    @Test
+    public void testSearchLimit() {
+        Assert.assertEquals(1, index.search("j", 1).size());
+        Assert.assertTrue(index.search("   ", 10).isEmpty());
+        Assert.assertTrue(index.search("jos mark", 10).isEmpty());
+    }
+
+    @Test
+    public void testSearchByWebsite() {
+        Assert.assertEquals(Collections.singletonList("1"), index.search("josesilva.com", 10));
+        Assert.assertEquals(Collections.singletonList("3"), index.search("mark.example", 10));
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        index.put("1", "José", "Souza", "jose@cejug.org", null);
+        Assert.assertEquals(Collections.singletonList("3"), index.search("silv", 10));
+        Assert.assertTrue(index.search("josesilva.com", 10).isEmpty());
+
+        index.remove("3");
+        Assert.assertTrue(index.search("silv", 10).isEmpty());
+        Assert.assertEquals(2, index.size());
+    }
+
+    private List<String> sorted(List<String> ids) {
+        Collections.sort(ids);
+        return ids;
+    }
+}
@@ -0,0 +1,71 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class PasswordHashTest {
+
+    @Test
+    public void testHashAndMatches() {
+        String hash = PasswordHash.INSTANCE.hash("abc", 1000);
+        assertTrue(hash.startsWith("pbkdf2$1000$"));
+        assertTrue(PasswordHash.INSTANCE.matches("abc", hash));
+        assertFalse(PasswordHash.INSTANCE.matches("abd", hash));
+        assertFalse(hash.equals(PasswordHash.INSTANCE.hash("abc", 1000)));
+    }
+
+    @Test
+    public void testMatchesLegacy() {
+        String legacy = "ungWv48Bz+pBQUDeXa4iI7ADYaOWF3qctBD/YfIAFa0=";
+        assertTrue(PasswordHash.INSTANCE.isLegacy(legacy));
+        assertTrue(PasswordHash.INSTANCE.matches("abc", legacy));
+        assertFalse(PasswordHash.INSTANCE.matches("abd", legacy));
+    }
+
+    @Test
+    public void testNeedsRehash() {
+        String hash = PasswordHash.INSTANCE.hash("abc", 1000);
+        assertFalse(PasswordHash.INSTANCE.needsRehash(hash, 1000));
+        assertTrue(PasswordHash.INSTANCE.needsRehash(hash, 2000));
+        assertTrue(PasswordHash.INSTANCE.needsRehash(PasswordHash.INSTANCE.legacyHash("abc"), 1000));
+    }
+
+    @Test
+    public void testUnusable() {
+        String unusable = PasswordHash.INSTANCE.unusable();
+        assertTrue(unusable.startsWith("!"));
+        assertFalse(unusable.equals(PasswordHash.INSTANCE.unusable()));
+        assertFalse(PasswordHash.INSTANCE.matches("", unusable));
+        assertFalse(PasswordHash.INSTANCE.matches(unusable, unusable));
+    }
+
+    @Test
+    public void testMalformedHash() {
+        assertFalse(PasswordHash.INSTANCE.matches("abc", "pbkdf2$x$y"));
+        assertFalse(PasswordHash.INSTANCE.matches("abc", null));
+    }
+}
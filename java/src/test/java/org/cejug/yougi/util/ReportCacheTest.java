@@ -0,0 +1,146 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class ReportCacheTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private static class CountingLoader implements Callable<Integer> {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Integer call() {
+            return calls.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testKeepsResultUntilExpiration() {
+        ReportCache cache = new ReportCache();
+        CountingLoader loader = new CountingLoader();
+        long now = System.nanoTime();
+
+        Assert.assertEquals(Integer.valueOf(1), cache.get("growth", "en", MINUTE, loader, now));
+        Assert.assertEquals(Integer.valueOf(1), cache.get("growth", "en", MINUTE, loader, now + TimeUnit.SECONDS.toNanos(59)));
+        Assert.assertEquals(Integer.valueOf(2), cache.get("growth", "en", MINUTE, loader, now + TimeUnit.SECONDS.toNanos(60)));
+    }
+
+    @Test
+    public void testKeys() {
+        ReportCache cache = new ReportCache();
+        CountingLoader loader = new CountingLoader();
+
+        Assert.assertEquals(Integer.valueOf(1), cache.get("growth", "en", MINUTE, loader));
+        Assert.assertEquals(Integer.valueOf(2), cache.get("growth", "pt", MINUTE, loader));
+        Assert.assertEquals(Integer.valueOf(3), cache.get("privacy", "en", MINUTE, loader));
+        Assert.assertEquals(Integer.valueOf(1), cache.get("growth", "en", MINUTE, loader));
+        Assert.assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testInvalidate() {
+        ReportCache cache = new ReportCache();
+        CountingLoader loader = new CountingLoader();
+
+        cache.get("growth", "en", MINUTE, loader);
+        cache.get("growth", "pt", MINUTE, loader);
+        cache.get("privacy", "en", MINUTE, loader);
+        cache.invalidate("growth");
+
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(Integer.valueOf(4), cache.get("growth", "en", MINUTE, loader));
+        Assert.assertEquals(Integer.valueOf(3), cache.get("privacy", "en", MINUTE, loader));
+    }
+
+    @Test
+    public void testFailureIsNotCached() {
+        ReportCache cache = new ReportCache();
+        try {
+            cache.get("growth", "en", MINUTE, new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    throw new IllegalArgumentException("failed");
+                }
+            });
+            Assert.fail("The failure of the loader should be thrown.");
+        } catch (IllegalArgumentException iae) {
+            Assert.assertEquals("failed", iae.getMessage());
+        }
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(Integer.valueOf(1), cache.get("growth", "en", MINUTE, new CountingLoader()));
+    }
+
+    @Test
+    public void testConcurrentMissesComputeOnce() throws Exception {
+        final ReportCache cache = new ReportCache();
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Integer> slowLoader = new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                started.countDown();
+                release.await();
+                return calls.incrementAndGet();
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        return cache.get("growth", "en", MINUTE, slowLoader);
+                    }
+                }));
+            }
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<Integer> result : results) {
+                Assert.assertEquals(Integer.valueOf(1), result.get(5, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
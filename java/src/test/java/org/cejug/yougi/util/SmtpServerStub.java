@@ -0,0 +1,142 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal SMTP server that accepts every message and only counts them. It
+ * stands in for a real mail server in tests.
+ *
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+class SmtpServerStub implements Runnable, AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger messages = new AtomicInteger();
+
+    // When true, the server drops the connection after each message.
+    private volatile boolean dropConnections;
+
+    SmtpServerStub() throws IOException {
+        serverSocket = new ServerSocket(0);
+        Thread thread = new Thread(this, "smtp-server-stub");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int getConnections() {
+        return connections.get();
+    }
+
+    int getMessages() {
+        return messages.get();
+    }
+
+    void setDropConnections(boolean dropConnections) {
+        this.dropConnections = dropConnections;
+    }
+
+    @Override
+    public void run() {
+        while(!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        converse(socket);
+                    }
+                }, "smtp-server-stub-connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException ioe) {
+                return;
+            }
+        }
+    }
+
+    private void converse(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII))) {
+            OutputStream out = s.getOutputStream();
+            reply(out, "220 localhost ESMTP stub");
+            String line;
+            while((line = in.readLine()) != null) {
+                String command = line.length() > 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO":
+                    case "HELO":
+                    case "MAIL":
+                    case "RCPT":
+                    case "RSET":
+                    case "NOOP":
+                        reply(out, "250 OK");
+                        break;
+                    case "DATA":
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while((line = in.readLine()) != null && !".".equals(line)) {
+                            // The content of the message is ignored.
+                        }
+                        messages.incrementAndGet();
+                        reply(out, "250 OK");
+                        if(dropConnections) {
+                            return;
+                        }
+                        break;
+                    case "QUIT":
+                        reply(out, "221 Bye");
+                        return;
+                    default:
+                        reply(out, "500 Command not recognized");
+                }
+            }
+        } catch (SocketException se) {
+            // The client closed the connection.
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+    }
+
+    private void reply(OutputStream out, String response) throws IOException {
+        out.write((response + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
@@ -69,4 +69,11 @@ public class TextUtilsTest {
 
 
     }
+
+    @Test
+    public void testFold() throws Exception {
+        Assert.assertEquals("jose conceicao", TextUtils.INSTANCE.fold("Jos\u00e9 Concei\u00e7\u00e3o"));
+        Assert.assertEquals("francois", TextUtils.INSTANCE.fold("Fran\u00e7ois"));
+        Assert.assertNull(TextUtils.INSTANCE.fold(null));
+    }
 }
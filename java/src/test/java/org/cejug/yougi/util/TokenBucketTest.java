@@ -0,0 +1,66 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(3, 60);
+        long now = System.nanoTime();
+        Assert.assertEquals(0, bucket.tryConsume(now));
+        Assert.assertEquals(0, bucket.tryConsume(now));
+        Assert.assertEquals(0, bucket.tryConsume(now));
+
+        long wait = bucket.tryConsume(now);
+        Assert.assertTrue(wait > 0 && wait <= SECOND);
+    }
+
+    @Test
+    public void testRefill() {
+        TokenBucket bucket = new TokenBucket(1, 60);
+        long now = System.nanoTime();
+        Assert.assertEquals(0, bucket.tryConsume(now));
+        Assert.assertTrue(bucket.tryConsume(now + SECOND / 2) > 0);
+        Assert.assertEquals(0, bucket.tryConsume(now + SECOND));
+        Assert.assertFalse(bucket.isFull(now + SECOND));
+        Assert.assertTrue(bucket.isFull(now + 2 * SECOND));
+    }
+
+    @Test
+    public void testRefund() {
+        TokenBucket bucket = new TokenBucket(1, 60);
+        long now = System.nanoTime();
+        Assert.assertEquals(0, bucket.tryConsume(now));
+        bucket.refund();
+        Assert.assertEquals(0, bucket.tryConsume(now));
+    }
+}
@@ -0,0 +1,157 @@
+/* Yougi is a web application conceived to manage user groups or
+ * communities focused on a certain domain of knowledge, whose members are
+ * constantly sharing information and participating in social and educational
+ * events. Copyright (C) 2011 Hildeberto Mendonça.
+ *
+ * This application is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by the
+ * Free Software Foundation; either version 2.1 of the License, or (at your
+ * option) any later version.
+ *
+ * This application is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public
+ * License for more details.
+ *
+ * There is a full copy of the GNU Lesser General Public License along with
+ * this library. Look for the file license.txt at the root level. If you do not
+ * find it, write to the Free Software Foundation, Inc., 59 Temple Place,
+ * Suite 330, Boston, MA 02111-1307 USA.
+ * */
+package org.cejug.yougi.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * @author Hildeberto Mendonca - http://www.hildeberto.com
+ */
+public class TransportPoolTest {
+
+    private static final Logger LOGGER = Logger.getLogger(TransportPoolTest.class.getSimpleName());
+
+    private SmtpServerStub smtpServer;
+    private Session session;
+
+    @Before
+    public void setUp() throws Exception {
+        smtpServer = new SmtpServerStub();
+        Properties properties = new Properties();
+        properties.setProperty("mail.transport.protocol", "smtp");
+        properties.setProperty("mail.smtp.host", "localhost");
+        properties.setProperty("mail.smtp.port", String.valueOf(smtpServer.getPort()));
+        properties.setProperty("mail.from", "yougi@localhost");
+        session = Session.getInstance(properties);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        smtpServer.close();
+    }
+
+    @Test
+    public void testSendReusesConnections() throws Exception {
+        final int workers = 2;
+        final int messagesPerWorker = 250;
+        final TransportPool transportPool = new TransportPool(session, workers, 60000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<Void>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for(int i = 0; i < workers * messagesPerWorker; i++) {
+            final int number = i;
+            results.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    transportPool.send(createMessage(number));
+                    return null;
+                }
+            }));
+        }
+        for(Future<Void> result: results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        transportPool.close();
+
+        LOGGER.log(Level.INFO, "TransportPool: {0} messages in {1} ms ({2} msgs/sec) over {3} connections",
+                   new Object[]{smtpServer.getMessages(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                                Math.round(smtpServer.getMessages() / (elapsed / 1e9)), smtpServer.getConnections()});
+
+        Assert.assertEquals(workers * messagesPerWorker, smtpServer.getMessages());
+        Assert.assertEquals(workers * messagesPerWorker, transportPool.getMessagesSent());
+        Assert.assertTrue(smtpServer.getConnections() <= workers);
+    }
+
+    @Test
+    public void testSendInBatch() throws Exception {
+        TransportPool transportPool = new TransportPool(session, 1, 60000);
+        List<Message> messages = new ArrayList<>();
+        for(int i = 0; i < 10; i++) {
+            messages.add(createMessage(i));
+        }
+        transportPool.send(messages);
+        transportPool.close();
+
+        Assert.assertEquals(10, smtpServer.getMessages());
+        Assert.assertEquals(1, smtpServer.getConnections());
+    }
+
+    @Test
+    public void testSendAfterServerDropsConnection() throws Exception {
+        smtpServer.setDropConnections(true);
+        TransportPool transportPool = new TransportPool(session, 1, 60000);
+
+        transportPool.send(createMessage(1));
+        try {
+            transportPool.send(createMessage(2));
+            Assert.fail("Sending through a connection dropped by the server should fail.");
+        } catch (MessagingException me) {
+            // The connection was reused and failed, so it is discarded.
+            Assert.assertEquals(0, transportPool.getIdleTransports());
+        }
+        transportPool.send(createMessage(3));
+        transportPool.close();
+
+        Assert.assertEquals(2, smtpServer.getMessages());
+        Assert.assertEquals(2, smtpServer.getConnections());
+        Assert.assertEquals(2, transportPool.getConnectionsOpened());
+        Assert.assertEquals(2, transportPool.getMessagesSent());
+    }
+
+    @Test
+    public void testEvictIdleTransports() throws Exception {
+        TransportPool transportPool = new TransportPool(session, 1, 0);
+        transportPool.send(createMessage(1));
+        Assert.assertEquals(1, transportPool.evictIdleTransports());
+        Assert.assertEquals(0, transportPool.getIdleTransports());
+        transportPool.close();
+    }
+
+    private MimeMessage createMessage(int number) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("member" + number + "@localhost"));
+        message.setSubject("Message " + number, "UTF-8");
+        message.setText("Content of the message " + number, "UTF-8", "html");
+        return message;
+    }
+}
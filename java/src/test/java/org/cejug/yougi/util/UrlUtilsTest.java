@@ -41,6 +41,29 @@ public class UrlUtilsTest {
 
     }
 
+    @Test
+    public void testGetHost() throws Exception {
+    	Assert.assertEquals("cejug.org", UrlUtils.INSTANCE.getHost("HTTP://www.Cejug.org/blog?page=2"));
+    	Assert.assertEquals("cejug.org", UrlUtils.INSTANCE.getHost("https://cejug.org:8443"));
+    	Assert.assertEquals("blog.cejug.org", UrlUtils.INSTANCE.getHost("blog.cejug.org/"));
+    	Assert.assertNull(UrlUtils.INSTANCE.getHost("http://"));
+    }
+
+    @Test
+    public void testGetPath() throws Exception {
+    	Assert.assertEquals("/blog", UrlUtils.INSTANCE.getPath("HTTP://www.Cejug.org/Blog/?page=2"));
+    	Assert.assertEquals("", UrlUtils.INSTANCE.getPath("https://cejug.org:8443"));
+    	Assert.assertEquals("", UrlUtils.INSTANCE.getPath("cejug.org/"));
+    }
+
+    @Test
+    public void testIsUnder() throws Exception {
+    	Assert.assertTrue(UrlUtils.INSTANCE.isUnder("http://cejug.org/blog/feed", "www.cejug.org/blog"));
+    	Assert.assertTrue(UrlUtils.INSTANCE.isUnder("http://cejug.org/blog", "http://cejug.org"));
+    	Assert.assertFalse(UrlUtils.INSTANCE.isUnder("http://cejug.org/blog", "cejug.org/bl"));
+    	Assert.assertFalse(UrlUtils.INSTANCE.isUnder("http://cejug.org/blog", "http://blog.cejug.org"));
+    }
+
     @Test
     public void testConcatUrlFragment() throws Exception {
     	Assert.assertEquals("http://newurltest.com/yougi", UrlUtils.INSTANCE.concatUrlFragment("http://newurltest.com/", "/yougi"));
@@ -20,6 +20,7 @@
  * */
 package org.cejug.yougi.util;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -31,6 +32,12 @@ public class WebTextUtilsTest {
 
     }
 
+    @Test
+    public void testEscapeHtml() throws Exception {
+        Assert.assertEquals("&lt;b&gt;Ann &amp; &quot;Bob&quot;&lt;/b&gt; O&#39;Neil", WebTextUtils.INSTANCE.escapeHtml("<b>Ann & \"Bob\"</b> O'Neil"));
+        Assert.assertNull(WebTextUtils.INSTANCE.escapeHtml(null));
+    }
+
     @Test
     public void testGetFormattedDate() throws Exception {
 